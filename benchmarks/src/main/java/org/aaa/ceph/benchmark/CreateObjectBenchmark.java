@@ -0,0 +1,97 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: CreateObjectBenchmark
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.benchmark;
+
+import org.aaa.ceph.client.CS3ClientInterface;
+import org.aaa.ceph.client.CS3ClientRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CS3ClientInterface#createObject(File)} and {@link CS3ClientInterface#createObject(java.io.InputStream)}
+ * through a tenant client, including the object handle encoding.
+ * <p>
+ * The created objects are removed after every iteration, so the heap of the local server stays flat.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CreateObjectBenchmark extends LocalS3Benchmark {
+
+    @Param({"1024", "262144", "4194304"})
+    public int objectSize;
+
+    private CS3ClientRegistry registry;
+
+    private CS3ClientInterface client;
+
+    private byte[] data;
+
+    private File file;
+
+    private final Queue<String> created = new ConcurrentLinkedQueue<>();
+
+    @Override
+    protected void prepare() throws Exception {
+        data = payload(objectSize);
+        file = tempFile(data);
+        registry = new CS3ClientRegistry();
+        client = registry.client(ACCESS_KEY, SECRET_KEY, server.getEndpoint(), CS3ClientRegistry.DEFAULT_USER_ID, BUCKET);
+    }
+
+    @Override
+    protected void cleanup() {
+        registry.close();
+        file.delete();
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeCreated() {
+        List<String> handles = new ArrayList<>(created);
+        created.clear();
+        client.removeObjects(handles);
+    }
+
+    @Benchmark
+    public String createObjectFromFile() {
+        String handle = client.createObject(file);
+        created.add(handle);
+        return handle;
+    }
+
+    @Benchmark
+    public String createObjectFromStream() {
+        String handle = client.createObject(new ByteArrayInputStream(data));
+        created.add(handle);
+        return handle;
+    }
+}
@@ -0,0 +1,99 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: GetObjectBenchmark
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.benchmark;
+
+import com.amazonaws.services.s3.model.S3Object;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * download of one object to a stream and to a file, the latter both as a single GET and as parallel
+ * byte ranges ({@code parallelGetObject}).
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GetObjectBenchmark extends LocalS3Benchmark {
+
+    private static final String OBJECT_KEY = "get-object";
+
+    @Param({"65536", "4194304", "67108864"})
+    public int objectSize;
+
+    @Override
+    protected void prepare() {
+        server.putObject(BUCKET, OBJECT_KEY, payload(objectSize));
+    }
+
+    /**
+     * per thread download target and copy buffer
+     */
+    @State(Scope.Thread)
+    public static class Target {
+
+        File file;
+
+        final byte[] buffer = new byte[64 * 1024];
+
+        @Setup(Level.Trial)
+        public void createFile() throws IOException {
+            file = File.createTempFile("cs3-benchmark-", ".bin");
+        }
+
+        @TearDown(Level.Trial)
+        public void deleteFile() {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public long getObjectToStream(Target target) throws IOException {
+        long total = 0;
+        try (S3Object object = service.getObject(BUCKET, OBJECT_KEY);
+             InputStream in = object.getObjectContent()) {
+            int n;
+            while ((n = in.read(target.buffer)) > 0) {
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long getObjectToFile(Target target) {
+        service.getObject(BUCKET, OBJECT_KEY, target.file);
+        return target.file.length();
+    }
+
+    @Benchmark
+    public long parallelGetObjectToFile(Target target) {
+        service.parallelGetObject(BUCKET, OBJECT_KEY, target.file);
+        return target.file.length();
+    }
+}
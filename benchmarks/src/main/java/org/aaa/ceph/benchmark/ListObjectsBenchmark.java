@@ -0,0 +1,59 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: ListObjectsBenchmark
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.benchmark;
+
+import com.amazonaws.services.s3.model.ObjectListing;
+import org.aaa.ceph.service.ListObjectsOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * listing of a bucket: the first page ({@code listObjects}) and every page, with the background page
+ * prefetch of {@code streamObjects}.
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ListObjectsBenchmark extends LocalS3Benchmark {
+
+    @Param({"1000", "20000"})
+    public int objectCount;
+
+    @Override
+    protected void prepare() {
+        byte[] empty = new byte[0];
+        for (int i = 0; i < objectCount; i++) {
+            server.putObject(BUCKET, String.format("dir-%02d/object-%08d", i % 16, i), empty);
+        }
+    }
+
+    @Benchmark
+    public ObjectListing listObjects() {
+        return service.listObjects(BUCKET);
+    }
+
+    @Benchmark
+    public long streamObjects() {
+        return service.streamObjects(BUCKET, new ListObjectsOptions()).count();
+    }
+}
@@ -0,0 +1,294 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: LoadDriver
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.benchmark;
+
+import org.aaa.ceph.client.CS3ClientInterface;
+import org.aaa.ceph.client.CS3ClientRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * command line load and soak test driver of {@link CS3ClientInterface}
+ * <p>
+ * Workers run a mix of reads, writes and deletes with writes drawn from an object size distribution.
+ * With a target rate the operations follow a fixed schedule (open loop): when the gateway falls behind,
+ * the delay until a worker is free counts into the response time instead of silently lowering the load.
+ * With rate 0 every worker runs the next operation as soon as the last one returns (closed loop).
+ * Without {@code --endpoint} an embedded {@link LocalS3Server} is started, with optional injected latency
+ * and errors. Run {@code java -cp benchmarks.jar org.aaa.ceph.benchmark.LoadDriver --help} for the options.
+ * A read may pick an object a concurrent delete is removing, with few objects and many deletes such reads
+ * show up as read errors.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class LoadDriver {
+
+    /**
+     * number of object handles kept as read and delete targets
+     */
+    private static final int POOL_CAPACITY = 1 << 16;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final WorkloadOptions options;
+
+    private final CS3ClientInterface client;
+
+    private final LoadReport report = new LoadReport(System.out);
+
+    private final ObjectPool pool = new ObjectPool(POOL_CAPACITY);
+
+    /**
+     * one payload per entry of {@link WorkloadOptions#sizes}
+     */
+    private final byte[][] payloads;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private LoadDriver(WorkloadOptions options, CS3ClientInterface client) {
+        this.options = options;
+        this.client = client;
+        this.payloads = new byte[options.sizes.length][];
+        Random random = new Random(1);
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = new byte[(int) options.sizes[i]];
+            random.nextBytes(payloads[i]);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        WorkloadOptions options;
+        try {
+            options = WorkloadOptions.parse(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println(WorkloadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options == null) {
+            System.out.println(WorkloadOptions.USAGE);
+            return;
+        }
+        LocalS3Server server = options.endpoint == null ? new LocalS3Server() : null;
+        try (CS3ClientRegistry registry = new CS3ClientRegistry()) {
+            String endpoint = server == null ? options.endpoint : server.getEndpoint();
+            CS3ClientInterface client = registry.client(options.accessKey, options.secretKey, endpoint,
+                    CS3ClientRegistry.DEFAULT_USER_ID, options.bucket);
+            LoadDriver driver = new LoadDriver(options, client);
+            driver.preload();
+            if (server != null) {
+                server.latency(options.latencyMicros, TimeUnit.MICROSECONDS)
+                        .tailLatency(options.tailRatio, options.tailLatencyMicros, TimeUnit.MICROSECONDS)
+                        .errorRatio(options.errorRatio);
+            }
+            System.out.printf("%s: rate %s, concurrency %d, warmup %ds, duration %ds%n", endpoint,
+                    options.rate > 0 ? options.rate + " ops/s" : "unlimited", options.concurrency,
+                    TimeUnit.NANOSECONDS.toSeconds(options.warmupNanos),
+                    TimeUnit.NANOSECONDS.toSeconds(options.durationNanos));
+            driver.run();
+            if (server != null) {
+                server.latency(0, TimeUnit.MICROSECONDS).tailLatency(0, 0, TimeUnit.MICROSECONDS).errorRatio(0);
+            }
+            if (options.cleanup) {
+                driver.cleanup();
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private void preload() {
+        Random random = new Random(2);
+        for (int i = 0; i < options.preload; i++) {
+            pool.add(client.createObject(new ByteArrayInputStream(payloads[options.nextSize(random)])));
+        }
+    }
+
+    private void run() throws InterruptedException {
+        long runStart = System.nanoTime();
+        long measureStart = runStart + options.warmupNanos;
+        long end = measureStart + options.durationNanos;
+        ExecutorService workers = Executors.newFixedThreadPool(options.concurrency, r -> {
+            Thread thread = new Thread(r, "load-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < options.concurrency; i++) {
+            workers.execute(() -> work(runStart, measureStart, end));
+        }
+        workers.shutdown();
+
+        sleepUntil(measureStart);
+        report.resetInterval();
+        report.printIntervalHeader();
+        long lastReport = measureStart;
+        while (lastReport < end) {
+            long next = Math.min(lastReport + options.reportIntervalNanos, end);
+            sleepUntil(next);
+            report.printInterval(next - measureStart, next - lastReport);
+            lastReport = next;
+        }
+        // operations still running at the end are left out of the report
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        report.printSummary(options.durationNanos, options.rate);
+    }
+
+    private void work(long runStart, long measureStart, long end) {
+        Random random = ThreadLocalRandom.current();
+        double intervalNanos = options.rate > 0 ? 1e9 / options.rate : 0;
+        while (true) {
+            long intended;
+            if (intervalNanos > 0) {
+                intended = runStart + (long) (sequence.getAndIncrement() * intervalNanos);
+                if (intended >= end) {
+                    return;
+                }
+                sleepUntil(intended);
+            } else {
+                intended = System.nanoTime();
+            }
+            long start = System.nanoTime();
+            if (start >= end) {
+                return;
+            }
+            int operation = options.nextOperation(random);
+            String handle = operation == LoadReport.READ ? pool.peek(random)
+                    : operation == LoadReport.DELETE ? pool.take(random) : null;
+            if (handle == null) {
+                // no object to read or delete yet, write one instead
+                operation = LoadReport.WRITE;
+            }
+            try {
+                long bytes = execute(operation, handle, random);
+                long now = System.nanoTime();
+                if (intended >= measureStart && now < end) {
+                    report.succeeded(operation, now - intended, now - start, bytes);
+                }
+            } catch (RuntimeException | IOException e) {
+                if (intended >= measureStart && System.nanoTime() < end) {
+                    report.failed(operation);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of bytes transferred
+     */
+    private long execute(int operation, String handle, Random random) throws IOException {
+        switch (operation) {
+            case LoadReport.READ:
+                return read(handle);
+            case LoadReport.DELETE:
+                client.removeObject(handle);
+                return 0;
+            default:
+                byte[] payload = payloads[options.nextSize(random)];
+                pool.add(client.createObject(new ByteArrayInputStream(payload)));
+                return payload.length;
+        }
+    }
+
+    private long read(String handle) throws IOException {
+        long total = 0;
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try (InputStream in = client.getObject(handle)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    private void cleanup() {
+        List<String> handles = pool.drain();
+        Map<String, String> failures = client.removeObjects(handles);
+        System.out.printf("removed %d objects, %d failed%n", handles.size() - failures.size(), failures.size());
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * fixed size ring of object handles, the oldest handle is forgotten once the ring is full
+     */
+    private static final class ObjectPool {
+
+        /**
+         * random slots probed before giving up on an empty pool
+         */
+        private static final int PROBES = 8;
+
+        private final AtomicReferenceArray<String> slots;
+
+        private final AtomicLong writes = new AtomicLong();
+
+        private ObjectPool(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
+
+        private void add(String handle) {
+            slots.set((int) (writes.getAndIncrement() % slots.length()), handle);
+        }
+
+        private String peek(Random random) {
+            int filled = (int) Math.min(writes.get(), slots.length());
+            for (int i = 0; filled > 0 && i < PROBES; i++) {
+                String handle = slots.get(random.nextInt(filled));
+                if (handle != null) {
+                    return handle;
+                }
+            }
+            return null;
+        }
+
+        private String take(Random random) {
+            int filled = (int) Math.min(writes.get(), slots.length());
+            for (int i = 0; filled > 0 && i < PROBES; i++) {
+                String handle = slots.getAndSet(random.nextInt(filled), null);
+                if (handle != null) {
+                    return handle;
+                }
+            }
+            return null;
+        }
+
+        private List<String> drain() {
+            List<String> handles = new ArrayList<>();
+            for (int i = 0; i < slots.length(); i++) {
+                String handle = slots.getAndSet(i, null);
+                if (handle != null) {
+                    handles.add(handle);
+                }
+            }
+            return handles;
+        }
+    }
+}
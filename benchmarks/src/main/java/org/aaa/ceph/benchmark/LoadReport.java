@@ -0,0 +1,175 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: LoadReport
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.benchmark;
+
+import org.aaa.ceph.metrics.HistogramSnapshot;
+import org.aaa.ceph.metrics.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * counters and latency histograms of a {@link LoadDriver} run
+ * <p>
+ * Every operation is recorded twice: into the totals of the run and into the current interval, which
+ * the reporter swaps out every report period. The response time is measured from the time the operation
+ * was scheduled to start, not from the time it started, so it includes the wait for a free worker
+ * (coordinated omission correction); the service time only covers the call itself.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class LoadReport {
+
+    static final int READ = 0;
+
+    static final int WRITE = 1;
+
+    static final int DELETE = 2;
+
+    private static final int ALL = 3;
+
+    private static final String[] NAMES = {"read", "write", "delete", "all"};
+
+    private static final String INTERVAL_FORMAT = "%8s %10s %7s %9s %9s %9s %9s %9s %9s%n";
+
+    private static final String SUMMARY_FORMAT = "%-7s %9s %10s %8s %9s %9s %9s %9s %9s %9s %9s %9s%n";
+
+    private final Stats[] total = newStats();
+
+    private final AtomicReference<Stats[]> interval = new AtomicReference<>(newStats());
+
+    private final PrintStream out;
+
+    LoadReport(PrintStream out) {
+        this.out = out;
+    }
+
+    void succeeded(int operation, long responseNanos, long serviceNanos, long bytes) {
+        Stats[] current = interval.get();
+        current[operation].succeeded(responseNanos, serviceNanos, bytes);
+        current[ALL].succeeded(responseNanos, serviceNanos, bytes);
+        total[operation].succeeded(responseNanos, serviceNanos, bytes);
+        total[ALL].succeeded(responseNanos, serviceNanos, bytes);
+    }
+
+    void failed(int operation) {
+        Stats[] current = interval.get();
+        current[operation].errors.increment();
+        current[ALL].errors.increment();
+        total[operation].errors.increment();
+        total[ALL].errors.increment();
+    }
+
+    /**
+     * Start a new interval, dropping what was recorded so far into the current one.
+     */
+    void resetInterval() {
+        interval.set(newStats());
+    }
+
+    void printIntervalHeader() {
+        out.printf(INTERVAL_FORMAT, "time(s)", "ops/s", "err%", "MB/s", "p50(ms)", "p90", "p99", "p99.9", "max");
+    }
+
+    /**
+     * Print the response times of the interval that just ended and start a new one.
+     *
+     * @param elapsedNanos time since the start of the measurement
+     * @param intervalNanos length of the interval
+     */
+    void printInterval(long elapsedNanos, long intervalNanos) {
+        Stats all = interval.getAndSet(newStats())[ALL];
+        HistogramSnapshot response = all.response.snapshot();
+        double seconds = intervalNanos / 1e9;
+        long errors = all.errors.sum();
+        out.printf(INTERVAL_FORMAT,
+                String.format("%.1f", elapsedNanos / 1e9),
+                String.format("%.1f", response.getCount() / seconds),
+                String.format("%.2f", percent(errors, response.getCount() + errors)),
+                String.format("%.2f", all.bytes.sum() / seconds / (1024 * 1024)),
+                millis(response.getPercentile(50)),
+                millis(response.getPercentile(90)),
+                millis(response.getPercentile(99)),
+                millis(response.getPercentile(99.9)),
+                millis(response.getMax()));
+    }
+
+    /**
+     * Print the totals of the run, per operation.
+     *
+     * @param measuredNanos length of the measurement
+     * @param targetRate operations per second asked for, 0 for a closed loop run
+     */
+    void printSummary(long measuredNanos, double targetRate) {
+        double seconds = measuredNanos / 1e9;
+        out.println();
+        out.printf(SUMMARY_FORMAT, "op", "count", "ops/s", "err%", "MB/s", "p50(ms)", "p90", "p99", "p99.9",
+                "max", "svc p50", "svc p99");
+        for (int operation = 0; operation < total.length; operation++) {
+            Stats stats = total[operation];
+            HistogramSnapshot response = stats.response.snapshot();
+            HistogramSnapshot service = stats.service.snapshot();
+            long errors = stats.errors.sum();
+            if (response.getCount() + errors == 0) {
+                continue;
+            }
+            out.printf(SUMMARY_FORMAT, NAMES[operation],
+                    response.getCount(),
+                    String.format("%.1f", response.getCount() / seconds),
+                    String.format("%.2f", percent(errors, response.getCount() + errors)),
+                    String.format("%.2f", stats.bytes.sum() / seconds / (1024 * 1024)),
+                    millis(response.getPercentile(50)),
+                    millis(response.getPercentile(90)),
+                    millis(response.getPercentile(99)),
+                    millis(response.getPercentile(99.9)),
+                    millis(response.getMax()),
+                    millis(service.getPercentile(50)),
+                    millis(service.getPercentile(99)));
+        }
+        long completed = total[ALL].response.snapshot().getCount() + total[ALL].errors.sum();
+        if (targetRate > 0) {
+            out.printf("target %.1f ops/s, achieved %.1f ops/s%n", targetRate, completed / seconds);
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0 : 100.0 * part / whole;
+    }
+
+    private static Stats[] newStats() {
+        Stats[] stats = new Stats[NAMES.length];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new Stats();
+        }
+        return stats;
+    }
+
+    private static final class Stats {
+
+        private final LatencyHistogram response = new LatencyHistogram();
+
+        private final LatencyHistogram service = new LatencyHistogram();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LongAdder bytes = new LongAdder();
+
+        private void succeeded(long responseNanos, long serviceNanos, long transferred) {
+            response.record(responseNanos);
+            service.record(serviceNanos);
+            bytes.add(transferred);
+        }
+    }
+}
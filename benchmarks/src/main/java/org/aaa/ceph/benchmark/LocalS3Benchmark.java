@@ -0,0 +1,102 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: LocalS3Benchmark
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.benchmark;
+
+import org.aaa.ceph.service.CS3Builder;
+import org.aaa.ceph.service.CS3Service;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * common trial lifecycle of the benchmarks
+ * <p>
+ * Every trial starts its own {@link LocalS3Server} and a {@link CS3Service} pointing at it, so the suites run
+ * offline and one trial never sees the objects of another. Subclasses tune the service in
+ * {@link #configure(CS3Builder)} and seed their fixtures in {@link #prepare()}.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public abstract class LocalS3Benchmark {
+
+    protected static final String ACCESS_KEY = "benchmark";
+
+    protected static final String SECRET_KEY = "benchmark";
+
+    protected static final String BUCKET = "benchmark";
+
+    protected LocalS3Server server;
+
+    protected CS3Service service;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        server = new LocalS3Server().createBucket(BUCKET);
+        service = configure(new CS3Builder()
+                .accessKey(ACCESS_KEY)
+                .secretKey(SECRET_KEY)
+                .endpoint(server.getEndpoint()))
+                .build();
+        prepare();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws Exception {
+        cleanup();
+        if (service != null) {
+            service.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /**
+     * Tune the service of the trial, the builder already carries the credentials and endpoint.
+     */
+    protected CS3Builder configure(CS3Builder builder) {
+        return builder;
+    }
+
+    /**
+     * Seed the fixtures of the trial, called once the service is built.
+     */
+    protected void prepare() throws Exception {
+    }
+
+    /**
+     * Release the fixtures of the trial, called before the service is closed.
+     */
+    protected void cleanup() throws Exception {
+    }
+
+    /**
+     * @return random, incompressible bytes, the same for the same size
+     */
+    protected static byte[] payload(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * @return a temporary file holding the data, deleted on exit
+     */
+    protected static File tempFile(byte[] data) throws IOException {
+        File file = File.createTempFile("cs3-benchmark-", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), data);
+        return file;
+    }
+}
@@ -0,0 +1,689 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: LocalS3Server
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.benchmark;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process S3 compatible stand-in for the Ceph radosgw.
+ * <p>Keeps every bucket and object in heap and implements the subset of the S3 REST API used by
+ * {@link org.aaa.ceph.service.CS3Service}: bucket create/exists/delete, object put/get/head/delete
+ * (with ranges), ListObjects V1/V2, multipart uploads and multi-object delete. Request signatures are
+ * not verified. A fixed latency and an error ratio can be injected to emulate slow or failing gateways.
+ *
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public class LocalS3Server implements Closeable {
+
+    private static final Pattern DELETE_KEY = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+
+    private static final Pattern COMPLETE_PART = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+
+    private final Map<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+
+    private final Map<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * latency added to every request, in microseconds
+     */
+    private volatile long latencyMicros;
+
+    /**
+     * ratio of requests answered with 503 SlowDown
+     */
+    private volatile double errorRatio;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * ratio of requests delayed by {@link #tailLatencyMicros}
+     */
+    private volatile double tailRatio;
+
+    private volatile long tailLatencyMicros;
+
+    static {
+        // answer without waiting for the delayed ACK of the client, read once by the JDK http server
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    public LocalS3Server() throws IOException {
+        this(0);
+    }
+
+    public LocalS3Server(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "local-s3-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * @return endpoint to hand to {@link org.aaa.ceph.service.CS3Builder#endpoint(String)}
+     */
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Delay every request, e.g., to mimic the network round trip to a remote gateway.
+     */
+    public LocalS3Server latency(long amount, TimeUnit unit) {
+        this.latencyMicros = unit.toMicros(amount);
+        return this;
+    }
+
+    /**
+     * Delay a random share of the requests, e.g., to mimic a slow OSD.
+     */
+    public LocalS3Server tailLatency(double ratio, long amount, TimeUnit unit) {
+        this.tailLatencyMicros = unit.toMicros(amount);
+        this.tailRatio = ratio;
+        return this;
+    }
+
+    /**
+     * Answer a share of the requests with 503 SlowDown.
+     */
+    public LocalS3Server errorRatio(double errorRatio) {
+        this.errorRatio = errorRatio;
+        return this;
+    }
+
+    /**
+     * Create a bucket without going through HTTP, for benchmark fixtures.
+     */
+    public LocalS3Server createBucket(String bucketName) {
+        buckets.putIfAbsent(bucketName, new ConcurrentSkipListMap<>());
+        return this;
+    }
+
+    /**
+     * Store an object without going through HTTP, for benchmark fixtures. The bucket is created if needed.
+     */
+    public LocalS3Server putObject(String bucketName, String objectKey, byte[] data) {
+        createBucket(bucketName);
+        buckets.get(bucketName).put(objectKey, new StoredObject(data));
+        return this;
+    }
+
+    public int objectCount(String bucketName) {
+        NavigableMap<String, StoredObject> objects = buckets.get(bucketName);
+        return objects == null ? 0 : objects.size();
+    }
+
+    public long requestCount() {
+        return requestCount.get();
+    }
+
+    public int uploadCount() {
+        return uploads.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            if (latencyMicros > 0) {
+                TimeUnit.MICROSECONDS.sleep(latencyMicros);
+            }
+            if (tailRatio > 0 && ThreadLocalRandom.current().nextDouble() < tailRatio) {
+                TimeUnit.MICROSECONDS.sleep(tailLatencyMicros);
+            }
+            if (errorRatio > 0 && ThreadLocalRandom.current().nextDouble() < errorRatio) {
+                drain(exchange);
+                error(exchange, 503, "SlowDown", "Injected error");
+                return;
+            }
+            dispatch(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            error(exchange, 500, "InternalError", String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        int slash = path.indexOf('/');
+        String bucket = decode(slash < 0 ? path : path.substring(0, slash));
+        String key = slash < 0 || slash == path.length() - 1 ? null : decode(path.substring(slash + 1));
+
+        if (bucket.isEmpty()) {
+            listBuckets(exchange);
+        } else if (key == null) {
+            bucketRequest(exchange, method, bucket, query);
+        } else {
+            objectRequest(exchange, method, bucket, key, query);
+        }
+    }
+
+    private void listBuckets(HttpExchange exchange) throws IOException {
+        StringBuilder xml = new StringBuilder("<ListAllMyBucketsResult><Owner><ID>local</ID><DisplayName>local</DisplayName></Owner><Buckets>");
+        for (String name : new TreeSet<>(buckets.keySet())) {
+            xml.append("<Bucket><Name>").append(escape(name)).append("</Name><CreationDate>")
+                    .append(iso(new Date())).append("</CreationDate></Bucket>");
+        }
+        xml.append("</Buckets></ListAllMyBucketsResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    private void bucketRequest(HttpExchange exchange, String method, String bucket, Map<String, String> query) throws IOException {
+        NavigableMap<String, StoredObject> objects = buckets.get(bucket);
+        if ("PUT".equals(method)) {
+            drain(exchange);
+            buckets.putIfAbsent(bucket, new ConcurrentSkipListMap<>());
+            empty(exchange, 200);
+            return;
+        }
+        if (objects == null) {
+            drain(exchange);
+            error(exchange, 404, "NoSuchBucket", bucket);
+            return;
+        }
+        switch (method) {
+            case "HEAD":
+                empty(exchange, 200);
+                break;
+            case "DELETE":
+                if (!objects.isEmpty()) {
+                    error(exchange, 409, "BucketNotEmpty", bucket);
+                } else {
+                    buckets.remove(bucket);
+                    empty(exchange, 204);
+                }
+                break;
+            case "POST":
+                if (query.containsKey("delete")) {
+                    deleteObjects(exchange, objects);
+                } else {
+                    error(exchange, 400, "InvalidRequest", "unsupported");
+                }
+                break;
+            case "GET":
+                if (query.containsKey("acl")) {
+                    xml(exchange, 200, "<AccessControlPolicy><Owner><ID>local</ID><DisplayName>local</DisplayName></Owner>"
+                            + "<AccessControlList></AccessControlList></AccessControlPolicy>");
+                } else if (query.containsKey("uploads")) {
+                    listUploads(exchange, bucket, query);
+                } else {
+                    listObjects(exchange, bucket, objects, query);
+                }
+                break;
+            default:
+                error(exchange, 405, "MethodNotAllowed", method);
+        }
+    }
+
+    private void listObjects(HttpExchange exchange, String bucket, NavigableMap<String, StoredObject> objects,
+                             Map<String, String> query) throws IOException {
+        boolean v2 = "2".equals(query.get("list-type"));
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.get("delimiter");
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        String after = v2 ? query.getOrDefault("continuation-token", query.get("start-after")) : query.get("marker");
+
+        NavigableMap<String, StoredObject> view = after == null || after.isEmpty() ? objects : objects.tailMap(after, false);
+        StringBuilder contents = new StringBuilder();
+        TreeSet<String> prefixes = new TreeSet<>();
+        int count = 0;
+        String last = null;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : view.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                if (key.compareTo(prefix) > 0) {
+                    break;
+                }
+                continue;
+            }
+            if (count >= maxKeys) {
+                truncated = true;
+                break;
+            }
+            last = key;
+            count++;
+            if (delimiter != null && !delimiter.isEmpty()) {
+                int index = key.indexOf(delimiter, prefix.length());
+                if (index >= 0) {
+                    prefixes.add(key.substring(0, index + delimiter.length()));
+                    continue;
+                }
+            }
+            StoredObject object = entry.getValue();
+            contents.append("<Contents><Key>").append(escape(key)).append("</Key><LastModified>")
+                    .append(iso(object.lastModified)).append("</LastModified><ETag>&quot;").append(object.etag)
+                    .append("&quot;</ETag><Size>").append(object.data.length)
+                    .append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        StringBuilder xml = new StringBuilder("<ListBucketResult><Name>").append(escape(bucket)).append("</Name><Prefix>")
+                .append(escape(prefix)).append("</Prefix><MaxKeys>").append(maxKeys).append("</MaxKeys><IsTruncated>")
+                .append(truncated).append("</IsTruncated>");
+        if (v2) {
+            xml.append("<KeyCount>").append(count).append("</KeyCount>");
+            if (truncated) {
+                xml.append("<NextContinuationToken>").append(escape(last)).append("</NextContinuationToken>");
+            }
+        } else if (truncated) {
+            xml.append("<NextMarker>").append(escape(last)).append("</NextMarker>");
+        }
+        xml.append(contents);
+        for (String commonPrefix : prefixes) {
+            xml.append("<CommonPrefixes><Prefix>").append(escape(commonPrefix)).append("</Prefix></CommonPrefixes>");
+        }
+        xml.append("</ListBucketResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    private void listUploads(HttpExchange exchange, String bucket, Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        StringBuilder xml = new StringBuilder("<ListMultipartUploadsResult><Bucket>").append(escape(bucket))
+                .append("</Bucket><IsTruncated>false</IsTruncated>");
+        for (Map.Entry<String, MultipartUpload> entry : uploads.entrySet()) {
+            MultipartUpload upload = entry.getValue();
+            if (upload.bucket.equals(bucket) && upload.key.startsWith(prefix)) {
+                xml.append("<Upload><Key>").append(escape(upload.key)).append("</Key><UploadId>").append(entry.getKey())
+                        .append("</UploadId><Initiated>").append(iso(upload.initiated)).append("</Initiated></Upload>");
+            }
+        }
+        xml.append("</ListMultipartUploadsResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    private void deleteObjects(HttpExchange exchange, NavigableMap<String, StoredObject> objects) throws IOException {
+        String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+        boolean quiet = body.contains("<Quiet>true</Quiet>");
+        StringBuilder xml = new StringBuilder("<DeleteResult>");
+        Matcher matcher = DELETE_KEY.matcher(body);
+        while (matcher.find()) {
+            String key = unescape(matcher.group(1));
+            objects.remove(key);
+            if (!quiet) {
+                xml.append("<Deleted><Key>").append(escape(key)).append("</Key></Deleted>");
+            }
+        }
+        xml.append("</DeleteResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    private void objectRequest(HttpExchange exchange, String method, String bucket, String key,
+                               Map<String, String> query) throws IOException {
+        NavigableMap<String, StoredObject> objects = buckets.get(bucket);
+        if (objects == null) {
+            drain(exchange);
+            error(exchange, 404, "NoSuchBucket", bucket);
+            return;
+        }
+        String uploadId = query.get("uploadId");
+        switch (method) {
+            case "PUT":
+                if (uploadId != null) {
+                    uploadPart(exchange, uploadId, Integer.parseInt(query.get("partNumber")));
+                } else {
+                    StoredObject object = new StoredObject(readBody(exchange));
+                    objects.put(key, object);
+                    exchange.getResponseHeaders().set("ETag", "\"" + object.etag + "\"");
+                    empty(exchange, 200);
+                }
+                break;
+            case "POST":
+                if (query.containsKey("uploads")) {
+                    drain(exchange);
+                    String id = UUID.randomUUID().toString();
+                    uploads.put(id, new MultipartUpload(bucket, key));
+                    xml(exchange, 200, "<InitiateMultipartUploadResult><Bucket>" + escape(bucket) + "</Bucket><Key>"
+                            + escape(key) + "</Key><UploadId>" + id + "</UploadId></InitiateMultipartUploadResult>");
+                } else if (uploadId != null) {
+                    completeUpload(exchange, objects, uploadId);
+                } else {
+                    error(exchange, 400, "InvalidRequest", "unsupported");
+                }
+                break;
+            case "DELETE":
+                if (uploadId != null) {
+                    uploads.remove(uploadId);
+                } else {
+                    objects.remove(key);
+                }
+                empty(exchange, 204);
+                break;
+            case "GET":
+                if (uploadId != null) {
+                    listParts(exchange, uploadId);
+                } else {
+                    getObject(exchange, objects.get(key), true);
+                }
+                break;
+            case "HEAD":
+                getObject(exchange, objects.get(key), false);
+                break;
+            default:
+                error(exchange, 405, "MethodNotAllowed", method);
+        }
+    }
+
+    private void getObject(HttpExchange exchange, StoredObject object, boolean withBody) throws IOException {
+        if (object == null) {
+            error(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+            return;
+        }
+        Headers requestHeaders = exchange.getRequestHeaders();
+        String ifMatch = requestHeaders.getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.replace("\"", "").equals(object.etag)) {
+            error(exchange, 412, "PreconditionFailed", "At least one of the pre-conditions you specified did not hold");
+            return;
+        }
+        long start = 0;
+        long end = object.data.length - 1L;
+        int status = 200;
+        String range = requestHeaders.getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            start = Long.parseLong(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                end = Math.min(end, Long.parseLong(bounds[1]));
+            }
+            if (start >= object.data.length) {
+                error(exchange, 416, "InvalidRange", "The requested range is not satisfiable");
+                return;
+            }
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + object.data.length);
+        }
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", "\"" + object.etag + "\"");
+        headers.set("Last-Modified", rfc822(object.lastModified));
+        headers.set("Content-Type", "application/octet-stream");
+        headers.set("Accept-Ranges", "bytes");
+        int length = (int) (end - start + 1);
+        if (!withBody) {
+            headers.set("Content-Length", String.valueOf(object.data.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(object.data, (int) start, length);
+        }
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, int partNumber) throws IOException {
+        MultipartUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            drain(exchange);
+            error(exchange, 404, "NoSuchUpload", uploadId);
+            return;
+        }
+        StoredObject part = new StoredObject(readBody(exchange));
+        upload.parts.put(partNumber, part);
+        exchange.getResponseHeaders().set("ETag", "\"" + part.etag + "\"");
+        empty(exchange, 200);
+    }
+
+    private void listParts(HttpExchange exchange, String uploadId) throws IOException {
+        MultipartUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            error(exchange, 404, "NoSuchUpload", uploadId);
+            return;
+        }
+        StringBuilder xml = new StringBuilder("<ListPartsResult><Bucket>").append(escape(upload.bucket))
+                .append("</Bucket><Key>").append(escape(upload.key)).append("</Key><UploadId>").append(uploadId)
+                .append("</UploadId><IsTruncated>false</IsTruncated>");
+        for (Map.Entry<Integer, StoredObject> entry : upload.parts.entrySet()) {
+            xml.append("<Part><PartNumber>").append(entry.getKey()).append("</PartNumber><LastModified>")
+                    .append(iso(entry.getValue().lastModified)).append("</LastModified><ETag>&quot;")
+                    .append(entry.getValue().etag).append("&quot;</ETag><Size>").append(entry.getValue().data.length)
+                    .append("</Size></Part>");
+        }
+        xml.append("</ListPartsResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    private void completeUpload(HttpExchange exchange, NavigableMap<String, StoredObject> objects, String uploadId) throws IOException {
+        String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+        MultipartUpload upload = uploads.remove(uploadId);
+        if (upload == null) {
+            error(exchange, 404, "NoSuchUpload", uploadId);
+            return;
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        MessageDigest etags = md5();
+        int count = 0;
+        Matcher matcher = COMPLETE_PART.matcher(body);
+        while (matcher.find()) {
+            StoredObject part = upload.parts.get(Integer.parseInt(matcher.group(1)));
+            if (part == null) {
+                error(exchange, 400, "InvalidPart", matcher.group(1));
+                return;
+            }
+            data.write(part.data, 0, part.data.length);
+            etags.update(hexToBytes(part.etag));
+            count++;
+        }
+        StoredObject object = new StoredObject(data.toByteArray(), toHex(etags.digest()) + "-" + count);
+        objects.put(upload.key, object);
+        xml(exchange, 200, "<CompleteMultipartUploadResult><Bucket>" + escape(upload.bucket) + "</Bucket><Key>"
+                + escape(upload.key) + "</Key><ETag>&quot;" + object.etag + "&quot;</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        byte[] body = out.toByteArray();
+        String contentSha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (contentSha != null && contentSha.startsWith("STREAMING-")) {
+            return decodeAwsChunked(body);
+        }
+        return body;
+    }
+
+    /**
+     * strips the chunk signatures of a {@code aws-chunked} payload
+     */
+    private static byte[] decodeAwsChunked(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+        int pos = 0;
+        while (pos < body.length) {
+            int lineEnd = pos;
+            while (body[lineEnd] != '\r') {
+                lineEnd++;
+            }
+            String header = new String(body, pos, lineEnd - pos, StandardCharsets.US_ASCII);
+            int semicolon = header.indexOf(';');
+            int size = Integer.parseInt(semicolon < 0 ? header : header.substring(0, semicolon), 16);
+            pos = lineEnd + 2;
+            if (size == 0) {
+                break;
+            }
+            out.write(body, pos, size);
+            pos += size + 2;
+        }
+        return out.toByteArray();
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        readBody(exchange);
+    }
+
+    private static void empty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static void xml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String code, String message) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        xml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + escape(message) + "</Message><RequestId>local</RequestId></Error>");
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) {
+                query.put(decode(pair), "");
+            } else {
+                query.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+            }
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&amp;", "&");
+    }
+
+    private static String iso(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    private static String rfc822(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(date);
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static final class StoredObject {
+        private final byte[] data;
+        private final String etag;
+        private final Date lastModified = new Date();
+
+        private StoredObject(byte[] data) {
+            this(data, toHex(md5().digest(data)));
+        }
+
+        private StoredObject(byte[] data, String etag) {
+            this.data = data;
+            this.etag = etag;
+        }
+    }
+
+    private static final class MultipartUpload {
+        private final String bucket;
+        private final String key;
+        private final Date initiated = new Date();
+        private final NavigableMap<Integer, StoredObject> parts = new ConcurrentSkipListMap<>();
+
+        private MultipartUpload(String bucket, String key) {
+            this.bucket = bucket;
+            this.key = key;
+        }
+    }
+}
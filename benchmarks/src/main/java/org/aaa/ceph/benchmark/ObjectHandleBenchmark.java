@@ -0,0 +1,67 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: ObjectHandleBenchmark
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.benchmark;
+
+import org.aaa.ceph.client.ObjectHandle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * encoding and decoding of the object identifiers handed out by the client, paid on every client call.
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectHandleBenchmark {
+
+    @Param({"test.default", "tenant-0123456789.medical-imaging-archive"})
+    public String bucketKey;
+
+    private String objectKey;
+
+    private String handle;
+
+    @Setup
+    public void prepare() {
+        objectKey = UUID.randomUUID().toString();
+        handle = ObjectHandle.encode(bucketKey, objectKey);
+    }
+
+    @Benchmark
+    public String encode() {
+        return ObjectHandle.encode(bucketKey, objectKey);
+    }
+
+    @Benchmark
+    public List<String> decode() {
+        return ObjectHandle.decode(handle);
+    }
+
+    @Benchmark
+    public List<String> roundTrip() {
+        return ObjectHandle.decode(ObjectHandle.encode(bucketKey, objectKey));
+    }
+}
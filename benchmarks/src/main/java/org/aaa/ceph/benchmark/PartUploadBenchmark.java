@@ -0,0 +1,84 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: PartUploadBenchmark
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.benchmark;
+
+import com.amazonaws.services.s3.transfer.model.UploadResult;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.service.CS3Builder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * multipart upload of a file through the transfer manager ({@code partUpload}) and through the
+ * window of in-flight parts ({@code lowLevelPartUpload}).
+ * <p>
+ * The part size is fixed at {@link TransferManagerConf#MINIMUM_UPLOAD_PART_SIZE}, the suite varies the number
+ * of parts of the object and the number of parts and transfer threads working on it. Every invocation
+ * overwrites the same key, so the heap of the local server stays flat.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PartUploadBenchmark extends LocalS3Benchmark {
+
+    /**
+     * parts of {@link TransferManagerConf#MINIMUM_UPLOAD_PART_SIZE} per object
+     */
+    @Param({"3", "8"})
+    public int parts;
+
+    /**
+     * transfer threads, and parts in flight for one object
+     */
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    private File file;
+
+    @Override
+    protected CS3Builder configure(CS3Builder builder) {
+        return builder.transferPoolSize(threads).maxPartsInFlight(threads);
+    }
+
+    @Override
+    protected void prepare() throws Exception {
+        file = tempFile(payload((int) (parts * TransferManagerConf.MINIMUM_UPLOAD_PART_SIZE)));
+    }
+
+    @Override
+    protected void cleanup() {
+        file.delete();
+    }
+
+    @Benchmark
+    public UploadResult partUpload() {
+        return service.partUpload(BUCKET, "part-upload", file);
+    }
+
+    @Benchmark
+    public void lowLevelPartUpload() {
+        service.lowLevelPartUpload(BUCKET, "low-level-part-upload", file);
+    }
+}
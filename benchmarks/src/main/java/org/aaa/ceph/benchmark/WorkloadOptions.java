@@ -0,0 +1,283 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: WorkloadOptions
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.benchmark;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * command line of the {@link LoadDriver}
+ * <p>
+ * Every option is {@code --name value}. Sizes accept a k/m/g suffix, durations a ms/s/m/h suffix,
+ * distributions are comma separated {@code value:weight} pairs.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class WorkloadOptions {
+
+    static final String USAGE = String.join(System.lineSeparator(),
+            "usage: LoadDriver [options]",
+            "  --endpoint URL             gateway to load, default: an embedded LocalS3Server",
+            "  --access-key KEY           default: load",
+            "  --secret-key KEY           default: load",
+            "  --bucket NAME              default: load",
+            "  --duration 60s             measured run time",
+            "  --warmup 10s               run time before measuring",
+            "  --rate 100                 target operations per second, 0 runs closed loop as fast as possible",
+            "  --concurrency 16           worker threads",
+            "  --mix read:70,write:20,delete:10",
+            "                             share of each operation",
+            "  --sizes 4k:50,256k:40,8m:10",
+            "                             object size distribution of the writes",
+            "  --preload 100              objects written before the run, so reads have targets",
+            "  --report-interval 5s       period of the interval report",
+            "  --latency 0ms              embedded server only: latency added to every request",
+            "  --tail-latency 0:0ms       embedded server only: share of requests delayed, and by how much",
+            "  --error-ratio 0            embedded server only: share of requests failing with 503",
+            "  --cleanup true             remove the objects still tracked at the end");
+
+    String endpoint;
+
+    String accessKey = "load";
+
+    String secretKey = "load";
+
+    String bucket = "load";
+
+    long durationNanos = TimeUnit.SECONDS.toNanos(60);
+
+    long warmupNanos = TimeUnit.SECONDS.toNanos(10);
+
+    double rate = 100;
+
+    int concurrency = 16;
+
+    /**
+     * cumulative weights of read, write and delete
+     */
+    final int[] mix = {70, 90, 100};
+
+    long[] sizes = {4 * 1024L, 256 * 1024L, 8 * 1024 * 1024L};
+
+    /**
+     * cumulative weights of {@link #sizes}
+     */
+    int[] sizeWeights = {50, 90, 100};
+
+    int preload = 100;
+
+    long reportIntervalNanos = TimeUnit.SECONDS.toNanos(5);
+
+    long latencyMicros;
+
+    double tailRatio;
+
+    long tailLatencyMicros;
+
+    double errorRatio;
+
+    boolean cleanup = true;
+
+    static WorkloadOptions parse(String[] args) {
+        WorkloadOptions options = new WorkloadOptions();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if ("--help".equals(name) || "-h".equals(name)) {
+                return null;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value of " + name);
+            }
+            String value = args[++i];
+            switch (name) {
+                case "--endpoint":
+                    options.endpoint = value;
+                    break;
+                case "--access-key":
+                    options.accessKey = value;
+                    break;
+                case "--secret-key":
+                    options.secretKey = value;
+                    break;
+                case "--bucket":
+                    options.bucket = value;
+                    break;
+                case "--duration":
+                    options.durationNanos = parseNanos(value);
+                    break;
+                case "--warmup":
+                    options.warmupNanos = parseNanos(value);
+                    break;
+                case "--rate":
+                    options.rate = Double.parseDouble(value);
+                    break;
+                case "--concurrency":
+                    options.concurrency = Integer.parseInt(value);
+                    break;
+                case "--mix":
+                    options.parseMix(value);
+                    break;
+                case "--sizes":
+                    options.parseSizes(value);
+                    break;
+                case "--preload":
+                    options.preload = Integer.parseInt(value);
+                    break;
+                case "--report-interval":
+                    options.reportIntervalNanos = parseNanos(value);
+                    break;
+                case "--latency":
+                    options.latencyMicros = TimeUnit.NANOSECONDS.toMicros(parseNanos(value));
+                    break;
+                case "--tail-latency":
+                    int colon = value.indexOf(':');
+                    if (colon < 0) {
+                        throw new IllegalArgumentException("Expected ratio:latency, got " + value);
+                    }
+                    options.tailRatio = Double.parseDouble(value.substring(0, colon));
+                    options.tailLatencyMicros = TimeUnit.NANOSECONDS.toMicros(parseNanos(value.substring(colon + 1)));
+                    break;
+                case "--error-ratio":
+                    options.errorRatio = Double.parseDouble(value);
+                    break;
+                case "--cleanup":
+                    options.cleanup = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+        options.validate();
+        return options;
+    }
+
+    private void validate() {
+        if (durationNanos <= 0 || warmupNanos < 0 || reportIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Durations must be positive");
+        }
+        if (rate < 0 || concurrency < 1 || preload < 0) {
+            throw new IllegalArgumentException("Rate, concurrency and preload must not be negative");
+        }
+        boolean injecting = latencyMicros > 0 || tailRatio > 0 || errorRatio > 0;
+        if (endpoint != null && injecting) {
+            throw new IllegalArgumentException("Latency and errors can only be injected into the embedded server");
+        }
+    }
+
+    private void parseMix(String value) {
+        int read = 0;
+        int write = 0;
+        int delete = 0;
+        for (String pair : value.split(",")) {
+            String[] parts = pair.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            switch (parts[0].trim().toLowerCase(Locale.ROOT)) {
+                case "read":
+                    read = weight;
+                    break;
+                case "write":
+                    write = weight;
+                    break;
+                case "delete":
+                    delete = weight;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + parts[0]);
+            }
+        }
+        if (read < 0 || write < 0 || delete < 0 || read + write + delete == 0) {
+            throw new IllegalArgumentException("Invalid mix " + value);
+        }
+        mix[0] = read;
+        mix[1] = read + write;
+        mix[2] = read + write + delete;
+    }
+
+    private void parseSizes(String value) {
+        String[] pairs = value.split(",");
+        sizes = new long[pairs.length];
+        sizeWeights = new int[pairs.length];
+        int total = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            String[] parts = pairs[i].trim().split(":");
+            sizes[i] = parseBytes(parts[0].trim());
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (sizes[i] < 0 || sizes[i] > Integer.MAX_VALUE || weight < 0) {
+                throw new IllegalArgumentException("Invalid size " + pairs[i]);
+            }
+            total += weight;
+            sizeWeights[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Invalid sizes " + value);
+        }
+    }
+
+    /**
+     * @return the operation drawn from the mix: 0 read, 1 write, 2 delete
+     */
+    int nextOperation(Random random) {
+        int draw = random.nextInt(mix[2]);
+        return draw < mix[0] ? 0 : draw < mix[1] ? 1 : 2;
+    }
+
+    /**
+     * @return index in {@link #sizes} of the size drawn from the distribution
+     */
+    int nextSize(Random random) {
+        int draw = random.nextInt(sizeWeights[sizeWeights.length - 1]);
+        int index = 0;
+        while (draw >= sizeWeights[index]) {
+            index++;
+        }
+        return index;
+    }
+
+    static long parseBytes(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        long unit = 1;
+        switch (lower.charAt(lower.length() - 1)) {
+            case 'k':
+                unit = 1024;
+                break;
+            case 'm':
+                unit = 1024 * 1024;
+                break;
+            case 'g':
+                unit = 1024 * 1024 * 1024;
+                break;
+            default:
+                return Long.parseLong(lower);
+        }
+        return Long.parseLong(lower.substring(0, lower.length() - 1)) * unit;
+    }
+
+    static long parseNanos(String value) {
+        String lower = value.toLowerCase(Locale.ROOT);
+        if (lower.endsWith("ms")) {
+            return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(lower.substring(0, lower.length() - 2)));
+        }
+        char suffix = lower.charAt(lower.length() - 1);
+        if (Character.isDigit(suffix)) {
+            return TimeUnit.SECONDS.toNanos(Long.parseLong(lower));
+        }
+        long amount = Long.parseLong(lower.substring(0, lower.length() - 1));
+        switch (suffix) {
+            case 's':
+                return TimeUnit.SECONDS.toNanos(amount);
+            case 'm':
+                return TimeUnit.MINUTES.toNanos(amount);
+            case 'h':
+                return TimeUnit.HOURS.toNanos(amount);
+            default:
+                throw new IllegalArgumentException("Invalid duration " + value);
+        }
+    }
+}
@@ -1,313 +1,413 @@
 package org.aaa.ceph.client;
 
-import cn.hutool.core.codec.Base64;
-import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
-import com.google.common.base.Strings;
-import org.aaa.ceph.constant.TransferManagerConf;
 import org.aaa.ceph.exception.CephException;
-import org.aaa.ceph.service.CS3Builder;
-import org.aaa.ceph.service.CS3Service;
+import org.aaa.ceph.service.DirectoryManifest;
+import org.aaa.ceph.service.ListObjectsOptions;
+import org.aaa.ceph.service.PurgeProgress;
+import org.aaa.ceph.service.UploadDirectoryOptions;
 
 import java.io.File;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * effective java recommended singleton
  * Best to instantiate once
+ * <p>The init, build and getInstance methods return the immutable client of the requested tenant from
+ * the {@link CS3ClientRegistry}, call the other methods on that client. The other methods of INSTANCE are
+ * deprecated: they act on the one tenant INSTANCE has returned, and fail once init or build returned a
+ * second tenant, instead of acting on whichever tenant was selected last. init always uses the default
+ * credentials, build does not replace them.
  * @Author: wuxi
  * @Date: 2019/3/14
  */
 public enum CS3ClientAdmin implements CS3ClientInterface {
-    INSTANCE {
-        /**
-         * user's access_key
-         */
-        private String accessKey = "VCQY7SF1I6IICFYARYUT";
-        /**
-         * user's secret_key
-         */
-        private String secretKey = "Y9KWiLCP8RtwvmMsnhXUxtL13pXPw61WPjiFXC74";
-        /**
-         * the endpoint to be used for requests.
-         * <p>For example: ceph rgw's ip
-         */
-        private String endpoint = "http://172.16.57.50:8080";
-
-        /**
-         * user's default bucket name
-         */
-        private static final String DEFAULT_BUCKET = "default";
-
-        private static final String DEFAULT_SEPARATOR = ",";
-
-
-        /**
-         * default user id
-         */
-        private static final String DEFAULT_USER_ID = "test";
-
-        /**
-         * user namespace
-         */
-        private String userId;
-
-        /**
-         * bucket
-         */
-        private String bucket;
-
-
-        private org.aaa.ceph.service.CS3Service CS3Service;
-
-
-        /**
-         * bucketName
-         * @param bucketName
-         * @return bucket userId + "." + bucketName
-         */
-        public String getBucketName(String bucketName) {
-            return this.userId + "." + bucketName;
-        }
+    INSTANCE;
+
+    /**
+     * user's access_key, user's secret_key and ceph rgw's ip used by init
+     */
+    private final CS3ClientRegistry.ServiceKey defaultCredentials = new CS3ClientRegistry.ServiceKey(
+            "VCQY7SF1I6IICFYARYUT", "Y9KWiLCP8RtwvmMsnhXUxtL13pXPw61WPjiFXC74", "http://172.16.57.50:8080");
+
+    /**
+     * credentials used by init instead of the default ones, only set by {@link #setDefaultCredentials}
+     */
+    private volatile CS3ClientRegistry.ServiceKey credentials = defaultCredentials;
+
+    /**
+     * the one client returned so far, the target of the deprecated methods
+     */
+    private volatile CS3ClientInterface current;
+
+    /**
+     * set once a second client was returned, the deprecated methods fail from then on
+     */
+    private volatile boolean shared;
+
+    private static volatile CS3ClientRegistry registry = new CS3ClientRegistry();
+
+    /**
+     * Replace the registry the clients are taken from, e.g., to tune the services with
+     * {@link CS3ClientRegistry#CS3ClientRegistry(java.util.function.Consumer)}. The previous registry is not closed.
+     *
+     * @param registry registry of the clients returned from now on
+     */
+    public static void useRegistry(CS3ClientRegistry registry) {
+        CS3ClientAdmin.registry = Objects.requireNonNull(registry, "registry");
+    }
 
-        /**
-         * objectKey
-         * @param bucketName
-         * @param objectKey
-         * @return
-         */
-        public String getObjectKey(String bucketName, String objectKey) {
-            return Base64.encode(bucketName) + DEFAULT_SEPARATOR + objectKey;
-        }
+    /**
+     * Make init use other credentials than the default ones. build does not change the credentials init uses.
+     *
+     * @param accessKey user's access_key
+     * @param secretKey user's secret_key
+     * @param endpoint ceph rgw's address
+     * @deprecated init reads a global that any caller can replace, call build with the credentials instead
+     */
+    @Deprecated
+    public void setDefaultCredentials(String accessKey, String secretKey, String endpoint) {
+        this.credentials = new CS3ClientRegistry.ServiceKey(accessKey, secretKey, endpoint);
+    }
 
-        /**
-         * decoding of object identifier
-         * @param objectKey
-         * @return list of bucketKey and objectKey
-         */
-        public List<String> decodeObjectKey(String objectKey) {
-            int index = objectKey.indexOf(DEFAULT_SEPARATOR);
-            List<String> strs = new ArrayList<>();
-            strs.add(Base64.decodeStr(objectKey.substring(0,index)));
-            strs.add(objectKey.substring(index+1));
-            return strs;
+    private synchronized CS3ClientInterface select(CS3ClientInterface client) {
+        if (this.current == null) {
+            this.current = client;
+        } else if (this.current != client) {
+            this.shared = true;
         }
+        return client;
+    }
 
-        /**
-         * Builds a client with the configure properties.
-         *
-         * @return Client instance to make API calls with.
-         */
-        public void build() {
-            if (Arrays.asList(accessKey, secretKey, endpoint).stream().anyMatch(Strings::isNullOrEmpty)) {
-                throw new IllegalArgumentException("Missing required parameter to build the instance.");
-            }
-            this.CS3Service =  new CS3Builder()
-                    .accessKey(this.accessKey)
-                    .secretKey(this.secretKey)
-                    .endpoint(this.endpoint)
-                    .build();
+    private CS3ClientInterface current() {
+        if (shared) {
+            throw new CephException("INSTANCE has returned several tenants, call the method on the client returned by init or build");
         }
+        CS3ClientInterface client = this.current;
+        if (client == null) {
+            throw new CephException("client is not initialized, call init or build first");
+        }
+        return client;
+    }
 
-        /**
-         *
-         * @param userId
-         */
-        public void handler(String userId, String bucket) {
-            this.userId = userId;
-            // init s3 service
-            this.build();
-            this.bucket = bucket;
-            //  If it is the first time you create a user，need to create a default bucket
-            CS3Service.createBucket(getBucketName(bucket));
+    /**
+     * init client without userId
+     *
+     * @return the client of the default user and bucket
+     */
+    @Override
+    public CS3ClientInterface init() {
+        return select(registry.client(credentials, CS3ClientRegistry.DEFAULT_USER_ID, CS3ClientRegistry.DEFAULT_BUCKET));
+    }
 
-        }
+    /**
+     * init client with userId
+     * @param userId Need to bring uid for each request
+     * @return the client of the user
+     */
+    @Override
+    public CS3ClientInterface init(String userId) {
+        return select(registry.client(credentials, userId, CS3ClientRegistry.DEFAULT_BUCKET));
+    }
 
-        /**
-         * init client with userId
-         * @param userId Need to bring uid for each request
-         * @return this class
-         */
-        @Override
-        public CS3ClientInterface init(String userId) {
-            handler(userId, DEFAULT_BUCKET);
-            return this;
-        }
-        /**
-         * init client without userId
-         *
-         * @return this class
-         */
-        @Override
-        public CS3ClientInterface init() {
-            handler(DEFAULT_USER_ID, DEFAULT_BUCKET);
-            return this;
-        }
+    @Override
+    public CS3ClientInterface initWithBucket(String bucket) {
+        return select(registry.client(credentials, CS3ClientRegistry.DEFAULT_USER_ID, bucket));
+    }
 
-        @Override
-        public CS3ClientInterface build(String accessKey, String secretKey, String endpoint) {
-            this.accessKey = accessKey;
-            this.secretKey = secretKey;
-            this.endpoint = endpoint;
-            handler(DEFAULT_USER_ID, DEFAULT_BUCKET);
-            return this;
-        }
+    @Override
+    public CS3ClientInterface build(String accessKey, String secretKey, String endpoint) {
+        return build(accessKey, secretKey, endpoint, CS3ClientRegistry.DEFAULT_BUCKET, CS3ClientRegistry.DEFAULT_USER_ID);
+    }
 
-        @Override
-        public CS3ClientInterface build(String accessKey, String secretKey, String endpoint, String bucket) {
-            this.accessKey = accessKey;
-            this.secretKey = secretKey;
-            this.endpoint = endpoint;
-            handler(DEFAULT_USER_ID, bucket);
-            return this;
-        }
+    @Override
+    public CS3ClientInterface build(String accessKey, String secretKey, String endpoint, String bucket) {
+        return build(accessKey, secretKey, endpoint, bucket, CS3ClientRegistry.DEFAULT_USER_ID);
+    }
 
-        @Override
-        public CS3ClientInterface build(String accessKey, String secretKey, String endpoint, String bucket, String userId) {
-            this.accessKey = accessKey;
-            this.secretKey = secretKey;
-            this.endpoint = endpoint;
-            handler(userId, bucket);
-            return this;
-        }
+    @Override
+    public CS3ClientInterface build(String accessKey, String secretKey, String endpoint, String bucket, String userId) {
+        CS3ClientRegistry.ServiceKey key = new CS3ClientRegistry.ServiceKey(accessKey, secretKey, endpoint);
+        return select(registry.client(key, userId, bucket));
+    }
 
-        @Override
-        public CS3ClientInterface initWithBucket(String bucket) {
-            handler(DEFAULT_USER_ID, bucket);
-            return this;
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public String createObject(File file) {
+        return current().createObject(file);
+    }
 
-        @Override
-        public String createObject(File file) {
-            String bucketKey = getBucketName(bucket);
-            String objectKey = UUID.randomUUID().toString();
-            CS3Service.createObject(bucketKey, objectKey ,file);
-            return getObjectKey(bucketKey, objectKey);
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public String createObject(String bucketName, File file) {
+        return current().createObject(bucketName, file);
+    }
 
-        @Override
-        public String createObject(String bucketName,File file) {
-            String bucketKey = getBucketName(bucketName);
-            CS3Service.createBucket(bucketKey);
-            String objectKey = UUID.randomUUID().toString();
-            CS3Service.createObject(bucketKey, objectKey, file);
-            return getObjectKey(bucketKey, objectKey);
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public String createObject(InputStream input) {
+        return current().createObject(input);
+    }
 
-        @Override
-        public String createObject(InputStream input) {
-            String bucketKey = getBucketName(bucket);
-            String objectKey = UUID.randomUUID().toString();
-            CS3Service.createObject(bucketKey, objectKey, input);
-            return getObjectKey(bucketKey, objectKey);
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public String createObject(String bucketName, InputStream input) {
+        return current().createObject(bucketName, input);
+    }
 
-        @Override
-        public String createObject(String bucketName,InputStream input) {
-            String bucketKey = getBucketName(bucketName);
-            CS3Service.createBucket(bucketKey);
-            String objectKey = UUID.randomUUID().toString();
-            CS3Service.createObject(bucketKey, objectKey,input);
-            return getObjectKey(bucketKey, objectKey);
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public String upload(InputStream input, Long size) {
+        return current().upload(input, size);
+    }
 
-        @Override
-        public String upload(InputStream input, Long size) {
-            String bucketKey = getBucketName(bucket);
-            String objectKey = UUID.randomUUID().toString();
-            if (size > TransferManagerConf.MULTIPART_UPLOAD_THRESHOLD) {
-                CS3Service.highLevelPartUpload(bucketKey, objectKey, input);
-            } else {
-                CS3Service.createObject(bucketKey, objectKey, input);
-            }
-            return getObjectKey(bucketKey, objectKey);
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public String upload(File file, Long size) {
+        return current().upload(file, size);
+    }
 
-        @Override
-        public String upload(File file, Long size) {
-            String bucketKey = getBucketName(bucket);
-            String objectKey = UUID.randomUUID().toString();
-            if (size > TransferManagerConf.MULTIPART_UPLOAD_THRESHOLD) {
-                CS3Service.highLevelPartUpload(bucketKey, objectKey, file);
-            } else {
-                CS3Service.createObject(bucketKey, objectKey, file);
-            }
-            return getObjectKey(bucketKey, objectKey);
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public String partUpload(String bucketName, InputStream input) {
+        return current().partUpload(bucketName, input);
+    }
 
-        @Override
-        public String partUpload(String bucketName, InputStream input) {
-            String bucketKey = getBucketName(bucketName);
-            CS3Service.createBucket(bucketKey);
-            String objectKey = UUID.randomUUID().toString();
-            CS3Service.partUpload(bucketKey, objectKey,input);
-            return getObjectKey(bucketKey, objectKey);
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public String partUpload(String bucketName, File file) {
+        return current().partUpload(bucketName, file);
+    }
 
-        @Override
-        public String partUpload(String bucketName, File file) {
-            String bucketKey = getBucketName(bucketName);
-            CS3Service.createBucket(bucketKey);
-            String objectKey = UUID.randomUUID().toString();
-            CS3Service.lowLevelPartUpload(bucketKey, objectKey, file);
-            return getObjectKey(bucketKey, objectKey);
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public String resumablePartUpload(String bucketName, File file) {
+        return current().resumablePartUpload(bucketName, file);
+    }
 
-        @Override
-        public void getObject(String objectKey,File file) {
-            List<String> strs = decodeObjectKey(objectKey);
-            if(strs.isEmpty()) {
-                throw new CephException("objectKey has error!");
-            }
-            CS3Service.getObject(strs.get(0), strs.get(1), file);
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public void getObject(String objectKey, File file) {
+        current().getObject(objectKey, file);
+    }
 
-        @Override
-        public void getObject(String bucketName,String objectKey,File file) {
-            CS3Service.getObject(getBucketName(bucketName), objectKey,file);
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public void getObject(String bucketName, String objectKey, File file) {
+        current().getObject(bucketName, objectKey, file);
+    }
 
-        @Override
-        public InputStream getObject(String objectKey) {
-            List<String> strs = decodeObjectKey(objectKey);
-            if(strs.isEmpty()) {
-                throw new CephException("obejctKey has error!");
-            }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public InputStream getObject(String objectKey) {
+        return current().getObject(objectKey);
+    }
 
-            S3Object object = CS3Service.getObject(strs.get(0), strs.get(1));
-            return object.getObjectContent();
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public InputStream getObject(String objectKey, long offset, long length) {
+        return current().getObject(objectKey, offset, length);
+    }
 
-        @Override
-        public InputStream getObject(String bucketName,String objectKey) {
-            return CS3Service.getObject(getBucketName(bucketName), objectKey).getObjectContent();
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public SeekableByteChannel getObjectChannel(String objectKey) {
+        return current().getObjectChannel(objectKey);
+    }
 
-        @Override
-        public void removeObject(String objectKey) {
-            List<String> strs = decodeObjectKey(objectKey);
-            if(strs.isEmpty()) {
-                throw new CephException("obejctKey has error!");
-            }
-            CS3Service.removeObject(strs.get(0), strs.get(1));
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public InputStream getObject(String bucketName, String objectKey) {
+        return current().getObject(bucketName, objectKey);
+    }
 
-        @Override
-        public List<S3ObjectSummary> listObject(String bucektName) {
-            return CS3Service.listObjects(bucektName).getObjectSummaries();
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public PurgeProgress removeBucket(String bucketName) {
+        return current().removeBucket(bucketName);
+    }
 
-        @Override
-        public List<S3ObjectSummary> listObject() {
-            return CS3Service.listObjects(getBucketName(DEFAULT_BUCKET)).getObjectSummaries();
-        }
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public void removeObject(String objectKey) {
+        current().removeObject(objectKey);
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public Map<String, String> removeObjects(Collection<String> objectKeys) {
+        return current().removeObjects(objectKeys);
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public DirectoryManifest uploadDirectory(String bucketName, Path root, UploadDirectoryOptions options) {
+        return current().uploadDirectory(bucketName, root, options);
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public Map<String, String> compactPacks(String bucketName, double minDeadRatio) {
+        return current().compactPacks(bucketName, minDeadRatio);
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public CompletableFuture<String> createObjectAsync(File file) {
+        return current().createObjectAsync(file);
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public CompletableFuture<String> createObjectAsync(InputStream input) {
+        return current().createObjectAsync(input);
+    }
 
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public CompletableFuture<String> partUploadAsync(String bucketName, File file) {
+        return current().partUploadAsync(bucketName, file);
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public CompletableFuture<InputStream> getObjectAsync(String objectKey) {
+        return current().getObjectAsync(objectKey);
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public CompletableFuture<Void> getObjectAsync(String objectKey, File file) {
+        return current().getObjectAsync(objectKey, file);
+    }
 
-    };
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public CompletableFuture<Void> removeObjectAsync(String objectKey) {
+        return current().removeObjectAsync(objectKey);
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public List<S3ObjectSummary> listObject(String bucektName) {
+        return current().listObject(bucektName);
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public List<S3ObjectSummary> listObject() {
+        return current().listObject();
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public Stream<S3ObjectSummary> streamObject(String bucketName, ListObjectsOptions options) {
+        return current().streamObject(bucketName, options);
+    }
+
+    /**
+     * @deprecated call it on the client returned by init or build
+     */
+    @Deprecated
+    @Override
+    public Stream<S3ObjectSummary> streamObject() {
+        return current().streamObject();
+    }
 
     public static CS3ClientInterface getInstance() {
 
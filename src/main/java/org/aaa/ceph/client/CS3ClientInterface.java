@@ -1,9 +1,20 @@
 package org.aaa.ceph.client;
 
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import org.aaa.ceph.service.DirectoryManifest;
+import org.aaa.ceph.service.ListObjectsOptions;
+import org.aaa.ceph.service.PurgeProgress;
+import org.aaa.ceph.service.UploadDirectoryOptions;
+
 import java.io.File;
 import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * non-singleton
@@ -136,8 +147,36 @@ public interface CS3ClientInterface {
      */
     String partUpload(String bucketName, File file);
 
+    /**
+     *  resumable part upload object in the specified bucket.
+     *  <p>If a previous upload of the same file was interrupted, only the missing parts are uploaded.
+     *  The objectKey is derived from the file path, size and modification time, so retrying the
+     *  same unchanged file resumes the same object.
+     *
+     * @param bucketName The specified bucket.
+     * @param file local file e.g., new File("filepath")
+     * @return objectKey e.g., UUID
+     */
+    String resumablePartUpload(String bucketName, File file);
+
+    /**
+     * upload every file of a directory tree to the specified bucket.
+     * <p>Small files are uploaded concurrently and large files in parts, sharing the connections and threads
+     * of the client, see {@link org.aaa.ceph.service.CS3Service#uploadDirectory}. Each file is stored under
+     * the prefix of the options followed by its path relative to the root, uploading the same tree again
+     * overwrites its objects.
+     *
+     * @param bucketName The specified bucket.
+     * @param root directory to upload.
+     * @param options key prefix, concurrency and multipart threshold.
+     * @return relative path -> object unique identifier of the uploaded files and the failures.
+     */
+    DirectoryManifest uploadDirectory(String bucketName, Path root, UploadDirectoryOptions options);
+
     /**
      *  get object to local file in the default bucket.
+     *  <p>Large objects are downloaded as parallel byte ranges. Served from the local disk cache when the
+     *  service has one, see {@link org.aaa.ceph.service.CS3Builder#diskCache}.
      *
      * @param file local file e.g., new File("filepath").
      */
@@ -156,11 +195,35 @@ public interface CS3ClientInterface {
      * get object in the default bucket.
      *
      * the default bucket is "default",
+     * served from the memory and local disk caches when the service has them, see
+     * {@link org.aaa.ceph.service.CS3Builder#memoryCache} and {@link org.aaa.ceph.service.CS3Builder#diskCache}.
      * @param objectKey Object unique identifier.
      * @return InputStream to read data.
      */
     InputStream getObject(String objectKey);
 
+    /**
+     * get a byte range of an object in the default bucket.
+     *
+     * @param objectKey Object unique identifier.
+     * @param offset position of the first byte.
+     * @param length number of bytes, positive, a range past the end of the object stops at the end.
+     * @return InputStream to read the range.
+     */
+    InputStream getObject(String objectKey, long offset, long length);
+
+    /**
+     * open a read-only seekable channel over an object in the default bucket.
+     * <p>Only the blocks that are read are fetched, with read-ahead for sequential reads and a small block
+     * cache for random reads, see {@link org.aaa.ceph.service.CS3Service#getObjectChannel}.
+     *
+     * Objects stored inside a pack have no channel, read them with {@link #getObject(String, long, long)}.
+     *
+     * @param objectKey Object unique identifier.
+     * @return channel to read data, close it after use.
+     */
+    SeekableByteChannel getObjectChannel(String objectKey);
+
     /**
      * get object in the specified bucket.
      *
@@ -170,12 +233,90 @@ public interface CS3ClientInterface {
      */
     InputStream getObject(String bucketName, String objectKey);
 
+    /**
+     * delete every object of the bucket and remove the bucket.
+     *
+     * @param bucketName The specified bucket.
+     * @return counters of the purge.
+     */
+    PurgeProgress removeBucket(String bucketName);
+
     /**
      * remove obejct
      * @param objectKey
      */
     void removeObject(String objectKey);
 
+    /**
+     * remove many objects, the identifiers may belong to different buckets.
+     *
+     * @param objectKeys Object unique identifiers.
+     * @return identifier -> error message of the objects that could not be removed, empty if all were removed.
+     */
+    Map<String, String> removeObjects(Collection<String> objectKeys);
+
+    /**
+     * rewrite the packs of the specified bucket that are mostly made of removed objects.
+     * <p>Only used when small objects are packed, see
+     * {@link org.aaa.ceph.service.CS3Builder#packing}. The identifiers of the objects moved to new packs
+     * stop working, replace them with the returned ones.
+     *
+     * @param bucketName The specified bucket.
+     * @param minDeadRatio share of removed bytes in (0, 1] that makes a pack worth compacting.
+     * @return old identifier -> new identifier of every moved object.
+     */
+    Map<String, String> compactPacks(String bucketName, double minDeadRatio);
+
+    /**
+     *  upload object in the client's bucket asynchronously.
+     *
+     * @param file local file e.g., new File("filepath")
+     * @return future of the objectKey.
+     */
+    CompletableFuture<String> createObjectAsync(File file);
+
+    /**
+     *  upload object in the client's bucket asynchronously.
+     *
+     * @param input Input stream.
+     * @return future of the objectKey.
+     */
+    CompletableFuture<String> createObjectAsync(InputStream input);
+
+    /**
+     *  part upload object in the specified bucket asynchronously.
+     *
+     * @param bucketName The specified bucket.
+     * @param file local file e.g., new File("filepath")
+     * @return future of the objectKey.
+     */
+    CompletableFuture<String> partUploadAsync(String bucketName, File file);
+
+    /**
+     *  get object asynchronously.
+     *
+     * @param objectKey Object unique identifier.
+     * @return future of the InputStream to read data.
+     */
+    CompletableFuture<InputStream> getObjectAsync(String objectKey);
+
+    /**
+     *  get object to local file asynchronously.
+     *
+     * @param objectKey Object unique identifier.
+     * @param file local file e.g., new File("filepath").
+     * @return future completed when the file is written.
+     */
+    CompletableFuture<Void> getObjectAsync(String objectKey, File file);
+
+    /**
+     * remove obejct asynchronously.
+     *
+     * @param objectKey Object unique identifier.
+     * @return future completed when the object is removed.
+     */
+    CompletableFuture<Void> removeObjectAsync(String objectKey);
+
     /**
      * list object by The specified bucket
      * default bucketName is "default"
@@ -190,5 +331,21 @@ public interface CS3ClientInterface {
      */
     List<S3ObjectSummary> listObject();
 
+    /**
+     * lazily list every object of the specified bucket, page by page
+     *
+     * @param bucketName The specified bucket.
+     * @param options prefix, delimiter, start key and page size.
+     * @return stream of objects, close it to stop the background page prefetch.
+     */
+    Stream<S3ObjectSummary> streamObject(String bucketName, ListObjectsOptions options);
+
+    /**
+     * lazily list every object of the client's bucket, page by page
+     *
+     * @return stream of objects, close it to stop the background page prefetch.
+     */
+    Stream<S3ObjectSummary> streamObject();
+
 
 }
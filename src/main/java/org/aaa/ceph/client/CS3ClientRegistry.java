@@ -0,0 +1,190 @@
+package org.aaa.ceph.client;
+
+import com.google.common.base.Strings;
+import org.aaa.ceph.service.CS3Builder;
+import org.aaa.ceph.service.CS3Service;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * thread-safe registry of tenant clients
+ * <p>One {@link CS3Service}, with its connection pool and transfer engine, is built per
+ * (accessKey, secretKey, endpoint) and shared by every tenant on it. The tenant clients are immutable and
+ * cached per (userId, bucket): the first lookup creates the tenant bucket, later lookups are a map lookup
+ * without any request.
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class CS3ClientRegistry implements Closeable {
+
+    /**
+     * user's default bucket name
+     */
+    public static final String DEFAULT_BUCKET = "default";
+
+    /**
+     * default user id
+     */
+    public static final String DEFAULT_USER_ID = "test";
+
+    private final Consumer<CS3Builder> customizer;
+
+    private final ConcurrentMap<ServiceKey, CS3Service> services = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<TenantKey, TenantClient> clients = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    public CS3ClientRegistry() {
+        this(builder -> { });
+    }
+
+    /**
+     * @param customizer tunes the builder of every service after the credentials and endpoint are set,
+     *                   e.g., {@code builder -> builder.highThroughput().metricsListener(metrics)}
+     */
+    public CS3ClientRegistry(Consumer<CS3Builder> customizer) {
+        this.customizer = Objects.requireNonNull(customizer, "customizer");
+    }
+
+    /**
+     * client of the default user and bucket
+     *
+     * @param accessKey user's access_key
+     * @param secretKey user's secret_key
+     * @param endpoint ceph rgw's ip
+     * @return the shared client
+     */
+    public CS3ClientInterface client(String accessKey, String secretKey, String endpoint) {
+        return client(accessKey, secretKey, endpoint, DEFAULT_USER_ID, DEFAULT_BUCKET);
+    }
+
+    /**
+     * client of one tenant, the bucket userId + "." + bucket is created on the first lookup
+     *
+     * @param accessKey user's access_key
+     * @param secretKey user's secret_key
+     * @param endpoint ceph rgw's ip
+     * @param userId user namespace
+     * @param bucket bucket of the user
+     * @return the shared client
+     */
+    public CS3ClientInterface client(String accessKey, String secretKey, String endpoint, String userId, String bucket) {
+        return client(new ServiceKey(accessKey, secretKey, endpoint), userId, bucket);
+    }
+
+    TenantClient client(ServiceKey serviceKey, String userId, String bucket) {
+        if (Strings.isNullOrEmpty(userId) || Strings.isNullOrEmpty(bucket)) {
+            throw new IllegalArgumentException("Missing user id or bucket.");
+        }
+        TenantKey key = new TenantKey(serviceKey, userId, bucket);
+        TenantClient client = clients.get(key);
+        if (client == null) {
+            CS3Service service = service(serviceKey);
+            //  If it is the first time you create a user，need to create a default bucket
+            service.createBucket(userId + "." + bucket);
+            client = clients.computeIfAbsent(key, k -> new TenantClient(this, serviceKey, service, userId, bucket));
+        }
+        return client;
+    }
+
+    private CS3Service service(ServiceKey key) {
+        if (closed) {
+            throw new IllegalStateException("Registry is closed.");
+        }
+        return services.computeIfAbsent(key, k -> {
+            CS3Builder builder = new CS3Builder()
+                    .accessKey(k.accessKey)
+                    .secretKey(k.secretKey)
+                    .endpoint(k.endpoint);
+            customizer.accept(builder);
+            return builder.build();
+        });
+    }
+
+    /**
+     * Close every service of the registry, the clients handed out stop working.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        clients.clear();
+        services.values().forEach(CS3Service::close);
+        services.clear();
+    }
+
+    /**
+     * credentials and endpoint of one service
+     */
+    static final class ServiceKey {
+
+        private final String accessKey;
+
+        private final String secretKey;
+
+        private final String endpoint;
+
+        ServiceKey(String accessKey, String secretKey, String endpoint) {
+            if (Arrays.asList(accessKey, secretKey, endpoint).stream().anyMatch(Strings::isNullOrEmpty)) {
+                throw new IllegalArgumentException("Missing required parameter to build the instance.");
+            }
+            this.accessKey = accessKey;
+            this.secretKey = secretKey;
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ServiceKey)) {
+                return false;
+            }
+            ServiceKey that = (ServiceKey) o;
+            return accessKey.equals(that.accessKey) && secretKey.equals(that.secretKey) && endpoint.equals(that.endpoint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accessKey, secretKey, endpoint);
+        }
+    }
+
+    private static final class TenantKey {
+
+        private final ServiceKey serviceKey;
+
+        private final String userId;
+
+        private final String bucket;
+
+        private TenantKey(ServiceKey serviceKey, String userId, String bucket) {
+            this.serviceKey = serviceKey;
+            this.userId = userId;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TenantKey)) {
+                return false;
+            }
+            TenantKey that = (TenantKey) o;
+            return serviceKey.equals(that.serviceKey) && userId.equals(that.userId) && bucket.equals(that.bucket);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serviceKey, userId, bucket);
+        }
+    }
+}
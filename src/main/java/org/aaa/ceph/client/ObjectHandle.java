@@ -0,0 +1,80 @@
+package org.aaa.ceph.client;
+
+import cn.hutool.core.codec.Base64;
+import org.aaa.ceph.service.PackedObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * object identifier handed out by {@link CS3ClientInterface}
+ * <p>The identifier is {@code Base64(bucketKey) + "," + objectKey}, so one string locates the object
+ * in any bucket. An object stored inside a pack is identified by
+ * {@code "~" + Base64(bucketKey) + "," + packKey + "," + offset + "," + length}; the marker is not a Base64
+ * character, so no plain identifier is taken for a packed one, whatever its object key.
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class ObjectHandle {
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * first character of packed object identifiers
+     */
+    private static final String PACKED_MARKER = "~";
+
+    private ObjectHandle() {
+    }
+
+    /**
+     * encoding of object identifier
+     * @param bucketKey full bucket name, e.g., userId + "." + bucketName
+     * @param objectKey key of the object in the bucket
+     * @return object identifier
+     */
+    public static String encode(String bucketKey, String objectKey) {
+        return Base64.encode(bucketKey) + SEPARATOR + objectKey;
+    }
+
+    /**
+     * encoding of the identifier of an object stored inside a pack
+     * @param bucketKey full bucket name, e.g., userId + "." + bucketName
+     * @param object location of the object in its pack
+     * @return object identifier
+     */
+    public static String encodePacked(String bucketKey, PackedObject object) {
+        return PACKED_MARKER + Base64.encode(bucketKey) + SEPARATOR + object.getPackKey() + SEPARATOR
+                + object.getOffset() + SEPARATOR + object.getLength();
+    }
+
+    /**
+     * location of a packed object
+     * @param handle object identifier
+     * @return location of the object in its pack, or null if the object is not packed
+     */
+    public static PackedObject packed(String handle) {
+        if (!handle.startsWith(PACKED_MARKER)) {
+            return null;
+        }
+        String[] location = handle.split(SEPARATOR);
+        if (location.length != 4) {
+            throw new IllegalArgumentException("Malformed packed object identifier " + handle);
+        }
+        return new PackedObject(location[1], Long.parseLong(location[2]), Integer.parseInt(location[3]));
+    }
+
+    /**
+     * decoding of object identifier
+     * @param handle object identifier
+     * @return list of bucketKey and objectKey
+     */
+    public static List<String> decode(String handle) {
+        int start = handle.startsWith(PACKED_MARKER) ? PACKED_MARKER.length() : 0;
+        int index = handle.indexOf(SEPARATOR);
+        List<String> strs = new ArrayList<>(2);
+        strs.add(Base64.decodeStr(handle.substring(start, index)));
+        strs.add(handle.substring(index + 1));
+        return strs;
+    }
+}
@@ -0,0 +1,491 @@
+package org.aaa.ceph.client;
+
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.io.ByteStreams;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.exception.CephException;
+import org.aaa.ceph.service.CS3Service;
+import org.aaa.ceph.service.DirectoryManifest;
+import org.aaa.ceph.service.ListObjectsOptions;
+import org.aaa.ceph.service.PackCompaction;
+import org.aaa.ceph.service.PackedObject;
+import org.aaa.ceph.service.PurgeOptions;
+import org.aaa.ceph.service.PurgeProgress;
+import org.aaa.ceph.service.UploadDirectoryOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.aaa.ceph.client.CS3ClientRegistry.DEFAULT_BUCKET;
+import static org.aaa.ceph.client.CS3ClientRegistry.DEFAULT_USER_ID;
+
+/**
+ * immutable client of one tenant
+ * <p>Bound to one user namespace and bucket, and to the {@link CS3Service} it shares with every other
+ * tenant on the same credentials and endpoint. The init and build methods do not change this client,
+ * they return the client of the other tenant from the {@link CS3ClientRegistry}.
+ * <p>When the service packs small objects, createObject stores objects up to
+ * {@link CS3Service#packedObjectMaxSize()} bytes inside pack objects and hands out packed identifiers, see
+ * {@link ObjectHandle#encodePacked}.
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class TenantClient implements CS3ClientInterface {
+
+    private static final String DEFAULT_SEPARATOR = ",";
+
+    private final CS3ClientRegistry registry;
+
+    private final CS3ClientRegistry.ServiceKey serviceKey;
+
+    private final CS3Service service;
+
+    /**
+     * user namespace
+     */
+    private final String userId;
+
+    /**
+     * bucket
+     */
+    private final String bucket;
+
+    TenantClient(CS3ClientRegistry registry, CS3ClientRegistry.ServiceKey serviceKey, CS3Service service,
+                 String userId, String bucket) {
+        this.registry = registry;
+        this.serviceKey = serviceKey;
+        this.service = service;
+        this.userId = userId;
+        this.bucket = bucket;
+    }
+
+    /**
+     * bucketName
+     * @param bucketName
+     * @return bucket userId + "." + bucketName
+     */
+    private String getBucketName(String bucketName) {
+        return this.userId + "." + bucketName;
+    }
+
+    @Override
+    public CS3ClientInterface init() {
+        return registry.client(serviceKey, DEFAULT_USER_ID, DEFAULT_BUCKET);
+    }
+
+    @Override
+    public CS3ClientInterface init(String userId) {
+        return registry.client(serviceKey, userId, DEFAULT_BUCKET);
+    }
+
+    @Override
+    public CS3ClientInterface initWithBucket(String bucket) {
+        return registry.client(serviceKey, DEFAULT_USER_ID, bucket);
+    }
+
+    @Override
+    public CS3ClientInterface build(String accessKey, String secretKey, String endpoint) {
+        return registry.client(accessKey, secretKey, endpoint, DEFAULT_USER_ID, DEFAULT_BUCKET);
+    }
+
+    @Override
+    public CS3ClientInterface build(String accessKey, String secretKey, String endpoint, String bucket) {
+        return registry.client(accessKey, secretKey, endpoint, DEFAULT_USER_ID, bucket);
+    }
+
+    @Override
+    public CS3ClientInterface build(String accessKey, String secretKey, String endpoint, String bucket, String userId) {
+        return registry.client(accessKey, secretKey, endpoint, userId, bucket);
+    }
+
+    /**
+     * content of a file small enough to be packed
+     * @return the content, or null if the file is not packed
+     */
+    private byte[] packable(File file) {
+        int limit = service.packedObjectMaxSize();
+        if (limit == 0 || file.length() > limit) {
+            return null;
+        }
+        try {
+            byte[] content = Files.readAllBytes(file.toPath());
+            // the file grew since its length was taken
+            return content.length <= limit ? content : null;
+        } catch (IOException e) {
+            throw new CephException("Read " + file + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * head of a stream, complete if the stream is small enough to be packed
+     * @return the head, at most one byte larger than the pack limit
+     */
+    private byte[] head(InputStream input) {
+        try {
+            return ByteStreams.toByteArray(ByteStreams.limit(input, service.packedObjectMaxSize() + 1L));
+        } catch (IOException e) {
+            throw new CephException("Read object failed: " + e.getMessage(), e);
+        }
+    }
+
+    private String create(String bucketKey, File file) {
+        byte[] content = packable(file);
+        if (content != null) {
+            return ObjectHandle.encodePacked(bucketKey, service.packObject(bucketKey, content));
+        }
+        String objectKey = UUID.randomUUID().toString();
+        service.createObject(bucketKey, objectKey, file);
+        return ObjectHandle.encode(bucketKey, objectKey);
+    }
+
+    private String create(String bucketKey, InputStream input) {
+        if (service.packedObjectMaxSize() > 0) {
+            byte[] head = head(input);
+            if (head.length <= service.packedObjectMaxSize()) {
+                return ObjectHandle.encodePacked(bucketKey, service.packObject(bucketKey, head));
+            }
+            input = new SequenceInputStream(new ByteArrayInputStream(head), input);
+        }
+        String objectKey = UUID.randomUUID().toString();
+        service.createObject(bucketKey, objectKey, input);
+        return ObjectHandle.encode(bucketKey, objectKey);
+    }
+
+    @Override
+    public String createObject(File file) {
+        return create(getBucketName(bucket), file);
+    }
+
+    @Override
+    public String createObject(String bucketName,File file) {
+        String bucketKey = getBucketName(bucketName);
+        service.createBucket(bucketKey);
+        return create(bucketKey, file);
+    }
+
+    @Override
+    public String createObject(InputStream input) {
+        return create(getBucketName(bucket), input);
+    }
+
+    @Override
+    public String createObject(String bucketName,InputStream input) {
+        String bucketKey = getBucketName(bucketName);
+        service.createBucket(bucketKey);
+        return create(bucketKey, input);
+    }
+
+    @Override
+    public String upload(InputStream input, Long size) {
+        String bucketKey = getBucketName(bucket);
+        String objectKey = UUID.randomUUID().toString();
+        if (size > TransferManagerConf.MULTIPART_UPLOAD_THRESHOLD) {
+            service.highLevelPartUpload(bucketKey, objectKey, input);
+        } else {
+            service.createObject(bucketKey, objectKey, input);
+        }
+        return ObjectHandle.encode(bucketKey, objectKey);
+    }
+
+    @Override
+    public String upload(File file, Long size) {
+        String bucketKey = getBucketName(bucket);
+        String objectKey = UUID.randomUUID().toString();
+        if (size > TransferManagerConf.MULTIPART_UPLOAD_THRESHOLD) {
+            service.highLevelPartUpload(bucketKey, objectKey, file);
+        } else {
+            service.createObject(bucketKey, objectKey, file);
+        }
+        return ObjectHandle.encode(bucketKey, objectKey);
+    }
+
+    @Override
+    public String partUpload(String bucketName, InputStream input) {
+        String bucketKey = getBucketName(bucketName);
+        service.createBucket(bucketKey);
+        String objectKey = UUID.randomUUID().toString();
+        service.partUpload(bucketKey, objectKey,input);
+        return ObjectHandle.encode(bucketKey, objectKey);
+    }
+
+    @Override
+    public String partUpload(String bucketName, File file) {
+        String bucketKey = getBucketName(bucketName);
+        service.createBucket(bucketKey);
+        String objectKey = UUID.randomUUID().toString();
+        service.lowLevelPartUpload(bucketKey, objectKey, file);
+        return ObjectHandle.encode(bucketKey, objectKey);
+    }
+
+    @Override
+    public String resumablePartUpload(String bucketName, File file) {
+        String bucketKey = getBucketName(bucketName);
+        service.createBucket(bucketKey);
+        String source = file.getAbsolutePath() + DEFAULT_SEPARATOR + file.length() + DEFAULT_SEPARATOR + file.lastModified();
+        String objectKey = UUID.nameUUIDFromBytes(source.getBytes(StandardCharsets.UTF_8)).toString();
+        service.resumablePartUpload(bucketKey, objectKey, file);
+        return ObjectHandle.encode(bucketKey, objectKey);
+    }
+
+    @Override
+    public DirectoryManifest uploadDirectory(String bucketName, Path root, UploadDirectoryOptions options) {
+        String bucketKey = getBucketName(bucketName);
+        service.createBucket(bucketKey);
+        return service.uploadDirectory(bucketKey, root, options)
+                .mapObjects(objectKey -> ObjectHandle.encode(bucketKey, objectKey));
+    }
+
+    @Override
+    public void getObject(String objectKey,File file) {
+        List<String> strs = ObjectHandle.decode(objectKey);
+        if(strs.isEmpty()) {
+            throw new CephException("objectKey has error!");
+        }
+        PackedObject packed = ObjectHandle.packed(objectKey);
+        if (packed != null) {
+            copy(service.getPackedObject(strs.get(0), packed, 0, Long.MAX_VALUE), file);
+            return;
+        }
+        service.getImmutableObject(strs.get(0), strs.get(1), file);
+    }
+
+    @Override
+    public void getObject(String bucketName,String objectKey,File file) {
+        service.getObject(getBucketName(bucketName), objectKey,file);
+    }
+
+    @Override
+    public InputStream getObject(String objectKey) {
+        List<String> strs = ObjectHandle.decode(objectKey);
+        if(strs.isEmpty()) {
+            throw new CephException("obejctKey has error!");
+        }
+        PackedObject packed = ObjectHandle.packed(objectKey);
+        if (packed != null) {
+            return service.getPackedObject(strs.get(0), packed, 0, Long.MAX_VALUE);
+        }
+        return service.getImmutableObject(strs.get(0), strs.get(1));
+    }
+
+    @Override
+    public InputStream getObject(String objectKey, long offset, long length) {
+        List<String> strs = ObjectHandle.decode(objectKey);
+        if(strs.isEmpty()) {
+            throw new CephException("objectKey has error!");
+        }
+        PackedObject packed = ObjectHandle.packed(objectKey);
+        if (packed != null) {
+            return service.getPackedObject(strs.get(0), packed, offset, length);
+        }
+        return service.getObject(strs.get(0), strs.get(1), offset, length).getObjectContent();
+    }
+
+    @Override
+    public SeekableByteChannel getObjectChannel(String objectKey) {
+        List<String> strs = ObjectHandle.decode(objectKey);
+        if(strs.isEmpty()) {
+            throw new CephException("objectKey has error!");
+        }
+        if (ObjectHandle.packed(objectKey) != null) {
+            throw new CephException("Packed objects have no channel, read them with getObject");
+        }
+        return service.getObjectChannel(strs.get(0), strs.get(1));
+    }
+
+    private static void copy(InputStream input, File file) {
+        try (InputStream in = input; OutputStream out = new FileOutputStream(file)) {
+            ByteStreams.copy(in, out);
+        } catch (IOException e) {
+            throw new CephException("Write " + file + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream getObject(String bucketName,String objectKey) {
+        return service.getObject(getBucketName(bucketName), objectKey).getObjectContent();
+    }
+
+    @Override
+    public PurgeProgress removeBucket(String bucketName) {
+        return service.purge(getBucketName(bucketName), new PurgeOptions().removeBucket(true));
+    }
+
+    @Override
+    public void removeObject(String objectKey) {
+        List<String> strs = ObjectHandle.decode(objectKey);
+        if(strs.isEmpty()) {
+            throw new CephException("obejctKey has error!");
+        }
+        PackedObject packed = ObjectHandle.packed(objectKey);
+        if (packed != null) {
+            service.removePackedObject(strs.get(0), packed);
+            return;
+        }
+        service.removeObject(strs.get(0), strs.get(1));
+    }
+
+    @Override
+    public Map<String, String> removeObjects(Collection<String> objectKeys) {
+        // bucketKey -> (objectKey -> identifier)
+        Map<String, Map<String, String>> buckets = new HashMap<>();
+        // the tombstones of packed objects are written in parallel, while the other objects are deleted
+        Map<String, CompletableFuture<Void>> packedRemovals = new LinkedHashMap<>();
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (String objectKey : objectKeys) {
+            List<String> strs = ObjectHandle.decode(objectKey);
+            if(strs.isEmpty()) {
+                throw new CephException("obejctKey has error!");
+            }
+            PackedObject packed = ObjectHandle.packed(objectKey);
+            if (packed != null) {
+                packedRemovals.put(objectKey, service.removePackedObjectAsync(strs.get(0), packed));
+                continue;
+            }
+            buckets.computeIfAbsent(strs.get(0), k -> new LinkedHashMap<>()).put(strs.get(1), objectKey);
+        }
+        for (Map.Entry<String, Map<String, String>> entry : buckets.entrySet()) {
+            Map<String, String> keys = entry.getValue();
+            for (MultiObjectDeleteException.DeleteError error : service.removeObjects(entry.getKey(), keys.keySet())) {
+                failures.put(keys.get(error.getKey()), error.getCode() + ": " + error.getMessage());
+            }
+        }
+        for (Map.Entry<String, CompletableFuture<Void>> entry : packedRemovals.entrySet()) {
+            try {
+                entry.getValue().join();
+            } catch (CompletionException e) {
+                if (!(e.getCause() instanceof CephException)) {
+                    throw e;
+                }
+                failures.put(entry.getKey(), e.getCause().getMessage());
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public CompletableFuture<String> createObjectAsync(File file) {
+        String bucketKey = getBucketName(bucket);
+        byte[] content = packable(file);
+        if (content != null) {
+            return service.packObjectAsync(bucketKey, content)
+                    .thenApply(packed -> ObjectHandle.encodePacked(bucketKey, packed));
+        }
+        String objectKey = UUID.randomUUID().toString();
+        return service.createObjectAsync(bucketKey, objectKey, file)
+                .thenApply(summary -> ObjectHandle.encode(bucketKey, objectKey));
+    }
+
+    @Override
+    public CompletableFuture<String> createObjectAsync(InputStream input) {
+        String bucketKey = getBucketName(bucket);
+        if (service.packedObjectMaxSize() > 0) {
+            byte[] head = head(input);
+            if (head.length <= service.packedObjectMaxSize()) {
+                return service.packObjectAsync(bucketKey, head)
+                        .thenApply(packed -> ObjectHandle.encodePacked(bucketKey, packed));
+            }
+            input = new SequenceInputStream(new ByteArrayInputStream(head), input);
+        }
+        String objectKey = UUID.randomUUID().toString();
+        return service.createObjectAsync(bucketKey, objectKey, input)
+                .thenApply(summary -> ObjectHandle.encode(bucketKey, objectKey));
+    }
+
+    @Override
+    public CompletableFuture<String> partUploadAsync(String bucketName, File file) {
+        String bucketKey = getBucketName(bucketName);
+        service.createBucket(bucketKey);
+        String objectKey = UUID.randomUUID().toString();
+        return service.partUploadAsync(bucketKey, objectKey, file)
+                .thenApply(result -> ObjectHandle.encode(bucketKey, objectKey));
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getObjectAsync(String objectKey) {
+        List<String> strs = ObjectHandle.decode(objectKey);
+        if(strs.isEmpty()) {
+            throw new CephException("obejctKey has error!");
+        }
+        PackedObject packed = ObjectHandle.packed(objectKey);
+        if (packed != null) {
+            return service.getPackedObjectAsync(strs.get(0), packed);
+        }
+        return service.getObjectAsync(strs.get(0), strs.get(1)).thenApply(S3Object::getObjectContent);
+    }
+
+    @Override
+    public CompletableFuture<Void> getObjectAsync(String objectKey, File file) {
+        List<String> strs = ObjectHandle.decode(objectKey);
+        if(strs.isEmpty()) {
+            throw new CephException("objectKey has error!");
+        }
+        PackedObject packed = ObjectHandle.packed(objectKey);
+        if (packed != null) {
+            return service.getPackedObjectAsync(strs.get(0), packed).thenAccept(in -> copy(in, file));
+        }
+        return service.getObjectAsync(strs.get(0), strs.get(1), file);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeObjectAsync(String objectKey) {
+        List<String> strs = ObjectHandle.decode(objectKey);
+        if(strs.isEmpty()) {
+            throw new CephException("obejctKey has error!");
+        }
+        PackedObject packed = ObjectHandle.packed(objectKey);
+        if (packed != null) {
+            return service.removePackedObjectAsync(strs.get(0), packed);
+        }
+        return service.removeObjectAsync(strs.get(0), strs.get(1));
+    }
+
+    @Override
+    public Map<String, String> compactPacks(String bucketName, double minDeadRatio) {
+        String bucketKey = getBucketName(bucketName);
+        PackCompaction compaction = service.compactPacks(bucketKey, minDeadRatio);
+        Map<String, String> relocated = new LinkedHashMap<>();
+        compaction.getRelocated().forEach((from, to) ->
+                relocated.put(ObjectHandle.encodePacked(bucketKey, from), ObjectHandle.encodePacked(bucketKey, to)));
+        return relocated;
+    }
+
+    @Override
+    public List<S3ObjectSummary> listObject(String bucektName) {
+        return service.listObjects(bucektName).getObjectSummaries();
+    }
+
+    @Override
+    public List<S3ObjectSummary> listObject() {
+        return service.listObjects(getBucketName(DEFAULT_BUCKET)).getObjectSummaries();
+    }
+
+    @Override
+    public Stream<S3ObjectSummary> streamObject(String bucketName, ListObjectsOptions options) {
+        return service.streamObjects(getBucketName(bucketName), options);
+    }
+
+    @Override
+    public Stream<S3ObjectSummary> streamObject() {
+        return service.streamObjects(getBucketName(bucket), new ListObjectsOptions());
+    }
+}
@@ -21,5 +21,220 @@ public interface TransferManagerConf {
      */
     int FIXED_THREAD_POOL = 5;
 
+    /**
+     * 单个对象同时上传的分片数量
+     */
+    int MAX_PARTS_IN_FLIGHT = 5;
+
+    /**
+     * 流式分片上传缓冲池的堆外内存上限
+     */
+    long PART_BUFFER_POOL_BYTES = 256 * 1024 * 1024L;
+
+    /**
+     * 流式上传先读入堆内的大小，更短的流不占用缓冲池
+     */
+    int STREAM_HEAD_SIZE = 64 * 1024;
+
+    /**
+     * 流式分片上传每多少个分片将分片大小翻倍
+     */
+    int STREAM_PART_GROWTH_INTERVAL = 1000;
+
+    /**
+     * 单个分片上传失败后的重试次数
+     */
+    int PART_UPLOAD_MAX_RETRIES = 3;
+
+    /**
+     * 重试的初始等待时间（毫秒），每次重试翻倍
+     */
+    long RETRY_BASE_DELAY_MILLIS = 200L;
+
+    /**
+     * 单个对象最多的分片数量
+     */
+    int MAXIMUM_UPLOAD_PARTS = 10000;
+
+    /**
+     * 批量删除时单个请求的最大对象数量（S3限制为1000）
+     */
+    int DELETE_OBJECTS_BATCH_SIZE = 1000;
+
+    /**
+     * 断点续传记录文件的默认目录
+     */
+    String CHECKPOINT_DIRECTORY = System.getProperty("java.io.tmpdir") + "/cs3-checkpoint";
+
+    /**
+     * 已存在bucket的缓存时间（秒），0表示不缓存
+     */
+    long BUCKET_CACHE_TTL_SECONDS = 300L;
+
+    /**
+     * 单个对象最多占用磁盘缓存的比例（1/N），更大的对象不缓存
+     */
+    int DISK_CACHE_MAX_OBJECT_FRACTION = 8;
+
+    /**
+     * 内存对象缓存的块大小，对象按块存放在堆外内存中
+     */
+    int MEMORY_CACHE_BLOCK_SIZE = 8 * 1024;
+
+    /**
+     * 内存对象缓存每次分配的堆外内存大小
+     */
+    int MEMORY_CACHE_SLAB_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * 对象通道的块大小，随机读取时每次至少读取一块
+     */
+    int CHANNEL_BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * 对象通道顺序读取时预读的最大块数
+     */
+    int CHANNEL_MAX_READ_AHEAD_BLOCKS = 32;
+
+    /**
+     * 对象通道缓存的块数，须大于最大预读块数
+     */
+    int CHANNEL_CACHED_BLOCKS = 48;
+
+    /**
+     * 小对象打包模式下单个对象的最大大小
+     */
+    int PACK_MAX_OBJECT_SIZE = 1024 * 1024;
+
+    /**
+     * 打包对象的key前缀
+     */
+    String PACK_KEY_PREFIX = "packs/";
+
+    /**
+     * 打包对象定时上传线程名称
+     */
+    String PACK_FLUSH_THREAD_NAME = "s3-pack-flush";
+
+    /**
+     * 读取打包对象时缓存打包对象删除标记的时间（秒）
+     */
+    long PACK_TOMBSTONE_CACHE_SECONDS = 30L;
+
+    /**
+     * 缓存删除标记的打包对象的最大数量
+     */
+    int PACK_TOMBSTONE_CACHE_PACKS = 10000;
+
+    /**
+     * HTTP连接池的最大连接数
+     */
+    int MAX_CONNECTIONS = 128;
+
+    /**
+     * 高吞吐配置下HTTP连接池的最大连接数
+     */
+    int HIGH_THROUGHPUT_MAX_CONNECTIONS = 512;
+
+    /**
+     * 高吞吐配置下的socket发送/接收缓冲区大小
+     */
+    int HIGH_THROUGHPUT_SOCKET_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * 多个网关时后台健康检查的间隔（秒）
+     */
+    long HEALTH_CHECK_INTERVAL_SECONDS = 10L;
+
+    /**
+     * 健康检查请求的超时时间（秒）
+     */
+    long HEALTH_CHECK_TIMEOUT_SECONDS = 2L;
+
+    /**
+     * 网关连续失败多少次后暂时摘除
+     */
+    int EJECTION_FAILURE_THRESHOLD = 3;
+
+    /**
+     * 网关被摘除的时间（秒）
+     */
+    long EJECTION_SECONDS = 30L;
+
+    /**
+     * 对冲读取记录的最近响应时间样本数量
+     */
+    int HEDGE_LATENCY_SAMPLES = 1024;
+
+    /**
+     * 对冲读取生效前至少需要的响应时间样本数量
+     */
+    int HEDGE_MIN_SAMPLES = 100;
+
+    /**
+     * 对冲请求的最小等待时间（毫秒）
+     */
+    long HEDGE_MIN_DELAY_MILLIS = 5L;
+
+    /**
+     * 对冲读取线程池大小，线程用尽时不再对冲
+     */
+    int HEDGE_THREAD_POOL = 64;
+
+    /**
+     * 对冲请求占读取请求的最大比例
+     */
+    double HEDGE_BUDGET_RATIO = 0.05;
+
+    /**
+     * 对冲请求预算的最大突发数量
+     */
+    int HEDGE_BUDGET_BURST = 10;
+
+    /**
+     * 对冲读取的请求超过对冲等待时间的多少倍后被中止
+     */
+    int HEDGE_ABORT_FACTOR = 20;
+
+    /**
+     * 对冲读取的请求被中止前的最短时间（毫秒）
+     */
+    long HEDGE_ABORT_MIN_MILLIS = 1000L;
+
+    /**
+     * 线程池任务队列长度，队列满时由提交任务的线程执行
+     */
+    int TRANSFER_QUEUE_CAPACITY = 1024;
+
+    /**
+     * 传输线程名称格式
+     */
+    String TRANSFER_THREAD_NAME_FORMAT = "s3-transfer-thread-%d";
+
+    /**
+     * 异步接口默认线程池大小
+     */
+    int ASYNC_THREAD_POOL = 32;
+
+    /**
+     * 异步接口线程名称格式
+     */
+    String ASYNC_THREAD_NAME_FORMAT = "s3-async-thread-%d";
+
+    /**
+     * 空闲线程存活时间（秒）
+     */
+    long TRANSFER_KEEP_ALIVE_SECONDS = 60L;
+
+    /**
+     * 关闭时等待传输任务完成的时间（秒）
+     */
+    long SHUTDOWN_TIMEOUT_SECONDS = 30L;
+
+    /**
+     * 目录上传时同时分片上传的大文件数量
+     */
+    int DIRECTORY_UPLOAD_MULTIPART_FILES = 2;
+
 
 }
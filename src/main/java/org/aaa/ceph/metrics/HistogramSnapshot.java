@@ -0,0 +1,76 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: HistogramSnapshot
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.metrics;
+
+/**
+ * immutable copy of a {@link LatencyHistogram}
+ *
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+
+    private final long count;
+
+    private final long sum;
+
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        this.count = total;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * @return number of recorded values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return mean of the recorded values in nanoseconds, 0 if empty.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @return largest recorded value in nanoseconds.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile e.g., 99.9
+     * @return the value below which the given percentage of the recorded values lie, in nanoseconds.
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValue(i), max);
+            }
+        }
+        return max;
+    }
+}
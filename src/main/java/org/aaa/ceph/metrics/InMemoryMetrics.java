@@ -0,0 +1,111 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: InMemoryMetrics
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.metrics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lock-free in-memory {@link MetricsListener}
+ * <p>
+ * Keeps per operation and bucket: a {@link LatencyHistogram}, operation, error and retry counts, bytes in
+ * and out and the operations in flight. Recording takes two map lookups and a few adder increments, no
+ * lock and no allocation once the bucket has been seen. {@link #snapshot()} exports everything.
+ * </p>
+ * <pre>
+ * InMemoryMetrics metrics = new InMemoryMetrics();
+ * CS3Service service = new CS3Builder()...metricsListener(metrics).build();
+ * ...
+ * for (OperationSnapshot operation : metrics.snapshot().getOperations()) { ... }
+ * </pre>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public class InMemoryMetrics implements MetricsListener {
+
+    /**
+     * bucket name recorded for operations without bucket
+     */
+    public static final String NO_BUCKET = "";
+
+    private final Map<Operation, ConcurrentHashMap<String, Recorder>> recorders = new EnumMap<>(Operation.class);
+
+    public InMemoryMetrics() {
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void operationStarted(Operation operation, String bucketName) {
+        recorder(operation, bucketName).inFlight.increment();
+    }
+
+    @Override
+    public void operationCompleted(Operation operation, String bucketName, long latencyNanos, long bytes, Throwable error) {
+        Recorder recorder = recorder(operation, bucketName);
+        recorder.inFlight.decrement();
+        recorder.latency.record(latencyNanos);
+        if (error != null) {
+            recorder.errors.increment();
+        }
+        if (bytes > 0) {
+            recorder.bytes.add(bytes);
+        }
+    }
+
+    @Override
+    public void retried(Operation operation, String bucketName, Throwable cause) {
+        recorder(operation, bucketName).retries.increment();
+    }
+
+    /**
+     * @return the counters of every operation and bucket seen so far.
+     */
+    public MetricsSnapshot snapshot() {
+        List<OperationSnapshot> operations = new ArrayList<>();
+        for (Map.Entry<Operation, ConcurrentHashMap<String, Recorder>> entry : recorders.entrySet()) {
+            Operation operation = entry.getKey();
+            for (Map.Entry<String, Recorder> bucket : entry.getValue().entrySet()) {
+                Recorder recorder = bucket.getValue();
+                long bytes = recorder.bytes.sum();
+                operations.add(new OperationSnapshot(operation, bucket.getKey(), recorder.latency.snapshot(),
+                        recorder.errors.sum(), recorder.retries.sum(), recorder.inFlight.sum(),
+                        operation.isUpload() ? 0 : bytes, operation.isUpload() ? bytes : 0));
+            }
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), operations);
+    }
+
+    private Recorder recorder(Operation operation, String bucketName) {
+        ConcurrentHashMap<String, Recorder> buckets = recorders.get(operation);
+        String key = bucketName == null ? NO_BUCKET : bucketName;
+        Recorder recorder = buckets.get(key);
+        return recorder != null ? recorder : buckets.computeIfAbsent(key, k -> new Recorder());
+    }
+
+    /**
+     * counters of one operation and bucket
+     */
+    private static final class Recorder {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LongAdder retries = new LongAdder();
+
+        private final LongAdder inFlight = new LongAdder();
+
+        private final LongAdder bytes = new LongAdder();
+    }
+}
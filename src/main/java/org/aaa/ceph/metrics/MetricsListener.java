@@ -0,0 +1,59 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: MetricsListener
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.metrics;
+
+/**
+ * metrics SPI of {@code CS3Service}
+ * <p>
+ * Set with {@code CS3Builder.metricsListener}. Every service operation reports its start and its end,
+ * retried requests report each retry. Callbacks come from the calling thread and from the transfer
+ * threads, so implementations must be thread-safe and must not block. {@link InMemoryMetrics} is the
+ * default implementation.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public interface MetricsListener {
+
+    /**
+     * listener ignoring every event
+     */
+    MetricsListener NONE = new MetricsListener() {
+    };
+
+    /**
+     * An operation started.
+     *
+     * @param operation the operation.
+     * @param bucketName the bucket, null for operations without bucket.
+     */
+    default void operationStarted(Operation operation, String bucketName) {
+    }
+
+    /**
+     * An operation ended.
+     *
+     * @param operation the operation.
+     * @param bucketName the bucket, null for operations without bucket.
+     * @param latencyNanos time from start to end; for a GET returning a stream, until the response headers.
+     * @param bytes payload bytes sent or received, see {@link Operation#isUpload()}.
+     * @param error the failure, null if the operation succeeded.
+     */
+    default void operationCompleted(Operation operation, String bucketName, long latencyNanos, long bytes, Throwable error) {
+    }
+
+    /**
+     * A request of an operation failed and is retried.
+     *
+     * @param operation the operation of the request.
+     * @param bucketName the bucket.
+     * @param cause the failure being retried.
+     */
+    default void retried(Operation operation, String bucketName, Throwable cause) {
+    }
+}
@@ -0,0 +1,82 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: MetricsSnapshot
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * export of an {@link InMemoryMetrics} at one point in time
+ *
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class MetricsSnapshot {
+
+    private final long timestamp;
+
+    private final List<OperationSnapshot> operations;
+
+    MetricsSnapshot(long timestamp, List<OperationSnapshot> operations) {
+        this.timestamp = timestamp;
+        this.operations = Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * @return time of the snapshot in epoch milliseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return one entry per operation and bucket.
+     */
+    public List<OperationSnapshot> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Flatten the snapshot for a metrics backend, e.g., {@code s3.put_object.my-bucket.p99_nanos}.
+     *
+     * @return metric name -> value, in a stable order.
+     */
+    public Map<String, Number> toMap() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        for (OperationSnapshot operation : operations) {
+            String prefix = "s3." + operation.getOperation().name().toLowerCase(Locale.ROOT) + "."
+                    + (operation.getBucketName().isEmpty() ? "_" : operation.getBucketName()) + ".";
+            HistogramSnapshot latency = operation.getLatency();
+            metrics.put(prefix + "count", operation.getCount());
+            metrics.put(prefix + "errors", operation.getErrors());
+            metrics.put(prefix + "retries", operation.getRetries());
+            metrics.put(prefix + "in_flight", operation.getInFlight());
+            metrics.put(prefix + "bytes_in", operation.getBytesIn());
+            metrics.put(prefix + "bytes_out", operation.getBytesOut());
+            metrics.put(prefix + "mean_nanos", latency.getMean());
+            metrics.put(prefix + "p50_nanos", latency.getPercentile(50));
+            metrics.put(prefix + "p90_nanos", latency.getPercentile(90));
+            metrics.put(prefix + "p99_nanos", latency.getPercentile(99));
+            metrics.put(prefix + "p999_nanos", latency.getPercentile(99.9));
+            metrics.put(prefix + "max_nanos", latency.getMax());
+        }
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (OperationSnapshot operation : operations) {
+            text.append(operation).append('\n');
+        }
+        return text.toString();
+    }
+}
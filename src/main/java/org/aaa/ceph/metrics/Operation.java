@@ -0,0 +1,65 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: Operation
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.metrics;
+
+/**
+ * operations reported to a {@link MetricsListener}
+ * <p>
+ * The {@code CS3Service} methods report the first group. The requests they are made of report retries
+ * under the second group.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public enum Operation {
+
+    LIST_BUCKETS(false),
+    CREATE_BUCKET(false),
+    REMOVE_BUCKET(false),
+    PURGE_BUCKET(false),
+    LIST_OBJECTS(false),
+    PUT_OBJECT(true),
+    MULTIPART_UPLOAD(true),
+    GET_OBJECT(false),
+    REMOVE_OBJECT(false),
+    REMOVE_OBJECTS(false),
+
+    /**
+     * one part of a multipart upload
+     */
+    UPLOAD_PART(true),
+    /**
+     * one byte range of a parallel download
+     */
+    GET_RANGE(false),
+    /**
+     * metadata request of an object, without payload
+     */
+    HEAD_OBJECT(false),
+    /**
+     * one multi-object delete request
+     */
+    DELETE_BATCH(false),
+    /**
+     * abort of an in-progress multipart upload
+     */
+    ABORT_UPLOAD(false);
+
+    private final boolean upload;
+
+    Operation(boolean upload) {
+        this.upload = upload;
+    }
+
+    /**
+     * @return true if the bytes of the operation are sent, false if they are received.
+     */
+    public boolean isUpload() {
+        return upload;
+    }
+}
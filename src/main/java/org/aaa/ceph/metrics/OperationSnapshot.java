@@ -0,0 +1,107 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: OperationSnapshot
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * counters of one operation on one bucket
+ *
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class OperationSnapshot {
+
+    private final Operation operation;
+
+    private final String bucketName;
+
+    private final HistogramSnapshot latency;
+
+    private final long errors;
+
+    private final long retries;
+
+    private final long inFlight;
+
+    private final long bytesIn;
+
+    private final long bytesOut;
+
+    OperationSnapshot(Operation operation, String bucketName, HistogramSnapshot latency, long errors,
+                      long retries, long inFlight, long bytesIn, long bytesOut) {
+        this.operation = operation;
+        this.bucketName = bucketName;
+        this.latency = latency;
+        this.errors = errors;
+        this.retries = retries;
+        this.inFlight = inFlight;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the bucket, {@link InMemoryMetrics#NO_BUCKET} for operations without bucket.
+     */
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    /**
+     * @return latency histogram of the completed operations.
+     */
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return number of completed operations, successful or not.
+     */
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    public long getInFlight() {
+        return inFlight;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    @Override
+    public String toString() {
+        return operation + " " + (bucketName.isEmpty() ? "-" : bucketName)
+                + " count=" + getCount() + " errors=" + errors + " retries=" + retries + " inFlight=" + inFlight
+                + " bytesIn=" + bytesIn + " bytesOut=" + bytesOut
+                + " p50=" + micros(latency.getPercentile(50)) + "us"
+                + " p99=" + micros(latency.getPercentile(99)) + "us"
+                + " p999=" + micros(latency.getPercentile(99.9)) + "us"
+                + " max=" + micros(latency.getMax()) + "us";
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
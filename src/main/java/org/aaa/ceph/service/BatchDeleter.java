@@ -0,0 +1,133 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: BatchDeleter
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.metrics.MetricsListener;
+import org.aaa.ceph.metrics.Operation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * multi-object delete of many keys of one bucket
+ * <p>
+ * The keys are sent in quiet {@link DeleteObjectsRequest}s of at most
+ * {@link TransferManagerConf#DELETE_OBJECTS_BATCH_SIZE} keys, several batches in flight on the shared
+ * transfer pool. Quiet mode makes the gateway report only the keys it failed to delete. A batch that fails
+ * as a whole after its retries reports every one of its keys as failed, the other batches go on.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class BatchDeleter {
+
+    private final AmazonS3 amazonS3;
+
+    private final ExecutorService executor;
+
+    private final int maxBatchesInFlight;
+
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * @param amazonS3 client
+     * @param executor shared transfer pool
+     * @param maxBatchesInFlight number of delete requests running concurrently
+     * @param maxRetries number of retries of a single delete request
+     * @param metrics listener of the delete requests
+     */
+    BatchDeleter(AmazonS3 amazonS3, ExecutorService executor, int maxBatchesInFlight, int maxRetries,
+                 MetricsListener metrics) {
+        this.amazonS3 = amazonS3;
+        this.executor = executor;
+        this.maxBatchesInFlight = maxBatchesInFlight;
+        this.retryPolicy = new RetryPolicy(maxRetries, metrics, Operation.DELETE_BATCH);
+    }
+
+    /**
+     * Delete the keys.
+     *
+     * @param bucketName The bucket containing the objects.
+     * @param objectKeys keys to delete, missing keys count as deleted
+     * @return the keys that could not be deleted, empty if all were deleted
+     */
+    List<DeleteError> delete(String bucketName, Collection<String> objectKeys) {
+        if (objectKeys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        TaskWindow<List<DeleteError>> window = new TaskWindow<>(executor, maxBatchesInFlight);
+        List<String> batch = new ArrayList<>(TransferManagerConf.DELETE_OBJECTS_BATCH_SIZE);
+        for (String objectKey : objectKeys) {
+            batch.add(objectKey);
+            if (batch.size() == TransferManagerConf.DELETE_OBJECTS_BATCH_SIZE) {
+                submitBatch(window, bucketName, batch);
+                batch = new ArrayList<>(TransferManagerConf.DELETE_OBJECTS_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            submitBatch(window, bucketName, batch);
+        }
+        List<DeleteError> errors = new ArrayList<>();
+        for (List<DeleteError> batchErrors : window.await()) {
+            errors.addAll(batchErrors);
+        }
+        return errors;
+    }
+
+    private void submitBatch(TaskWindow<List<DeleteError>> window, String bucketName, List<String> batch) {
+        window.submit(() -> deleteBatch(bucketName, batch));
+    }
+
+    /**
+     * Delete one batch, never throws for a failed delete.
+     */
+    List<DeleteError> deleteBatch(String bucketName, List<String> batch) {
+        DeleteObjectsRequest request = new DeleteObjectsRequest(bucketName)
+                .withKeys(batch.toArray(new String[0]))
+                .withQuiet(true);
+        try {
+            return retryPolicy.call(bucketName, 0, () -> {
+                try {
+                    amazonS3.deleteObjects(request);
+                    return Collections.<DeleteError>emptyList();
+                } catch (MultiObjectDeleteException e) {
+                    return e.getErrors();
+                }
+            });
+        } catch (Exception e) {
+            return batchFailed(batch, e);
+        }
+    }
+
+    private static List<DeleteError> batchFailed(List<String> batch, Exception e) {
+        String code = e instanceof AmazonServiceException
+                ? ((AmazonServiceException) e).getErrorCode()
+                : e.getClass().getSimpleName();
+        List<DeleteError> errors = new ArrayList<>(batch.size());
+        for (String objectKey : batch) {
+            DeleteError error = new DeleteError();
+            error.setKey(objectKey);
+            error.setCode(code);
+            error.setMessage(e.getMessage());
+            errors.add(error);
+        }
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        return errors;
+    }
+}
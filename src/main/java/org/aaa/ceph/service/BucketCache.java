@@ -0,0 +1,60 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: BucketCache
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * buckets known to exist
+ * <p>
+ * A bucket is remembered for {@code ttlNanos} after it was seen or created, so repeated
+ * {@link CS3Service#createBucket(String)} calls for the same bucket cost no request. Buckets removed
+ * through the service are forgotten at once; a bucket removed by another client is noticed after the TTL.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class BucketCache {
+
+    /**
+     * bucket name -> System.nanoTime() at which the entry expires
+     */
+    private final ConcurrentMap<String, Long> buckets = new ConcurrentHashMap<>();
+
+    private final long ttlNanos;
+
+    /**
+     * @param ttlNanos time an existing bucket is remembered, 0 disables the cache
+     */
+    BucketCache(long ttlNanos) {
+        this.ttlNanos = ttlNanos;
+    }
+
+    boolean contains(String bucketName) {
+        Long expiry = buckets.get(bucketName);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry - System.nanoTime() <= 0) {
+            buckets.remove(bucketName, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    void add(String bucketName) {
+        if (ttlNanos > 0) {
+            buckets.put(bucketName, System.nanoTime() + ttlNanos);
+        }
+    }
+
+    void invalidate(String bucketName) {
+        buckets.remove(bucketName);
+    }
+}
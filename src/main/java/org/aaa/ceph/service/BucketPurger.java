@@ -0,0 +1,204 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: BucketPurger
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ListMultipartUploadsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.amazonaws.services.s3.model.MultipartUpload;
+import com.amazonaws.services.s3.model.MultipartUploadListing;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.exception.CephException;
+import org.aaa.ceph.metrics.MetricsListener;
+import org.aaa.ceph.metrics.Operation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * deletes everything in a bucket, or under a prefix of it
+ * <p>
+ * In-progress multipart uploads are aborted first, so no object can appear behind the purge. The object
+ * listing is then streamed page by page (the next page is fetched while the current one is deleted) and
+ * cut into batches of {@link TransferManagerConf#DELETE_OBJECTS_BATCH_SIZE} keys. The batches go through a
+ * {@link TaskWindow} of {@code concurrency} multi-object delete requests, which blocks the lister whenever
+ * all deleters are busy, so memory stays bounded whatever the size of the bucket. Object versions are not
+ * listed, a versioned bucket keeps its noncurrent versions.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class BucketPurger {
+
+    private final AmazonS3 amazonS3;
+
+    private final ExecutorService executor;
+
+    private final BatchDeleter batchDeleter;
+
+    private final int defaultConcurrency;
+
+    private final RetryPolicy retryPolicy;
+
+    private final MetricsListener metrics;
+
+    /**
+     * @param amazonS3 client
+     * @param executor shared transfer pool
+     * @param batchDeleter multi-object delete of one batch
+     * @param defaultConcurrency number of requests in flight when the options do not set it
+     * @param maxRetries number of retries of a single abort request
+     * @param metrics listener of the abort requests
+     */
+    BucketPurger(AmazonS3 amazonS3, ExecutorService executor, BatchDeleter batchDeleter,
+                 int defaultConcurrency, int maxRetries, MetricsListener metrics) {
+        this.amazonS3 = amazonS3;
+        this.executor = executor;
+        this.batchDeleter = batchDeleter;
+        this.defaultConcurrency = defaultConcurrency;
+        this.retryPolicy = new RetryPolicy(maxRetries, metrics, Operation.ABORT_UPLOAD);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Purge the bucket.
+     *
+     * @param bucketName The bucket to purge.
+     * @param options prefix, bucket removal, concurrency and listener
+     * @return the final counters
+     */
+    PurgeProgress purge(String bucketName, PurgeOptions options) {
+        String prefix = options.getPrefix() == null ? "" : options.getPrefix();
+        if (options.isRemoveBucket() && !prefix.isEmpty()) {
+            throw new IllegalArgumentException("The bucket can only be removed when it is purged without prefix");
+        }
+        int concurrency = options.getConcurrency() > 0 ? options.getConcurrency() : defaultConcurrency;
+        Progress progress = new Progress(options.getListener());
+
+        abortUploads(bucketName, prefix, concurrency, progress);
+        deleteObjects(bucketName, prefix, concurrency, progress);
+
+        if (!options.isRemoveBucket()) {
+            return progress.snapshot(false);
+        }
+        if (progress.failed.get() > 0) {
+            throw new CephException(progress.failed.get() + " objects of bucket " + bucketName
+                    + " could not be deleted, the bucket is kept");
+        }
+        amazonS3.deleteBucket(bucketName);
+        PurgeProgress result = progress.snapshot(true);
+        progress.notifyListener(result);
+        return result;
+    }
+
+    private void abortUploads(String bucketName, String prefix, int concurrency, Progress progress) {
+        TaskWindow<Void> window = new TaskWindow<>(executor, concurrency);
+        ListMultipartUploadsRequest request = new ListMultipartUploadsRequest(bucketName).withPrefix(prefix);
+        MultipartUploadListing listing;
+        do {
+            listing = amazonS3.listMultipartUploads(request);
+            for (MultipartUpload upload : listing.getMultipartUploads()) {
+                window.submit(() -> {
+                    abort(bucketName, upload);
+                    progress.abortedUploads.incrementAndGet();
+                    progress.notifyListener(progress.snapshot(false));
+                    return null;
+                });
+            }
+            request.setKeyMarker(listing.getNextKeyMarker());
+            request.setUploadIdMarker(listing.getNextUploadIdMarker());
+        } while (listing.isTruncated());
+        window.await();
+    }
+
+    private void abort(String bucketName, MultipartUpload upload) throws Exception {
+        retryPolicy.call(bucketName, 0, () -> {
+            try {
+                amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, upload.getKey(), upload.getUploadId()));
+            } catch (AmazonS3Exception e) {
+                // completed or aborted concurrently
+                if (e.getStatusCode() != 404) {
+                    throw e;
+                }
+            }
+            return null;
+        });
+    }
+
+    private void deleteObjects(String bucketName, String prefix, int concurrency, Progress progress) {
+        TaskWindow<Void> window = new TaskWindow<>(executor, concurrency);
+        ListObjectsOptions listOptions = new ListObjectsOptions().prefix(prefix);
+        try (ObjectListingIterator objects = new ObjectListingIterator(amazonS3, executor, bucketName, listOptions, metrics)) {
+            List<String> batch = new ArrayList<>(TransferManagerConf.DELETE_OBJECTS_BATCH_SIZE);
+            while (objects.hasNext()) {
+                batch.add(objects.next().getKey());
+                progress.listed.incrementAndGet();
+                if (batch.size() == TransferManagerConf.DELETE_OBJECTS_BATCH_SIZE) {
+                    submitBatch(window, bucketName, batch, progress);
+                    batch = new ArrayList<>(TransferManagerConf.DELETE_OBJECTS_BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submitBatch(window, bucketName, batch, progress);
+            }
+            window.await();
+        } catch (RuntimeException e) {
+            window.cancel();
+            throw e;
+        }
+    }
+
+    private void submitBatch(TaskWindow<Void> window, String bucketName, List<String> batch, Progress progress) {
+        window.submit(() -> {
+            List<DeleteError> errors = batchDeleter.deleteBatch(bucketName, batch);
+            progress.deleted.addAndGet(batch.size() - errors.size());
+            progress.failed.addAndGet(errors.size());
+            if (progress.listener != null) {
+                for (DeleteError error : errors) {
+                    progress.listener.deleteFailed(error);
+                }
+            }
+            progress.notifyListener(progress.snapshot(false));
+            return null;
+        });
+    }
+
+    /**
+     * counters shared by the lister and the deleters
+     */
+    private static final class Progress {
+
+        private final PurgeListener listener;
+
+        private final AtomicLong listed = new AtomicLong();
+
+        private final AtomicLong deleted = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private final AtomicLong abortedUploads = new AtomicLong();
+
+        private Progress(PurgeListener listener) {
+            this.listener = listener;
+        }
+
+        private PurgeProgress snapshot(boolean bucketRemoved) {
+            return new PurgeProgress(listed.get(), deleted.get(), failed.get(), abortedUploads.get(), bucketRemoved);
+        }
+
+        private void notifyListener(PurgeProgress progress) {
+            if (listener != null) {
+                listener.progressChanged(progress);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: BufferPoolStats
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+/**
+ * occupancy of the part buffer pool at one point in time
+ *
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class BufferPoolStats {
+
+    private final int bufferSize;
+
+    private final int capacity;
+
+    private final int allocated;
+
+    private final int inUse;
+
+    private final int waiting;
+
+    BufferPoolStats(int bufferSize, int capacity, int allocated, int inUse, int waiting) {
+        this.bufferSize = bufferSize;
+        this.capacity = capacity;
+        this.allocated = allocated;
+        this.inUse = inUse;
+        this.waiting = waiting;
+    }
+
+    /**
+     * @return size of one buffer in bytes.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return maximum number of buffers.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of buffers allocated so far, buffers are allocated on first use.
+     */
+    public int getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * @return number of buffers borrowed by uploads.
+     */
+    public int getInUse() {
+        return inUse;
+    }
+
+    /**
+     * @return number of threads waiting for a buffer.
+     */
+    public int getWaiting() {
+        return waiting;
+    }
+
+    /**
+     * @return off-heap bytes held by the pool.
+     */
+    public long getAllocatedBytes() {
+        return (long) allocated * bufferSize;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPoolStats{bufferSize=" + bufferSize + ", capacity=" + capacity + ", allocated=" + allocated
+                + ", inUse=" + inUse + ", waiting=" + waiting + '}';
+    }
+}
@@ -0,0 +1,129 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: ByteBufferInputStream
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * InputStream over the remaining bytes of one or more (direct) ByteBuffers, read one after the other
+ * <p>
+ * Supports mark and reset over all buffers, so the SDK can replay a part on its own retries without
+ * copying it into a heap buffer first. The stream reads from its own views of the buffers, the positions
+ * of the given buffers are not changed.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer[] buffers;
+
+    /**
+     * position of every view when the stream was created
+     */
+    private final int[] starts;
+
+    /**
+     * view being read
+     */
+    private int current;
+
+    private int markBuffer;
+
+    private int markPosition;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+        this(Collections.singletonList(buffer));
+    }
+
+    ByteBufferInputStream(List<ByteBuffer> buffers) {
+        this.buffers = new ByteBuffer[buffers.size()];
+        this.starts = new int[buffers.size()];
+        for (int i = 0; i < this.buffers.length; i++) {
+            this.buffers[i] = buffers.get(i).duplicate();
+            this.starts[i] = this.buffers[i].position();
+        }
+        this.markPosition = this.buffers.length == 0 ? 0 : starts[0];
+    }
+
+    @Override
+    public int read() {
+        ByteBuffer buffer = next();
+        return buffer == null ? -1 : buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = next();
+        if (buffer == null) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = 0;
+        ByteBuffer buffer;
+        while (skipped < n && (buffer = next()) != null) {
+            int step = (int) Math.min(n - skipped, buffer.remaining());
+            buffer.position(buffer.position() + step);
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        long remaining = 0;
+        for (int i = current; i < buffers.length; i++) {
+            remaining += buffers[i].remaining();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        markBuffer = current;
+        markPosition = current < buffers.length ? buffers[current].position() : 0;
+    }
+
+    @Override
+    public synchronized void reset() {
+        current = markBuffer;
+        if (current < buffers.length) {
+            buffers[current].position(markPosition);
+            for (int i = current + 1; i < buffers.length; i++) {
+                buffers[i].position(starts[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the first view with remaining bytes, or null at the end of the stream
+     */
+    private ByteBuffer next() {
+        while (current < buffers.length && !buffers[current].hasRemaining()) {
+            current++;
+        }
+        return current < buffers.length ? buffers[current] : null;
+    }
+}
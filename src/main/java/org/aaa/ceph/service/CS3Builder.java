@@ -7,9 +7,19 @@
  ********************************************************************************/
 package org.aaa.ceph.service;
 
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Protocol;
 import com.google.common.base.Strings;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.metrics.MetricsListener;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * common simple storage service builder
@@ -32,6 +42,126 @@ public class CS3Builder {
      * <p>For example: http://127.0.0.1:80
      */
     private String endpoint;
+    /**
+     * the endpoints of several gateways of the same cluster, replaces endpoint when set
+     */
+    private List<String> endpoints = new ArrayList<>();
+    /**
+     * interval of the gateway health probes in milliseconds, 0 disables them
+     */
+    private long healthCheckIntervalMillis = TimeUnit.SECONDS.toMillis(TransferManagerConf.HEALTH_CHECK_INTERVAL_SECONDS);
+    /**
+     * response time percentile after which a read is hedged, 0 disables hedging
+     */
+    private double hedgePercentile;
+    /**
+     * listener of every operation
+     */
+    private MetricsListener metricsListener = MetricsListener.NONE;
+    /**
+     * number of transfer threads
+     */
+    private int transferPoolSize = TransferManagerConf.FIXED_THREAD_POOL;
+    /**
+     * number of tasks waiting for a transfer thread
+     */
+    private int transferQueueCapacity = TransferManagerConf.TRANSFER_QUEUE_CAPACITY;
+    /**
+     * transfer thread name format
+     */
+    private String transferThreadNameFormat = TransferManagerConf.TRANSFER_THREAD_NAME_FORMAT;
+    /**
+     * number of parts of one object uploading concurrently
+     */
+    private int maxPartsInFlight = TransferManagerConf.MAX_PARTS_IN_FLIGHT;
+    /**
+     * number of retries of a failed part
+     */
+    private int partUploadRetries = TransferManagerConf.PART_UPLOAD_MAX_RETRIES;
+    /**
+     * off-heap memory limit of the part buffers of stream uploads
+     */
+    private long partBufferPoolBytes = TransferManagerConf.PART_BUFFER_POOL_BYTES;
+    /**
+     * directory of the resumable upload journals
+     */
+    private File checkpointDirectory = new File(TransferManagerConf.CHECKPOINT_DIRECTORY);
+    /**
+     * executor of the asynchronous operations, null for a pool owned by the client
+     */
+    private ExecutorService asyncExecutor;
+    /**
+     * time an existing bucket is remembered, in nanoseconds
+     */
+    private long bucketCacheTtlNanos = TimeUnit.SECONDS.toNanos(TransferManagerConf.BUCKET_CACHE_TTL_SECONDS);
+    /**
+     * directory of the disk object cache, null when disabled
+     */
+    private File diskCacheDirectory;
+    /**
+     * size limit of the disk object cache
+     */
+    private long diskCacheMaxBytes;
+    /**
+     * off-heap limit of the memory object cache, 0 when disabled
+     */
+    private long memoryCacheMaxBytes;
+    /**
+     * largest object kept in the memory object cache
+     */
+    private int memoryCacheMaxObjectSize;
+    /**
+     * largest object packed by the object packer, 0 when packing is disabled
+     */
+    private int packMaxObjectSize;
+    /**
+     * time an open pack waits for more objects
+     */
+    private long packLingerNanos;
+    /**
+     * size of the HTTP connection pool
+     */
+    private int maxConnections = TransferManagerConf.MAX_CONNECTIONS;
+    /**
+     * lifetime of a pooled connection in milliseconds, -1 for unlimited
+     */
+    private long connectionTtlMillis = ClientConfiguration.DEFAULT_CONNECTION_TTL;
+    /**
+     * idle time after which a pooled connection is closed, in milliseconds
+     */
+    private long connectionMaxIdleMillis = ClientConfiguration.DEFAULT_CONNECTION_MAX_IDLE_MILLIS;
+    /**
+     * close idle and expired connections in the background
+     */
+    private boolean useReaper = ClientConfiguration.DEFAULT_USE_REAPER;
+    /**
+     * socket send buffer size hint in bytes, 0 for the system default
+     */
+    private int socketSendBufferSize;
+    /**
+     * socket receive buffer size hint in bytes, 0 for the system default
+     */
+    private int socketReceiveBufferSize;
+    /**
+     * enable TCP keep-alive on the connections
+     */
+    private boolean tcpKeepAlive = ClientConfiguration.DEFAULT_TCP_KEEP_ALIVE;
+    /**
+     * timeout of opening a connection in milliseconds
+     */
+    private int connectionTimeoutMillis = ClientConfiguration.DEFAULT_CONNECTION_TIMEOUT;
+    /**
+     * timeout of waiting for data on an open connection in milliseconds
+     */
+    private int socketTimeoutMillis = ClientConfiguration.DEFAULT_SOCKET_TIMEOUT;
+    /**
+     * timeout of a whole HTTP request in milliseconds, 0 for none
+     */
+    private int requestTimeoutMillis = ClientConfiguration.DEFAULT_REQUEST_TIMEOUT;
+    /**
+     * send "Expect: 100-continue" before request bodies
+     */
+    private boolean useExpectContinue = ClientConfiguration.DEFAULT_USE_EXPECT_CONTINUE;
 
     /**
      * Sets the access key to be used by the client.
@@ -68,16 +198,520 @@ public class CS3Builder {
         return this;
     }
 
+    /**
+     * Sets the endpoints of several radosgw gateways of the same cluster.
+     * <p>Requests are balanced over the gateways, failing gateways are ejected for a while and
+     * idempotent requests fail over to another gateway. Replaces {@link #endpoint(String)}.
+     *
+     * @param endpoints Endpoints to use, e.g., http://10.0.0.1:80, http://10.0.0.2:80
+     * @return This object for method chaining.
+     */
+    public CS3Builder endpoints(String... endpoints) {
+        this.endpoints = new ArrayList<>(Arrays.asList(endpoints));
+        return this;
+    }
+
+    /**
+     * Sets the interval of the background health probes of the gateways set by {@link #endpoints(String...)}.
+     * <p>0 disables the probes, an ejected gateway is then tried again once its ejection expires.
+     *
+     * @param interval Probe interval.
+     * @param unit Unit of the time.
+     * @return This object for method chaining.
+     */
+    public CS3Builder healthCheckInterval(long interval, TimeUnit unit) {
+        this.healthCheckIntervalMillis = unit.toMillis(interval);
+        return this;
+    }
+
+    /**
+     * Enables hedged reads for {@link CS3Service#getObject(String, String)}: when a GET has not answered
+     * within the given percentile of the recent response times, a second GET is sent and the first
+     * response wins. The loser is aborted.
+     * <p>A percentile of 95 adds about 5% requests. Hedges never exceed
+     * {@link TransferManagerConf#HEDGE_BUDGET_RATIO} of the reads, so an overloaded gateway does not get
+     * twice the load. 0 disables hedging, which is the default.
+     *
+     * @param percentile Response time percentile, e.g., 95.
+     * @return This object for method chaining.
+     */
+    public CS3Builder hedgedReads(double percentile) {
+        this.hedgePercentile = percentile;
+        return this;
+    }
+
+    /**
+     * Sets the listener notified of every operation, retry and transferred byte, e.g., an
+     * {@link org.aaa.ceph.metrics.InMemoryMetrics}.
+     * <p>By default nothing is recorded.
+     *
+     * @param metricsListener Listener to use.
+     * @return This object for method chaining.
+     */
+    public CS3Builder metricsListener(MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads shared by all uploads and downloads of the client.
+     *
+     * @param transferPoolSize Number of transfer threads.
+     * @return This object for method chaining.
+     */
+    public CS3Builder transferPoolSize(int transferPoolSize) {
+        this.transferPoolSize = transferPoolSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of tasks that may wait for a transfer thread.
+     * <p>When the queue is full the submitting thread runs the task itself.
+     *
+     * @param transferQueueCapacity Queue capacity.
+     * @return This object for method chaining.
+     */
+    public CS3Builder transferQueueCapacity(int transferQueueCapacity) {
+        this.transferQueueCapacity = transferQueueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the name format of the transfer threads.
+     *
+     * <p>For example: s3-transfer-thread-%d
+     *
+     * @param transferThreadNameFormat Thread name format.
+     * @return This object for method chaining.
+     */
+    public CS3Builder transferThreadNameFormat(String transferThreadNameFormat) {
+        this.transferThreadNameFormat = transferThreadNameFormat;
+        return this;
+    }
+
+    /**
+     * Sets the number of parts of one object that are uploaded concurrently.
+     * <p>The same limit applies to the byte ranges of a parallel download.
+     *
+     * @param maxPartsInFlight Number of parts in flight.
+     * @return This object for method chaining.
+     */
+    public CS3Builder maxPartsInFlight(int maxPartsInFlight) {
+        this.maxPartsInFlight = maxPartsInFlight;
+        return this;
+    }
+
+    /**
+     * Sets how many times a failed part is retried before the multipart upload is aborted.
+     *
+     * @param partUploadRetries Number of retries.
+     * @return This object for method chaining.
+     */
+    public CS3Builder partUploadRetries(int partUploadRetries) {
+        this.partUploadRetries = partUploadRetries;
+        return this;
+    }
+
+    /**
+     * Sets the off-heap memory shared by the part buffers of all stream uploads.
+     * <p>Stream uploads wait for a free buffer once the limit is reached. The limit is rounded down to
+     * whole parts of {@link TransferManagerConf#MINIMUM_UPLOAD_PART_SIZE}, with at least one part.
+     *
+     * @param partBufferPoolBytes Memory limit in bytes.
+     * @return This object for method chaining.
+     */
+    public CS3Builder partBufferPoolBytes(long partBufferPoolBytes) {
+        this.partBufferPoolBytes = partBufferPoolBytes;
+        return this;
+    }
+
+    /**
+     * Sets the directory where resumable uploads keep their checkpoint journals.
+     *
+     * @param checkpointDirectory Local directory.
+     * @return This object for method chaining.
+     */
+    public CS3Builder checkpointDirectory(File checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+        return this;
+    }
+
+    /**
+     * Sets the executor running the blocking calls behind the asynchronous operations.
+     * <p>The executor is not shut down by {@link CS3Service#close()}. When not set, the client owns a
+     * pool of {@link TransferManagerConf#ASYNC_THREAD_POOL} threads.
+     *
+     * @param asyncExecutor Executor to use.
+     * @return This object for method chaining.
+     */
+    public CS3Builder asyncExecutor(ExecutorService asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    /**
+     * Sets how long a bucket known to exist is remembered, so that
+     * {@link CS3Service#createBucket(String)} does not ask the server again.
+     * <p>0 disables the cache.
+     *
+     * @param ttl Time to remember a bucket.
+     * @param unit Unit of the time.
+     * @return This object for method chaining.
+     */
+    public CS3Builder bucketCacheTtl(long ttl, TimeUnit unit) {
+        this.bucketCacheTtlNanos = unit.toNanos(ttl);
+        return this;
+    }
+
+    /**
+     * Enables a local disk read-through cache of the objects read with
+     * {@link CS3Service#getImmutableObject(String, String)}.
+     * <p>Only objects that are never overwritten may be read through the cache, e.g., the objects written
+     * through the client with fresh UUID keys. The least recently used objects are evicted beyond the limit.
+     * The directory must not be shared by two services.
+     *
+     * @param directory Local directory, created if needed, cached objects survive a restart.
+     * @param maxBytes Size limit of the cached files in bytes.
+     * @return This object for method chaining.
+     */
+    public CS3Builder diskCache(File directory, long maxBytes) {
+        this.diskCacheDirectory = directory;
+        this.diskCacheMaxBytes = maxBytes;
+        return this;
+    }
+
+    /**
+     * Enables an off-heap in-memory cache of the small objects read with
+     * {@link CS3Service#getImmutableObject(String, String)}, in front of the disk cache if both are enabled.
+     * <p>The same restriction as for the disk cache applies, only objects that are never overwritten may be
+     * read through it. When the cache is full, a new object only replaces a cached one that was read less
+     * often recently, so one-off reads do not flush the hot objects. See {@link CS3Service#memoryCacheStats()}.
+     *
+     * @param maxBytes Off-heap memory limit in bytes.
+     * @param maxObjectSize Size limit of a cached object in bytes, larger objects are streamed as before.
+     * @return This object for method chaining.
+     */
+    public CS3Builder memoryCache(long maxBytes, int maxObjectSize) {
+        this.memoryCacheMaxBytes = maxBytes;
+        this.memoryCacheMaxObjectSize = maxObjectSize;
+        return this;
+    }
+
+    /**
+     * Enables packing of small objects with {@link CS3Service#packObject(String, byte[])}.
+     * <p>Packed objects are appended to a pack object of the part size per bucket, which is stored once it is
+     * full or after the linger time, so concurrent writers share one request and one bucket index entry.
+     * A pack holds one part buffer of the buffer pool until it is stored.
+     *
+     * @param maxObjectSize Largest object to pack in bytes, at most {@link TransferManagerConf#PACK_MAX_OBJECT_SIZE}.
+     * @param linger Time an open pack waits for more objects, a writer waits up to this long for its object.
+     * @param unit Unit of the time.
+     * @return This object for method chaining.
+     */
+    public CS3Builder packing(int maxObjectSize, long linger, TimeUnit unit) {
+        this.packMaxObjectSize = maxObjectSize;
+        this.packLingerNanos = unit.toNanos(linger);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of open HTTP connections.
+     * <p>Every part, range and delete request in flight holds one connection, so the pool should be at
+     * least the transfer pool size plus the async pool size.
+     *
+     * @param maxConnections Size of the connection pool.
+     * @return This object for method chaining.
+     */
+    public CS3Builder maxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * Sets how long a pooled connection may be reused. Expired connections are closed and reopened,
+     * which lets a load balancer in front of the gateways spread long-lived clients again.
+     *
+     * @param ttl Connection lifetime, -1 for unlimited.
+     * @param unit Unit of the time.
+     * @return This object for method chaining.
+     */
+    public CS3Builder connectionTtl(long ttl, TimeUnit unit) {
+        this.connectionTtlMillis = ttl < 0 ? -1 : unit.toMillis(ttl);
+        return this;
+    }
+
+    /**
+     * Sets how long a pooled connection may stay idle before it is closed.
+     *
+     * @param maxIdle Idle time.
+     * @param unit Unit of the time.
+     * @return This object for method chaining.
+     */
+    public CS3Builder connectionMaxIdle(long maxIdle, TimeUnit unit) {
+        this.connectionMaxIdleMillis = unit.toMillis(maxIdle);
+        return this;
+    }
+
+    /**
+     * Sets whether idle and expired connections are closed by a background thread.
+     * <p>Without the reaper they are only closed when they are next taken from the pool.
+     *
+     * @param useReaper true to reap idle connections.
+     * @return This object for method chaining.
+     */
+    public CS3Builder useReaper(boolean useReaper) {
+        this.useReaper = useReaper;
+        return this;
+    }
+
+    /**
+     * Sets the socket buffer size hints. Larger buffers help large transfers over links with a high
+     * bandwidth-delay product. 0 keeps the system default.
+     *
+     * @param sendBufferSize Send buffer size in bytes.
+     * @param receiveBufferSize Receive buffer size in bytes.
+     * @return This object for method chaining.
+     */
+    public CS3Builder socketBufferSizes(int sendBufferSize, int receiveBufferSize) {
+        this.socketSendBufferSize = sendBufferSize;
+        this.socketReceiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    /**
+     * Sets whether TCP keep-alive probes are sent on the connections.
+     *
+     * @param tcpKeepAlive true to enable keep-alive.
+     * @return This object for method chaining.
+     */
+    public CS3Builder tcpKeepAlive(boolean tcpKeepAlive) {
+        this.tcpKeepAlive = tcpKeepAlive;
+        return this;
+    }
+
+    /**
+     * Sets the timeout of opening a connection.
+     *
+     * @param timeout Connection timeout.
+     * @param unit Unit of the time.
+     * @return This object for method chaining.
+     */
+    public CS3Builder connectionTimeout(long timeout, TimeUnit unit) {
+        this.connectionTimeoutMillis = (int) unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Sets how long a connection may wait for data before the request fails.
+     *
+     * @param timeout Socket timeout, 0 for none.
+     * @param unit Unit of the time.
+     * @return This object for method chaining.
+     */
+    public CS3Builder socketTimeout(long timeout, TimeUnit unit) {
+        this.socketTimeoutMillis = (int) unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Sets the timeout of a whole HTTP request, including sending the body.
+     * <p>The timeout applies to every part request, it must leave time to send a whole part.
+     *
+     * @param timeout Request timeout, 0 for none.
+     * @param unit Unit of the time.
+     * @return This object for method chaining.
+     */
+    public CS3Builder requestTimeout(long timeout, TimeUnit unit) {
+        this.requestTimeoutMillis = (int) unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Sets whether request bodies are preceded by "Expect: 100-continue".
+     * <p>Disabling it saves one round trip per upload request, at the cost of sending the body of a
+     * request the gateway is going to reject.
+     *
+     * @param useExpectContinue true to wait for 100-continue.
+     * @return This object for method chaining.
+     */
+    public CS3Builder useExpectContinue(boolean useExpectContinue) {
+        this.useExpectContinue = useExpectContinue;
+        return this;
+    }
+
+    /**
+     * Applies connection settings suited to many concurrent large transfers: a connection pool of
+     * {@link TransferManagerConf#HIGH_THROUGHPUT_MAX_CONNECTIONS}, 1MB socket buffers, TCP keep-alive,
+     * connections recycled every 5 minutes and closed after 30 seconds idle, short connect timeout and no
+     * 100-continue round trip.
+     * <p>Options set after this call override the preset.
+     *
+     * @return This object for method chaining.
+     */
+    public CS3Builder highThroughput() {
+        return maxConnections(TransferManagerConf.HIGH_THROUGHPUT_MAX_CONNECTIONS)
+                .connectionTtl(5, TimeUnit.MINUTES)
+                .connectionMaxIdle(30, TimeUnit.SECONDS)
+                .useReaper(true)
+                .socketBufferSizes(TransferManagerConf.HIGH_THROUGHPUT_SOCKET_BUFFER_SIZE,
+                        TransferManagerConf.HIGH_THROUGHPUT_SOCKET_BUFFER_SIZE)
+                .tcpKeepAlive(true)
+                .connectionTimeout(3, TimeUnit.SECONDS)
+                .socketTimeout(30, TimeUnit.SECONDS)
+                .useExpectContinue(false);
+    }
+
     /**
      * Builds a client with the configure properties.
      *
      * @return Client instance to make API calls with.
      */
     public CS3Service build() {
-        if (Arrays.asList(accessKey, secretKey, endpoint).stream().anyMatch(Strings::isNullOrEmpty)) {
+        if (Arrays.asList(accessKey, secretKey, transferThreadNameFormat).stream().anyMatch(Strings::isNullOrEmpty)) {
+            throw new IllegalArgumentException("Missing required parameter to build the instance.");
+        }
+        if (getEndpoints().isEmpty() || getEndpoints().stream().anyMatch(Strings::isNullOrEmpty)) {
             throw new IllegalArgumentException("Missing required parameter to build the instance.");
         }
-        return new CS3ServiceImpl(accessKey, secretKey, endpoint);
+        if (transferPoolSize <= 0 || transferQueueCapacity <= 0 || maxPartsInFlight <= 0) {
+            throw new IllegalArgumentException("Transfer pool size, queue capacity and parts in flight must be positive.");
+        }
+        if (checkpointDirectory == null || metricsListener == null) {
+            throw new IllegalArgumentException("Missing required parameter to build the instance.");
+        }
+        if (partUploadRetries < 0 || bucketCacheTtlNanos < 0 || partBufferPoolBytes < 0) {
+            throw new IllegalArgumentException("Part upload retries, bucket cache ttl and buffer pool size must not be negative.");
+        }
+        if (hedgePercentile < 0 || hedgePercentile >= 100) {
+            throw new IllegalArgumentException("Hedge percentile must be in [0, 100).");
+        }
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Max connections must be positive.");
+        }
+        if (diskCacheDirectory != null && diskCacheMaxBytes <= 0) {
+            throw new IllegalArgumentException("Disk cache size must be positive.");
+        }
+        if (memoryCacheMaxBytes < 0 || memoryCacheMaxBytes > 0 && memoryCacheMaxObjectSize <= 0) {
+            throw new IllegalArgumentException("Memory cache size must not be negative and its object size limit must be positive.");
+        }
+        if (packMaxObjectSize < 0 || packMaxObjectSize > TransferManagerConf.PACK_MAX_OBJECT_SIZE || packLingerNanos < 0) {
+            throw new IllegalArgumentException("Pack object size must be in [0, " + TransferManagerConf.PACK_MAX_OBJECT_SIZE
+                    + "] and pack linger time must not be negative.");
+        }
+        if (healthCheckIntervalMillis < 0 || connectionMaxIdleMillis < 0 || socketSendBufferSize < 0 || socketReceiveBufferSize < 0
+                || connectionTimeoutMillis < 0 || socketTimeoutMillis < 0 || requestTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Health check interval, connection idle time, socket buffer sizes and timeouts must not be negative.");
+        }
+        return new CS3ServiceImpl(this);
+    }
+
+    String getAccessKey() {
+        return accessKey;
+    }
+
+    String getSecretKey() {
+        return secretKey;
+    }
+
+    /**
+     * @return the gateway endpoints, the single endpoint when no list was set.
+     */
+    List<String> getEndpoints() {
+        if (!endpoints.isEmpty()) {
+            return endpoints;
+        }
+        return endpoint == null ? Collections.<String>emptyList() : Collections.singletonList(endpoint);
+    }
+
+    long getHealthCheckIntervalMillis() {
+        return healthCheckIntervalMillis;
+    }
+
+    double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    int getTransferPoolSize() {
+        return transferPoolSize;
+    }
+
+    int getTransferQueueCapacity() {
+        return transferQueueCapacity;
+    }
+
+    String getTransferThreadNameFormat() {
+        return transferThreadNameFormat;
+    }
+
+    int getMaxPartsInFlight() {
+        return maxPartsInFlight;
+    }
+
+    int getPartUploadRetries() {
+        return partUploadRetries;
+    }
+
+    long getPartBufferPoolBytes() {
+        return partBufferPoolBytes;
+    }
+
+    File getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+    ExecutorService getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    long getBucketCacheTtlNanos() {
+        return bucketCacheTtlNanos;
+    }
+
+    File getDiskCacheDirectory() {
+        return diskCacheDirectory;
+    }
+
+    long getDiskCacheMaxBytes() {
+        return diskCacheMaxBytes;
+    }
+
+    long getMemoryCacheMaxBytes() {
+        return memoryCacheMaxBytes;
+    }
+
+    int getMemoryCacheMaxObjectSize() {
+        return memoryCacheMaxObjectSize;
+    }
+
+    int getPackMaxObjectSize() {
+        return packMaxObjectSize;
+    }
+
+    long getPackLingerNanos() {
+        return packLingerNanos;
+    }
+
+    /**
+     * @return the HTTP client configuration of the connection settings.
+     */
+    ClientConfiguration getClientConfiguration() {
+        ClientConfiguration clientConfig = new ClientConfiguration();
+        clientConfig.setProtocol(Protocol.HTTP);
+        clientConfig.setMaxConnections(maxConnections);
+        clientConfig.setConnectionTTL(connectionTtlMillis);
+        clientConfig.setConnectionMaxIdleMillis(connectionMaxIdleMillis);
+        clientConfig.setUseReaper(useReaper);
+        clientConfig.setSocketBufferSizeHints(socketSendBufferSize, socketReceiveBufferSize);
+        clientConfig.setUseTcpKeepAlive(tcpKeepAlive);
+        clientConfig.setConnectionTimeout(connectionTimeoutMillis);
+        clientConfig.setSocketTimeout(socketTimeoutMillis);
+        clientConfig.setRequestTimeout(requestTimeoutMillis);
+        clientConfig.setUseExpectContinue(useExpectContinue);
+        return clientConfig;
     }
 
 
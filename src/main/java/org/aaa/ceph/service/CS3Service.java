@@ -8,14 +8,22 @@
 package org.aaa.ceph.service;
 
 import com.amazonaws.services.s3.model.Bucket;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.transfer.model.UploadResult;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * common simple storage service Service
@@ -25,7 +33,7 @@ import java.util.List;
  * @Author: wuxi
  * @Date: 2019/3/13
  */
-public interface CS3Service {
+public interface CS3Service extends Closeable {
 
     /**
      * Get information about buckets under a given user.
@@ -40,8 +48,10 @@ public interface CS3Service {
      *    Bucket is a container for storing Objects, and each Object must be stored in a specific bucket.
      *    In the Ceph RGW, each user can create up to 1000 buckets, and each bucket can store an unlimited number of objects.
      * </p>
+     * <p>Buckets known to exist are remembered for {@link CS3Builder#bucketCacheTtl}, calling this method
+     * again for such a bucket sends no request.</p>
      * @param bucketName
-     * @return the bucket information.
+     * @return the bucket information, null if the bucket already existed.
      */
     Bucket createBucket(String bucketName);
 
@@ -53,6 +63,33 @@ public interface CS3Service {
      */
     void removeBucket(String bucketName);
 
+    /**
+     * delete every object of a bucket, or every object under a prefix.
+     * <p>In-progress multipart uploads are aborted, then the listing is streamed into concurrent
+     * multi-object delete requests. With {@link PurgeOptions#removeBucket(boolean)} the empty bucket is
+     * removed at the end.
+     *
+     * @param bucketName The bucket to purge.
+     * @param options prefix, bucket removal, concurrency and progress listener.
+     * @return the final counters of the purge.
+     */
+    PurgeProgress purge(String bucketName, PurgeOptions options);
+
+    /**
+     * upload every file of a directory tree
+     * <p>The tree is walked lazily and fed into a bounded pipeline on the transfer pool: small files are
+     * concurrent single requests, files of at least the multipart threshold are uploaded in parts, all on the
+     * connections and threads of this service. Each file is stored under the prefix followed by its path
+     * relative to the root, with "/" separators. A file that fails is reported in the manifest and does not
+     * stop the others.
+     *
+     * @param bucketName The target bucket.
+     * @param root directory to upload.
+     * @param options key prefix, concurrency and multipart threshold.
+     * @return relative path -> object key of the uploaded files and the failures.
+     */
+    DirectoryManifest uploadDirectory(String bucketName, Path root, UploadDirectoryOptions options);
+
     /**
      * list objects under a given bucket
      * @param bucketName
@@ -60,13 +97,33 @@ public interface CS3Service {
      */
     ObjectListing listObjects(String bucketName);
 
+    /**
+     * lazily list every object under a given bucket
+     * <p>Pages of keys are requested while the iterator is consumed, and the next page is prefetched
+     * in the background. At most two pages are held in memory, so buckets of any size can be walked.
+     * With a delimiter only the keys not grouped under a common prefix are returned.
+     * @param bucketName The specified bucket.
+     * @param options prefix, delimiter, start key and page size.
+     * @return iterator over the object summaries in key order.
+     */
+    Iterator<S3ObjectSummary> iterateObjects(String bucketName, ListObjectsOptions options);
+
+    /**
+     * lazily list every object under a given bucket, see {@link #iterateObjects(String, ListObjectsOptions)}
+     * <p>Closing the stream stops the background prefetch.
+     * @param bucketName The specified bucket.
+     * @param options prefix, delimiter, start key and page size.
+     * @return sequential stream of the object summaries in key order.
+     */
+    Stream<S3ObjectSummary> streamObjects(String bucketName, ListObjectsOptions options);
+
     /**
      * create a new object under a given bucket
      * by local file e.g., new File("localFile")
      * @param bucketName The specified bucket.
      * @param objectKey Unique identifier e.g., UUID
      * @param file local file.
-     * @return S3 Object.
+     * @return S3 Object, described from the upload response.
      */
     S3ObjectSummary createObject(String bucketName, String objectKey, File file);
 
@@ -74,11 +131,18 @@ public interface CS3Service {
     /**
      * create a new object under a given bucket
      * by file stream e.g., new FileInputStream("localFile").
+     * <p>The stream is uploaded in parts as it is read, its length does not need to be known. Parts are
+     * staged in pooled off-heap buffers, see {@link CS3Builder#partBufferPoolBytes(long)}, streams shorter
+     * than 64 KB are sent from the heap. Parts double in size every
+     * {@link org.aaa.ceph.constant.TransferManagerConf#STREAM_PART_GROWTH_INTERVAL} parts, up to
+     * {@code partBufferPoolBytes / (maxPartsInFlight + 1)}; with the defaults parts grow to 40 MB and a stream
+     * can be up to 350,000 MB long. A longer stream fails with a {@link org.aaa.ceph.exception.CephException}
+     * and nothing is stored.
      *
      * @param bucketName The specified bucket.
      * @param objectKey Unique identifier e.g., UUID.
      * @param input Input file stream.
-     * @return
+     * @return S3 Object, described from the upload response.
      */
     S3ObjectSummary createObject(String bucketName, String objectKey, InputStream input);
 
@@ -92,6 +156,116 @@ public interface CS3Service {
      */
     S3Object getObject(String bucketName, String objectKey);
 
+    /**
+     * Get a byte range of the specified object
+     * <p>A range reaching past the end of the object returns the bytes up to the end, an offset at or past
+     * the end fails.
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey  The specified unique identifier.
+     * @param offset position of the first byte.
+     * @param length number of bytes, positive.
+     * @return S3 Object with the content of the range
+     */
+    S3Object getObject(String bucketName, String objectKey, long offset, long length);
+
+    /**
+     * Open a read-only seekable channel over the specified object
+     * <p>The channel reads the object with ranged requests: a random read fetches the block around it, and
+     * sequential reads fetch growing windows ahead. Recently read blocks are kept, so format readers that
+     * jump between headers and footers of large objects only transfer what they read. The channel is not
+     * writable; a concurrent overwrite of the object fails the next uncached read.
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey  The specified unique identifier.
+     * @return channel positioned at the start of the object, close it after use.
+     */
+    SeekableByteChannel getObjectChannel(String bucketName, String objectKey);
+
+    /**
+     * largest object {@link #packObject(String, byte[])} accepts
+     *
+     * @return size limit in bytes, 0 when packing is disabled.
+     * @see CS3Builder#packing(int, long, java.util.concurrent.TimeUnit)
+     */
+    int packedObjectMaxSize();
+
+    /**
+     * Store a small object inside a pack object
+     * <p>The object is appended to the open pack of the bucket, and the call returns once that pack is
+     * stored, together with the other objects that joined it. Read it with
+     * {@link #getPackedObject(String, PackedObject, long, long)}.
+     *
+     * @param bucketName The specified bucket.
+     * @param content content of the object, at most {@link #packedObjectMaxSize()} bytes.
+     * @return location of the object.
+     */
+    PackedObject packObject(String bucketName, byte[] content);
+
+    /**
+     * Store a small object inside a pack object asynchronously, see {@link #packObject(String, byte[])}
+     *
+     * @param bucketName The specified bucket.
+     * @param content content of the object, at most {@link #packedObjectMaxSize()} bytes.
+     * @return future of the location, completed once the pack is stored.
+     */
+    CompletableFuture<PackedObject> packObjectAsync(String bucketName, byte[] content);
+
+    /**
+     * Read part of a packed object
+     * <p>The read is one ranged GET of the pack. The tombstones of a pack are listed once and cached for
+     * {@link org.aaa.ceph.constant.TransferManagerConf#PACK_TOMBSTONE_CACHE_SECONDS} seconds: reading an object
+     * removed through this service fails with a CephException at once, an object removed by another client
+     * stays readable until the cache expires or its pack is compacted.
+     *
+     * @param bucketName The bucket containing the pack.
+     * @param object location of the object.
+     * @param offset first byte to read, relative to the object.
+     * @param length number of bytes to read, cut at the end of the object.
+     * @return InputStream to read data, close it after use.
+     */
+    InputStream getPackedObject(String bucketName, PackedObject object, long offset, long length);
+
+    /**
+     * Read a packed object asynchronously, see {@link #getPackedObject(String, PackedObject, long, long)}
+     *
+     * @param bucketName The bucket containing the pack.
+     * @param object location of the object.
+     * @return future of the content, close it after use.
+     */
+    CompletableFuture<InputStream> getPackedObjectAsync(String bucketName, PackedObject object);
+
+    /**
+     * Remove a packed object
+     * <p>The object is marked as removed, its bytes are freed when its pack is compacted.
+     *
+     * @param bucketName The bucket containing the pack.
+     * @param object location of the object.
+     */
+    void removePackedObject(String bucketName, PackedObject object);
+
+    /**
+     * Remove a packed object asynchronously, see {@link #removePackedObject(String, PackedObject)}
+     *
+     * @param bucketName The bucket containing the pack.
+     * @param object location of the object.
+     * @return future completed when the object is marked as removed.
+     */
+    CompletableFuture<Void> removePackedObjectAsync(String bucketName, PackedObject object);
+
+    /**
+     * Rewrite the packs of the bucket that are mostly made of removed objects
+     * <p>The live objects of every pack whose removed objects take at least {@code minDeadRatio} of its
+     * size are packed again and the pack is removed. Their old locations stop working, store the new
+     * locations of the result. An object removed through its old location while its pack is compacted is
+     * removed from the new pack as well.
+     *
+     * @param bucketName The bucket of the packs.
+     * @param minDeadRatio share of removed bytes in (0, 1] that makes a pack worth compacting.
+     * @return the compacted packs and the new locations of their live objects.
+     */
+    PackCompaction compactPacks(String bucketName, double minDeadRatio);
+
     /**
      * Get the specified object to local file
      *
@@ -101,6 +275,42 @@ public interface CS3Service {
      */
     void getObject(String bucketName, String objectKey, File file);
 
+    /**
+     * Get the specified object to local file, downloading byte ranges in parallel
+     * <p>Objects larger than the multipart threshold are split into ranges that are fetched concurrently
+     * on the transfer pool and written directly at their offset in the file. Smaller objects are
+     * downloaded with a single request.
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param file local file
+     */
+    void parallelGetObject(String bucketName, String objectKey, File file);
+
+    /**
+     * Get an object that is never overwritten, through the memory and local disk caches when they are configured
+     * <p>A cached object is read from memory or disk without any request. Use it only for keys that are written
+     * once, an overwritten object would keep being served from the cache.
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @return InputStream to read data, close it after use.
+     * @see CS3Builder#memoryCache(long, int)
+     * @see CS3Builder#diskCache(File, long)
+     */
+    InputStream getImmutableObject(String bucketName, String objectKey);
+
+    /**
+     * Get an object that is never overwritten to local file, through the local disk cache when one is configured
+     * <p>Without a disk cache, or when the object is too large to be cached, this is {@link #parallelGetObject}.
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param file local file
+     * @see CS3Builder#diskCache(File, long)
+     */
+    void getImmutableObject(String bucketName, String objectKey, File file);
+
 
     /**
      * Remove an existing object.
@@ -111,12 +321,23 @@ public interface CS3Service {
      */
     void removeObject(String bucketName, String objectKey);
 
+    /**
+     * Remove many objects of one bucket.
+     * <p>The keys are deleted with multi-object delete requests of up to 1000 keys, several requests
+     * in flight at a time. Missing keys count as deleted.
+     *
+     * @param bucketName The bucket containing the objects to be removed.
+     * @param objectKeys The objects to remove.
+     * @return the keys that could not be removed with their error, empty if all were removed.
+     */
+    List<MultiObjectDeleteException.DeleteError> removeObjects(String bucketName, Collection<String> objectKeys);
+
 
     /**
      * part upload
      * <p>The simple upload method can only upload objects smaller than 5GB. If you need to upload objects larger than 5GB,
      * you must use the slice upload mode. In addition,you can also use the slice upload mode in the following application scenarios (but not limited to this):
-     * <li> Need to support breakpoint resume.
+     * <li> Need to support breakpoint resume, see {@link #resumablePartUpload(String, String, File)}.
      * <li> Upload files over 100MB in size.
      * <li> The size of the uploaded file cannot be determined until the file is uploaded.
      * <li> Higher throughput is required (using concurrent upload shards).
@@ -139,6 +360,7 @@ public interface CS3Service {
 
     /**
      * 分片上传文件流
+     * <p>Streams of any length are uploaded in parts, see {@link #createObject(String, String, InputStream)}.
      * @param bucketName
      * @param objectKey
      * @param input
@@ -149,12 +371,26 @@ public interface CS3Service {
 
     /**
      * low level part upload
+     * <p>Parts are uploaded concurrently and retried on their own. If a part can not be uploaded,
+     * the multipart upload is aborted and a {@link org.aaa.ceph.exception.CephException} is thrown.
      * @param bucketName
      * @param objectKey
      * @param file
      */
     void lowLevelPartUpload(String bucketName, String objectKey, File file);
 
+    /**
+     * resumable part upload
+     * <p>The upload id, part size and completed parts are recorded in a local checkpoint journal.
+     * If the upload is interrupted, calling this method again with the same arguments asks the server
+     * which parts it already has and only uploads the missing ones. The journal is removed when the
+     * upload completes.
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param file local file
+     */
+    void resumablePartUpload(String bucketName, String objectKey, File file);
+
     /**
      * 分片上传文件流
      * @param bucketName
@@ -173,5 +409,107 @@ public interface CS3Service {
      */
     void highLevelPartUpload(String bucketName, String objectKey, File file);
 
+    /**
+     * occupancy of the off-heap part buffers used by stream uploads
+     *
+     * @return snapshot of the buffer pool.
+     */
+    BufferPoolStats bufferPoolStats();
+
+    /**
+     * hits, misses and evictions of the in-memory object cache, all zero when it is disabled
+     *
+     * @return snapshot of the cache counters.
+     * @see CS3Builder#memoryCache(long, int)
+     */
+    CacheStats memoryCacheStats();
+
+    /**
+     * create a new object asynchronously, see {@link #createObject(String, String, File)}
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey Unique identifier e.g., UUID
+     * @param file local file.
+     * @return future of the S3 Object.
+     */
+    CompletableFuture<S3ObjectSummary> createObjectAsync(String bucketName, String objectKey, File file);
+
+    /**
+     * create a new object asynchronously, see {@link #createObject(String, String, InputStream)}
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey Unique identifier e.g., UUID.
+     * @param input Input file stream.
+     * @return future of the S3 Object.
+     */
+    CompletableFuture<S3ObjectSummary> createObjectAsync(String bucketName, String objectKey, InputStream input);
+
+    /**
+     * Get the specified object asynchronously, see {@link #getObject(String, String)}
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey  The specified unique identifier.
+     * @return future of the S3 Object, its content stream must be closed by the caller.
+     */
+    CompletableFuture<S3Object> getObjectAsync(String bucketName, String objectKey);
+
+    /**
+     * Get a byte range of the specified object asynchronously, see {@link #getObject(String, String, long, long)}
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey  The specified unique identifier.
+     * @param offset position of the first byte.
+     * @param length number of bytes, positive.
+     * @return future of the S3 Object, its content stream must be closed by the caller.
+     */
+    CompletableFuture<S3Object> getObjectAsync(String bucketName, String objectKey, long offset, long length);
+
+    /**
+     * Get the specified object to local file asynchronously, see {@link #parallelGetObject(String, String, File)}
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param file local file
+     * @return future completed when the file is written.
+     */
+    CompletableFuture<Void> getObjectAsync(String bucketName, String objectKey, File file);
+
+    /**
+     * Remove an existing object asynchronously, see {@link #removeObject(String, String)}
+     *
+     * @param bucketName The bucket containing the object to be removed.
+     * @param objectKey The object to remove.
+     * @return future completed when the object is removed.
+     */
+    CompletableFuture<Void> removeObjectAsync(String bucketName, String objectKey);
+
+    /**
+     * part upload asynchronously, see {@link #partUpload(String, String, File)}
+     * <p>No thread waits for the upload, the future is completed by the transfer manager.
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param file local file
+     * @return future of the upload result.
+     */
+    CompletableFuture<UploadResult> partUploadAsync(String bucketName, String objectKey, File file);
+
+    /**
+     * low level part upload asynchronously, see {@link #lowLevelPartUpload(String, String, File)}
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param file local file
+     * @return future completed when the upload is completed.
+     */
+    CompletableFuture<Void> lowLevelPartUploadAsync(String bucketName, String objectKey, File file);
+
+    /**
+     * Release the transfer threads and the connection pool.
+     * <p>Waits for running transfers to finish, the service can not be used afterwards.
+     */
+    @Override
+    void close();
+
 
 }
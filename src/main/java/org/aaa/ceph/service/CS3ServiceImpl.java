@@ -10,35 +10,58 @@ package org.aaa.ceph.service;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.ClientConfiguration;
-import com.amazonaws.Protocol;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
-import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressEventType;
 import com.amazonaws.event.ProgressListener;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.*;
-import com.amazonaws.services.s3.transfer.TransferManager;
-import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
-import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
 import com.amazonaws.services.s3.transfer.Upload;
 import com.amazonaws.services.s3.transfer.model.UploadResult;
 import com.amazonaws.util.StringUtils;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import okhttp3.HttpUrl;
 import org.aaa.ceph.constant.TransferManagerConf;
 import org.aaa.ceph.exception.CephException;
+import org.aaa.ceph.metrics.MetricsListener;
+import org.aaa.ceph.metrics.Operation;
+import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.*;
-import java.util.logging.Logger;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * common simple storage service Service Implementation
@@ -48,8 +71,110 @@ import java.util.logging.Logger;
  */
 public class CS3ServiceImpl implements CS3Service {
 
+  /**
+   * error code of creating a bucket the user already owns
+   */
+  private static final String BUCKET_ALREADY_OWNED = "BucketAlreadyOwnedByYou";
+
+  /**
+   * payload of operations that transfer no object data
+   */
+  private static final ToLongFunction<Object> NO_BYTES = result -> 0;
+
+  private static final Log LOG = LogFactory.getLog(CS3ServiceImpl.class);
+
   private final AmazonS3 amazonS3;
 
+  /**
+   * shared thread pool and transfer manager
+   */
+  private final TransferEngine transferEngine;
+
+  /**
+   * off-heap part buffers of stream uploads
+   */
+  private final PartBufferPool partBufferPool;
+
+  /**
+   * parallel low level multipart upload
+   */
+  private final MultipartUploader multipartUploader;
+
+  /**
+   * parallel ranged download
+   */
+  private final RangedDownloader rangedDownloader;
+
+  /**
+   * retries of the range requests of object channels
+   */
+  private final RetryPolicy rangeRetryPolicy;
+
+  /**
+   * hedged object reads, null when hedging is disabled
+   */
+  private final HedgedReader hedgedReader;
+
+  /**
+   * parallel multi-object delete
+   */
+  private final BatchDeleter batchDeleter;
+
+  /**
+   * bucket and prefix purge
+   */
+  private final BucketPurger bucketPurger;
+
+  /**
+   * directory of the resumable upload journals
+   */
+  private final File checkpointDirectory;
+
+  /**
+   * buckets known to exist
+   */
+  private final BucketCache bucketCache;
+
+  /**
+   * tombstones of the packs recently read
+   */
+  private final TombstoneCache tombstoneCache;
+
+  /**
+   * executor of the asynchronous operations
+   */
+  private final ExecutorService asyncExecutor;
+
+  /**
+   * true if the async executor was created by this service and must be shut down with it
+   */
+  private final boolean ownsAsyncExecutor;
+
+  /**
+   * listener of every operation
+   */
+  private final MetricsListener metrics;
+
+  /**
+   * read-through cache of immutable objects, null when disabled
+   */
+  private final DiskObjectCache diskCache;
+
+  /**
+   * off-heap cache of small immutable objects in front of the disk cache, null when disabled
+   */
+  private final MemoryObjectCache memoryCache;
+
+  /**
+   * small object packing, null when disabled
+   */
+  private final ObjectPacker objectPacker;
+
+  /**
+   * directory tree upload
+   */
+  private final DirectoryUploader directoryUploader;
+
   /**
    * Create a S3 operation implementation
    *
@@ -58,20 +183,67 @@ public class CS3ServiceImpl implements CS3Service {
    * @param endpoint  Radosgw user  API endpoint, e.g., http://127.0.0.1:80
    */
   public CS3ServiceImpl(String accessKey, String secretKey, String endpoint) {
-    validEndpoint(endpoint);
-    AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-    ClientConfiguration clientConfig = new ClientConfiguration();
-    clientConfig.setProtocol(Protocol.HTTP);
-    amazonS3 = AmazonS3ClientBuilder.standard()
+    this(new CS3Builder().accessKey(accessKey).secretKey(secretKey).endpoint(endpoint));
+  }
+
+  /**
+   * Create a S3 operation implementation from the builder properties
+   *
+   * @param builder configured builder
+   */
+  CS3ServiceImpl(CS3Builder builder) {
+    List<String> endpoints = builder.getEndpoints();
+    endpoints.forEach(CS3ServiceImpl::validEndpoint);
+    if (endpoints.size() == 1) {
+      amazonS3 = newAmazonS3(builder, endpoints.get(0));
+    } else {
+      amazonS3 = new EndpointBalancer(endpoints, endpoint -> newAmazonS3(builder, endpoint),
+              builder.getHealthCheckIntervalMillis()).proxy();
+    }
+    metrics = builder.getMetricsListener();
+    transferEngine = new TransferEngine(amazonS3, builder.getTransferPoolSize(),
+            builder.getTransferQueueCapacity(), builder.getTransferThreadNameFormat());
+    partBufferPool = new PartBufferPool(TransferManagerConf.MINIMUM_UPLOAD_PART_SIZE.intValue(),
+            builder.getPartBufferPoolBytes());
+    multipartUploader = new MultipartUploader(amazonS3, transferEngine.executor(), partBufferPool,
+            builder.getMaxPartsInFlight(), builder.getPartUploadRetries(), metrics);
+    rangedDownloader = new RangedDownloader(amazonS3, transferEngine.executor(),
+            builder.getMaxPartsInFlight(), builder.getPartUploadRetries(), metrics);
+    rangeRetryPolicy = new RetryPolicy(builder.getPartUploadRetries(), metrics, Operation.GET_RANGE);
+    hedgedReader = builder.getHedgePercentile() > 0 ? new HedgedReader(amazonS3, builder.getHedgePercentile()) : null;
+    batchDeleter = new BatchDeleter(amazonS3, transferEngine.executor(),
+            builder.getMaxPartsInFlight(), builder.getPartUploadRetries(), metrics);
+    bucketPurger = new BucketPurger(amazonS3, transferEngine.executor(), batchDeleter,
+            builder.getMaxPartsInFlight(), builder.getPartUploadRetries(), metrics);
+    checkpointDirectory = builder.getCheckpointDirectory();
+    bucketCache = new BucketCache(builder.getBucketCacheTtlNanos());
+    tombstoneCache = new TombstoneCache(TimeUnit.SECONDS.toNanos(TransferManagerConf.PACK_TOMBSTONE_CACHE_SECONDS),
+            TransferManagerConf.PACK_TOMBSTONE_CACHE_PACKS);
+    diskCache = builder.getDiskCacheDirectory() == null ? null
+            : new DiskObjectCache(builder.getDiskCacheDirectory(), builder.getDiskCacheMaxBytes());
+    memoryCache = builder.getMemoryCacheMaxBytes() == 0 ? null
+            : new MemoryObjectCache(builder.getMemoryCacheMaxBytes(), builder.getMemoryCacheMaxObjectSize());
+    objectPacker = builder.getPackMaxObjectSize() == 0 ? null
+            : new ObjectPacker(amazonS3, transferEngine.executor(), partBufferPool, batchDeleter,
+            builder.getPartUploadRetries(), metrics, builder.getPackMaxObjectSize(), builder.getPackLingerNanos());
+    ownsAsyncExecutor = builder.getAsyncExecutor() == null;
+    asyncExecutor = ownsAsyncExecutor ? newAsyncExecutor() : builder.getAsyncExecutor();
+    directoryUploader = new DirectoryUploader(transferEngine.executor(), asyncExecutor, builder.getMaxPartsInFlight(),
+            this::createObject, this::lowLevelPartUpload);
+  }
+
+
+  private static AmazonS3 newAmazonS3(CS3Builder builder, String endpoint) {
+    AWSCredentials credentials = new BasicAWSCredentials(builder.getAccessKey(), builder.getSecretKey());
+    ClientConfiguration clientConfig = builder.getClientConfiguration();
+    return AmazonS3ClientBuilder.standard()
             .withClientConfiguration(clientConfig)
             .withCredentials(new AWSStaticCredentialsProvider(credentials))
             .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, ""))
             .withPathStyleAccessEnabled(true)
             .build();
-
   }
 
-
   private static void validEndpoint(String endpoint) {
     if (HttpUrl.parse(endpoint) == null) {
       throw new IllegalArgumentException("endpoint is invalid");
@@ -80,362 +252,649 @@ public class CS3ServiceImpl implements CS3Service {
 
   @Override
   public List<Bucket> listBuckets() {
-    List<Bucket> buckets = new ArrayList<>();
     try {
-      buckets = amazonS3.listBuckets();
-      for (Bucket bucket : buckets) {
-        System.out.println(bucket.getName() + "\t" + StringUtils.fromDate(bucket.getCreationDate()));
+      List<Bucket> buckets = metered(Operation.LIST_BUCKETS, null, amazonS3::listBuckets, NO_BYTES);
+      if (LOG.isDebugEnabled()) {
+        for (Bucket bucket : buckets) {
+          LOG.debug(bucket.getName() + "\t" + StringUtils.fromDate(bucket.getCreationDate()));
+        }
       }
+      return buckets;
     } catch (AmazonS3Exception e) {
-      e.printStackTrace();
-      throw new CephException(e.getMessage());
+      throw new CephException(e.getMessage(), e);
     }
-    return buckets;
   }
 
   @Override
   public Bucket createBucket(String bucketName) {
-    Bucket bucket = null;
-    try {
-      //List<Bucket> buckets = amazonS3.listBuckets();
-      // bucket existed
-      if (!amazonS3.doesBucketExistV2(bucketName)) {
-        bucket = amazonS3.createBucket(bucketName);
-      }
-    } catch (AmazonS3Exception e) {
-      e.printStackTrace();
-      throw new CephException(e.getMessage());
+    if (bucketCache.contains(bucketName)) {
+      return null;
     }
+    Bucket bucket = metered(Operation.CREATE_BUCKET, bucketName, () -> {
+      try {
+        // bucket existed
+        if (!amazonS3.doesBucketExistV2(bucketName)) {
+          return Optional.of(amazonS3.createBucket(bucketName));
+        }
+      } catch (AmazonS3Exception e) {
+        // created concurrently by another caller
+        if (!BUCKET_ALREADY_OWNED.equals(e.getErrorCode())) {
+          throw new CephException(e.getMessage(), e);
+        }
+      }
+      return Optional.<Bucket>empty();
+    }, NO_BYTES).orElse(null);
+    bucketCache.add(bucketName);
     return bucket;
   }
 
   @Override
   public void removeBucket(String bucketName) {
+    bucketCache.invalidate(bucketName);
     try {
-      if (amazonS3.doesBucketExistV2(bucketName)) {
-        amazonS3.deleteBucket(bucketName);
+      metered(Operation.REMOVE_BUCKET, bucketName, 0, () -> {
+        try {
+          amazonS3.deleteBucket(bucketName);
+        } catch (AmazonS3Exception e) {
+          if (e.getStatusCode() != 404) {
+            throw new CephException(e.getMessage(), e);
+          }
+        }
+      });
+    } finally {
+      bucketCache.invalidate(bucketName);
+    }
+  }
+
+  @Override
+  public PurgeProgress purge(String bucketName, PurgeOptions options) {
+    if (options.isRemoveBucket()) {
+      bucketCache.invalidate(bucketName);
+    }
+    if (diskCache != null) {
+      // the purged keys are not known here, forget the whole bucket
+      diskCache.invalidateBucket(bucketName);
+    }
+    if (memoryCache != null) {
+      memoryCache.invalidateBucket(bucketName);
+    }
+    try {
+      return metered(Operation.PURGE_BUCKET, bucketName, () -> bucketPurger.purge(bucketName, options), NO_BYTES);
+    } catch (SdkClientException e) {
+      throw new CephException(e.getMessage(), e);
+    } finally {
+      if (options.isRemoveBucket()) {
+        bucketCache.invalidate(bucketName);
       }
-    } catch (AmazonS3Exception e) {
-      e.printStackTrace();
-      throw new CephException(e.getMessage());
     }
-    return;
   }
 
   @Override
   public ObjectListing listObjects(String bucketName) {
-    ObjectListing objects;
     try {
-      objects = amazonS3.listObjects(bucketName);
-      for (S3ObjectSummary object : objects.getObjectSummaries()) {
-        System.out.println(object.getKey() + "\t" + object.getSize() + "\t" + StringUtils.fromDate(object.getLastModified()));
+      ObjectListing objects = metered(Operation.LIST_OBJECTS, bucketName, () -> amazonS3.listObjects(bucketName), NO_BYTES);
+      if (LOG.isDebugEnabled()) {
+        for (S3ObjectSummary object : objects.getObjectSummaries()) {
+          LOG.debug(object.getKey() + "\t" + object.getSize() + "\t" + StringUtils.fromDate(object.getLastModified()));
+        }
       }
+      return objects;
     } catch (AmazonS3Exception e) {
-      e.printStackTrace();
-      throw new CephException(e.getMessage());
+      throw new CephException(e.getMessage(), e);
     }
-    return objects;
+  }
+
+  @Override
+  public Iterator<S3ObjectSummary> iterateObjects(String bucketName, ListObjectsOptions options) {
+    return new ObjectListingIterator(amazonS3, transferEngine.executor(), bucketName, options, metrics);
+  }
+
+  @Override
+  public Stream<S3ObjectSummary> streamObjects(String bucketName, ListObjectsOptions options) {
+    ObjectListingIterator iterator = new ObjectListingIterator(amazonS3, transferEngine.executor(), bucketName, options, metrics);
+    Spliterator<S3ObjectSummary> spliterator = Spliterators.spliteratorUnknownSize(iterator,
+            Spliterator.ORDERED | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(iterator::close);
   }
 
   @Override
   public S3ObjectSummary createObject(String bucketName, String objectKey, File file) {
-    S3ObjectSummary newObject = new S3ObjectSummary();
     if (!file.isFile()) {
       throw new CephException("Upload file is wrong");
     }
     try {
-      amazonS3.putObject(bucketName, objectKey, file);
-      ObjectListing objects = amazonS3.listObjects(bucketName);
-      for (S3ObjectSummary object : objects.getObjectSummaries()) {
-        if (object.getKey().equals(objectKey)) {
-          newObject = object;
-          break;
-        }
-      }
+      return metered(Operation.PUT_OBJECT, bucketName, () -> {
+        PutObjectResult result = amazonS3.putObject(bucketName, objectKey, file);
+        return toSummary(bucketName, objectKey, result, file.length());
+      }, S3ObjectSummary::getSize);
     } catch (AmazonS3Exception e) {
-      throw new CephException(e.getMessage());
+      throw new CephException(e.getMessage(), e);
     }
-    return newObject;
   }
 
   @Override
   public S3ObjectSummary createObject(String bucketName, String objectKey, InputStream input) {
-    S3ObjectSummary newObject = new S3ObjectSummary();
     try {
-      amazonS3.putObject(bucketName, objectKey, input, new ObjectMetadata());
-      ObjectListing objects = amazonS3.listObjects(bucketName);
-      for (S3ObjectSummary object : objects.getObjectSummaries()) {
-        if (object.getKey().equals(objectKey)) {
-          newObject = object;
-          break;
-        }
-      }
-    } catch (AmazonS3Exception e) {
-      e.printStackTrace();
-      throw new CephException(e.getMessage());
+      // streamed in parts, the length of the stream does not need to be known
+      return metered(Operation.PUT_OBJECT, bucketName,
+              () -> multipartUploader.upload(bucketName, objectKey, input), S3ObjectSummary::getSize);
+    } catch (SdkClientException e) {
+      throw new CephException(e.getMessage(), e);
     }
-    return newObject;
+  }
+
+  /**
+   * describe a new object from the put response, without listing the bucket
+   */
+  private static S3ObjectSummary toSummary(String bucketName, String objectKey, PutObjectResult result, long size) {
+    S3ObjectSummary summary = new S3ObjectSummary();
+    summary.setBucketName(bucketName);
+    summary.setKey(objectKey);
+    summary.setETag(result.getETag());
+    summary.setSize(size);
+    Date lastModified = result.getMetadata() == null ? null : result.getMetadata().getLastModified();
+    summary.setLastModified(lastModified == null ? new Date() : lastModified);
+    return summary;
   }
 
   @Override
   public S3Object getObject(String bucketName, String objectKey) {
-    S3Object object;
     try {
-      object = amazonS3.getObject(bucketName, objectKey);
+      // the latency is the time to the response headers, the content is read by the caller
+      return metered(Operation.GET_OBJECT, bucketName,
+              () -> hedgedReader == null ? amazonS3.getObject(bucketName, objectKey) : hedgedReader.getObject(bucketName, objectKey),
+              object -> object.getObjectMetadata().getContentLength());
     } catch (AmazonS3Exception e) {
-      e.printStackTrace();
-      throw new CephException(e.getMessage());
+      throw new CephException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public S3Object getObject(String bucketName, String objectKey, long offset, long length) {
+    if (offset < 0 || length <= 0) {
+      throw new IllegalArgumentException("Offset must not be negative and length must be positive.");
+    }
+    long end = offset + Math.min(length, Long.MAX_VALUE - offset) - 1;
+    try {
+      return metered(Operation.GET_RANGE, bucketName,
+              () -> amazonS3.getObject(new GetObjectRequest(bucketName, objectKey).withRange(offset, end)),
+              object -> object.getObjectMetadata().getContentLength());
+    } catch (AmazonS3Exception e) {
+      throw new CephException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public SeekableByteChannel getObjectChannel(String bucketName, String objectKey) {
+    try {
+      ObjectMetadata metadata = metered(Operation.HEAD_OBJECT, bucketName,
+              () -> amazonS3.getObjectMetadata(bucketName, objectKey), NO_BYTES);
+      return new ObjectChannel(amazonS3, rangeRetryPolicy, bucketName, objectKey, metadata);
+    } catch (AmazonS3Exception e) {
+      throw new CephException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public int packedObjectMaxSize() {
+    return objectPacker == null ? 0 : objectPacker.getMaxObjectSize();
+  }
+
+  @Override
+  public PackedObject packObject(String bucketName, byte[] content) {
+    try {
+      return packObjectAsync(bucketName, content).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CephException("Pack interrupted", e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof CephException ? (CephException) e.getCause()
+              : new CephException(e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  @Override
+  public CompletableFuture<PackedObject> packObjectAsync(String bucketName, byte[] content) {
+    return packer().append(bucketName, content);
+  }
+
+  @Override
+  public InputStream getPackedObject(String bucketName, PackedObject object, long offset, long length) {
+    if (offset < 0 || length <= 0) {
+      throw new IllegalArgumentException("Offset must not be negative and length must be positive.");
+    }
+    Set<String> tombstones;
+    try {
+      tombstones = tombstoneCache.get(bucketName, object.getPackKey(), () -> metered(Operation.LIST_OBJECTS, bucketName,
+              () -> new HashSet<>(ObjectPacker.listTombstones(amazonS3, bucketName, object.getPackKey())), NO_BYTES));
+    } catch (SdkClientException e) {
+      throw new CephException(e.getMessage(), e);
+    }
+    if (tombstones.contains(ObjectPacker.tombstoneKey(object))) {
+      throw new CephException("Packed object " + object + " was removed");
+    }
+    if (offset >= object.getLength()) {
+      return new ByteArrayInputStream(new byte[0]);
+    }
+    return getObject(bucketName, object.getPackKey(), object.getOffset() + offset,
+            Math.min(length, object.getLength() - offset)).getObjectContent();
+  }
+
+  @Override
+  public CompletableFuture<InputStream> getPackedObjectAsync(String bucketName, PackedObject object) {
+    return CompletableFuture.supplyAsync(() -> getPackedObject(bucketName, object, 0, Long.MAX_VALUE), asyncExecutor);
+  }
+
+  @Override
+  public void removePackedObject(String bucketName, PackedObject object) {
+    ObjectPacker packer = packer();
+    try {
+      metered(Operation.REMOVE_OBJECT, bucketName, 0, () -> packer.remove(bucketName, object));
+    } catch (SdkClientException e) {
+      throw new CephException(e.getMessage(), e);
+    } finally {
+      tombstoneCache.invalidate(bucketName, object.getPackKey());
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> removePackedObjectAsync(String bucketName, PackedObject object) {
+    return CompletableFuture.runAsync(() -> removePackedObject(bucketName, object), asyncExecutor);
+  }
+
+  @Override
+  public PackCompaction compactPacks(String bucketName, double minDeadRatio) {
+    if (!(minDeadRatio > 0 && minDeadRatio <= 1)) {
+      throw new IllegalArgumentException("Dead ratio must be in (0, 1].");
+    }
+    ObjectPacker packer = packer();
+    try (Stream<S3ObjectSummary> listing = streamObjects(bucketName,
+            new ListObjectsOptions().prefix(TransferManagerConf.PACK_KEY_PREFIX))) {
+      return packer.compact(bucketName, listing, minDeadRatio);
+    } catch (SdkClientException e) {
+      throw new CephException(e.getMessage(), e);
+    }
+  }
+
+  private ObjectPacker packer() {
+    if (objectPacker == null) {
+      throw new CephException("Object packing is disabled, enable it with CS3Builder#packing");
     }
-    return object;
+    return objectPacker;
   }
 
   @Override
   public void getObject(String bucketName, String objectKey, File file) {
     try {
-      GetObjectRequest request = new GetObjectRequest(bucketName, objectKey);
-      amazonS3.getObject(request, file);
+      metered(Operation.GET_OBJECT, bucketName,
+              () -> amazonS3.getObject(new GetObjectRequest(bucketName, objectKey), file), ObjectMetadata::getContentLength);
     } catch (AmazonS3Exception e) {
-      e.printStackTrace();
-      throw new CephException(e.getMessage());
+      throw new CephException(e.getMessage(), e);
     }
   }
 
   @Override
-  public void removeObject(String bucketName, String objectKey) {
+  public void parallelGetObject(String bucketName, String objectKey, File file) {
+    try {
+      metered(Operation.GET_OBJECT, bucketName, () -> {
+        rangedDownloader.download(bucketName, objectKey, file);
+        return file;
+      }, File::length);
+    } catch (SdkClientException e) {
+      throw new CephException(e.getMessage(), e);
+    }
+  }
+
+  private void parallelGetObject(String bucketName, String objectKey, File file, ObjectMetadata metadata) {
+    try {
+      metered(Operation.GET_OBJECT, bucketName, () -> {
+        rangedDownloader.download(bucketName, objectKey, file, metadata);
+        return file;
+      }, File::length);
+    } catch (SdkClientException e) {
+      throw new CephException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public InputStream getImmutableObject(String bucketName, String objectKey) {
+    if (memoryCache == null) {
+      return getThroughDiskCache(bucketName, objectKey);
+    }
+    byte[] cached = memoryCache.get(bucketName, objectKey);
+    if (cached != null) {
+      return new ByteArrayInputStream(cached);
+    }
+    return memoryCache.load(bucketName, objectKey, getThroughDiskCache(bucketName, objectKey));
+  }
+
+  private InputStream getThroughDiskCache(String bucketName, String objectKey) {
+    if (diskCache == null) {
+      return getObject(bucketName, objectKey).getObjectContent();
+    }
+    InputStream cached = diskCache.open(bucketName, objectKey);
+    if (cached != null) {
+      return cached;
+    }
+    S3Object object = getObject(bucketName, objectKey);
     try {
-      if (amazonS3.doesObjectExist(bucketName, objectKey)) {
+      cached = diskCache.put(bucketName, objectKey, object);
+    } catch (IOException | CephException e) {
+      LOG.warn("Caching of " + objectKey + " failed, reading it without the cache", e);
+      return getObject(bucketName, objectKey).getObjectContent();
+    }
+    // too large to be cached
+    return cached == null ? object.getObjectContent() : cached;
+  }
+
+  @Override
+  public void getImmutableObject(String bucketName, String objectKey, File file) {
+    InputStream cached = diskCache == null ? null : diskCache.open(bucketName, objectKey);
+    if (diskCache != null && cached == null) {
+      ObjectMetadata metadata;
+      try {
+        metadata = metered(Operation.HEAD_OBJECT, bucketName,
+                () -> amazonS3.getObjectMetadata(bucketName, objectKey), NO_BYTES);
+      } catch (SdkClientException e) {
+        throw new CephException(e.getMessage(), e);
+      }
+      // too large to be cached, download it in ranges without reading it twice
+      if (metadata.getContentLength() > diskCache.getMaxObjectBytes()) {
+        parallelGetObject(bucketName, objectKey, file, metadata);
+        return;
+      }
+      S3Object object = getObject(bucketName, objectKey);
+      try {
+        cached = diskCache.put(bucketName, objectKey, object);
+      } catch (IOException | CephException e) {
+        LOG.warn("Caching of " + objectKey + " failed, reading it without the cache", e);
+      }
+      if (cached == null) {
+        object.getObjectContent().abort();
+      }
+    }
+    if (cached == null) {
+      parallelGetObject(bucketName, objectKey, file);
+      return;
+    }
+    try (InputStream in = cached) {
+      Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new CephException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void removeObject(String bucketName, String objectKey) {
+    if (diskCache != null) {
+      diskCache.invalidate(bucketName, objectKey);
+    }
+    if (memoryCache != null) {
+      memoryCache.invalidate(bucketName, objectKey);
+    }
+    metered(Operation.REMOVE_OBJECT, bucketName, 0, () -> {
+      try {
+        // deleting a missing key succeeds, no need to check it first
         amazonS3.deleteObject(bucketName, objectKey);
+      } catch (AmazonS3Exception e) {
+        if (e.getStatusCode() != 404) {
+          throw new CephException(e.getMessage(), e);
+        }
       }
-    } catch (AmazonS3Exception e) {
-      e.printStackTrace();
-      throw new CephException(e.getMessage());
+    });
+  }
+
+  @Override
+  public List<MultiObjectDeleteException.DeleteError> removeObjects(String bucketName, Collection<String> objectKeys) {
+    if (diskCache != null) {
+      objectKeys.forEach(objectKey -> diskCache.invalidate(bucketName, objectKey));
     }
+    if (memoryCache != null) {
+      objectKeys.forEach(objectKey -> memoryCache.invalidate(bucketName, objectKey));
+    }
+    return metered(Operation.REMOVE_OBJECTS, bucketName, () -> batchDeleter.delete(bucketName, objectKeys), NO_BYTES);
+  }
+
+  @Override
+  public DirectoryManifest uploadDirectory(String bucketName, Path root, UploadDirectoryOptions options) {
+    return directoryUploader.upload(bucketName, root, options);
   }
 
   @Override
   public void highLevelPartUpload(String bucketName, String objectKey, File file) {
     try {
-      TransferManager tm = TransferManagerBuilder.standard()
-              .withS3Client(amazonS3)
-              .build();
-
-      // TransferManager processes all transfers asynchronously,
-      // so this call returns immediately.
-      PutObjectRequest request = new PutObjectRequest(bucketName, objectKey, file);
-      // set the listener
-      request.setGeneralProgressListener(new ProgressListener() {
-        Long totalSize = 0L;
-
-        @Override
-        public void progressChanged(ProgressEvent progressEvent) {
-          Long transferred = progressEvent.getBytesTransferred();
-          totalSize = totalSize + transferred;
-          System.out.println("total transferred bytes: " + totalSize);
+      metered(Operation.MULTIPART_UPLOAD, bucketName, file.length(), () -> {
+        // TransferManager processes all transfers asynchronously,
+        // so this call returns immediately.
+        Upload upload = transferEngine.transferManager().upload(new PutObjectRequest(bucketName, objectKey, file));
+        // Optionally, wait for the upload to finish before continuing.
+        try {
+          upload.waitForCompletion();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new CephException(e.getMessage(), e);
         }
       });
-      Upload upload = tm.upload(request);
-      System.out.println("Object upload started");
-      // Optionally, wait for the upload to finish before continuing.
-      upload.waitForCompletion();
-      System.out.println("Object upload complete");
-    } catch (InterruptedException | SdkClientException e) {
+    } catch (SdkClientException | CephException e) {
       // The call was transmitted successfully, but Amazon S3 couldn't process
       // it, so it returned an error response.
-      e.printStackTrace();
+      LOG.error("Upload of " + objectKey + " failed", e);
     }
   }
 
   @Override
   public void highLevelPartUpload(String bucketName, String objectKey, InputStream inputStream) {
+    createObject(bucketName, objectKey, inputStream);
+  }
+
+  @Override
+  public UploadResult partUpload(String bucketName, String objectKey, File file) {
     try {
-      TransferManager tm = TransferManagerBuilder.standard()
-              .withS3Client(amazonS3)
-              .build();
-
-      // TransferManager processes all transfers asynchronously,
-      // so this call returns immediately.
-      PutObjectRequest request = new PutObjectRequest(bucketName, objectKey, inputStream, new ObjectMetadata());
-      // set the listener
-      request.setGeneralProgressListener(new ProgressListener() {
-        Long totalSize = 0L;
-
-        @Override
-        public void progressChanged(ProgressEvent progressEvent) {
-          Long transferred = progressEvent.getBytesTransferred();
-          totalSize = totalSize + transferred;
-          System.out.println("total transferred bytes: " + totalSize);
+      return metered(Operation.MULTIPART_UPLOAD, bucketName, () -> {
+        // TransferManager 采用异步方式进行处理，因此该调用会立即返回
+        Upload upload = transferEngine.transferManager().upload(new PutObjectRequest(bucketName, objectKey, file));
+        try {
+          // 等待上传全部完成
+          return upload.waitForUploadResult();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new CephException(e.getMessage(), e);
         }
-      });
-      Upload upload = tm.upload(request);
-      System.out.println("Object upload started");
-      // Optionally, wait for the upload to finish before continuing.
-      upload.waitForCompletion();
-      System.out.println("Object upload complete");
-    } catch (InterruptedException | SdkClientException e) {
-      // The call was transmitted successfully, but Amazon S3 couldn't process
-      // it, so it returned an error response.
-      e.printStackTrace();
+      }, result -> file.length());
+    } catch (AmazonClientException e) {
+      throw new CephException(e.getMessage(), e);
     }
   }
 
   @Override
-  public UploadResult partUpload(String bucketName, String objectKey, File file) {
-    ExecutorService pool = initExcutor();
-
-    TransferManager tm = this.initTransferManager(pool);
-    // TransferManager 采用异步方式进行处理，因此该调用会立即返回
-    PutObjectRequest request = new PutObjectRequest(bucketName, objectKey, file);
-
-    // set the listener
-    request.setGeneralProgressListener(new ProgressListener() {
-      Long totalSize = 0L;
-
-      @Override
-      public void progressChanged(ProgressEvent progressEvent) {
-        Long transferred = progressEvent.getBytesTransferred();
-        totalSize += transferred;
-        System.out.println("total transferred bytes: " + totalSize);
-      }
-    });
+  public UploadResult partUpload(String bucketName, String objectKey, InputStream input) {
+    S3ObjectSummary summary = createObject(bucketName, objectKey, input);
+    UploadResult result = new UploadResult();
+    result.setBucketName(bucketName);
+    result.setKey(objectKey);
+    result.setETag(summary.getETag());
+    return result;
+  }
 
-    Upload upload = tm.upload(request);
-    UploadResult result;
+  @Override
+  public void lowLevelPartUpload(String bucketName, String objectKey, File file) {
     try {
-      // 等待上传全部完成
-      result = upload.waitForUploadResult();
-      System.out.println("Upload complete.");
+      metered(Operation.MULTIPART_UPLOAD, bucketName, file.length(),
+              () -> multipartUploader.upload(bucketName, objectKey, file));
+    } catch (SdkClientException e) {
+      throw new CephException(e.getMessage(), e);
+    }
+  }
 
-    } catch (AmazonClientException | InterruptedException e) {
+  @Override
+  public void resumablePartUpload(String bucketName, String objectKey, File file) {
+    // one journal per bucket, object and source file
+    String name = bucketName + "\n" + objectKey + "\n" + file.getAbsolutePath();
+    File journal = new File(checkpointDirectory, Hashing.sha256().hashString(name, StandardCharsets.UTF_8) + ".checkpoint");
+    try {
+      metered(Operation.MULTIPART_UPLOAD, bucketName, file.length(),
+              () -> multipartUploader.resumableUpload(bucketName, objectKey, file, journal));
+    } catch (SdkClientException e) {
+      throw new CephException(e.getMessage(), e);
+    }
+  }
 
-      e.printStackTrace();
-      throw new CephException(e.getMessage());
+  /**
+   * Run a service operation and report it to the metrics listener.
+   *
+   * @param bytes payload of the result, sent or received depending on the operation
+   */
+  private <T> T metered(Operation operation, String bucketName, Supplier<T> call, ToLongFunction<? super T> bytes) {
+    metrics.operationStarted(operation, bucketName);
+    long start = System.nanoTime();
+    T result = null;
+    RuntimeException error = null;
+    try {
+      result = call.get();
+      return result;
+    } catch (RuntimeException e) {
+      error = e;
+      throw e;
     } finally {
-      this.shutdown(tm, pool);
+      metrics.operationCompleted(operation, bucketName, System.nanoTime() - start,
+              result == null ? 0 : bytes.applyAsLong(result), error);
     }
-    return result;
+  }
+
+  private void metered(Operation operation, String bucketName, long bytes, Runnable call) {
+    metered(operation, bucketName, () -> {
+      call.run();
+      return Boolean.TRUE;
+    }, done -> bytes);
   }
 
   @Override
-  public UploadResult partUpload(String bucketName, String objectKey, InputStream input) {
-    ExecutorService pool = initExcutor();
-    // 初始化transfermanager
-    TransferManager tm = this.initTransferManager(pool);
-
-    //上传文件流
-    ObjectMetadata objectMetadata = new ObjectMetadata();
-    objectMetadata.setContentLength(TransferManagerConf.MINIMUM_UPLOAD_PART_SIZE);
-    // TransferManager 采用异步方式进行处理，因此该调用会立即返回
-    PutObjectRequest request = new PutObjectRequest(bucketName, objectKey, input, objectMetadata);
-
-    // set the listener
-    request.setGeneralProgressListener(new ProgressListener() {
-      Long totalSize = 0L;
-
-      @Override
-      public void progressChanged(ProgressEvent progressEvent) {
-        Long transferred = progressEvent.getBytesTransferred();
-        totalSize = totalSize + transferred;
-        System.out.println("total transferred bytes: " + totalSize);
-      }
-    });
+  public BufferPoolStats bufferPoolStats() {
+    return partBufferPool.stats();
+  }
 
-    Upload upload = tm.upload(request);
-    UploadResult result;
-    try {
-      // 等待上传全部完成
-      result = upload.waitForUploadResult();
-      System.out.println("Upload complete.");
+  @Override
+  public CacheStats memoryCacheStats() {
+    return memoryCache == null ? new CacheStats(0, 0, 0, 0, 0, 0, 0) : memoryCache.stats();
+  }
 
-    } catch (AmazonClientException | InterruptedException e) {
+  @Override
+  public CompletableFuture<S3ObjectSummary> createObjectAsync(String bucketName, String objectKey, File file) {
+    return CompletableFuture.supplyAsync(() -> createObject(bucketName, objectKey, file), asyncExecutor);
+  }
 
-      e.printStackTrace();
-      throw new CephException(e.getMessage());
-    } finally {
-      this.shutdown(tm, pool);
-    }
-    return result;
+  @Override
+  public CompletableFuture<S3ObjectSummary> createObjectAsync(String bucketName, String objectKey, InputStream input) {
+    return CompletableFuture.supplyAsync(() -> createObject(bucketName, objectKey, input), asyncExecutor);
   }
 
   @Override
-  public void lowLevelPartUpload(String bucketName, String objectKey, File file) {
-    long contentLength = file.length();
-    // Set part size to 5 MB
-    long partSize = 5 * 1024 * 1024;
-    // Create a list of ETag objects. You retrieve ETags for each object part uploaded,
-    // then, after each individual part has been uploaded, pass the list of ETags to
-    // the request to complete the upload.
-    List<PartETag> partETags = new ArrayList<>();
-
-    // Initiate the multipart upload.
+  public CompletableFuture<S3Object> getObjectAsync(String bucketName, String objectKey) {
+    return CompletableFuture.supplyAsync(() -> getObject(bucketName, objectKey), asyncExecutor);
+  }
+
+  @Override
+  public CompletableFuture<S3Object> getObjectAsync(String bucketName, String objectKey, long offset, long length) {
+    return CompletableFuture.supplyAsync(() -> getObject(bucketName, objectKey, offset, length), asyncExecutor);
+  }
+
+  @Override
+  public CompletableFuture<Void> getObjectAsync(String bucketName, String objectKey, File file) {
+    return CompletableFuture.runAsync(() -> parallelGetObject(bucketName, objectKey, file), asyncExecutor);
+  }
+
+  @Override
+  public CompletableFuture<Void> removeObjectAsync(String bucketName, String objectKey) {
+    return CompletableFuture.runAsync(() -> removeObject(bucketName, objectKey), asyncExecutor);
+  }
+
+  @Override
+  public CompletableFuture<Void> lowLevelPartUploadAsync(String bucketName, String objectKey, File file) {
+    return CompletableFuture.runAsync(() -> lowLevelPartUpload(bucketName, objectKey, file), asyncExecutor);
+  }
+
+  @Override
+  public CompletableFuture<UploadResult> partUploadAsync(String bucketName, String objectKey, File file) {
+    CompletableFuture<UploadResult> future = new CompletableFuture<>();
+    metrics.operationStarted(Operation.MULTIPART_UPLOAD, bucketName);
+    long start = System.nanoTime();
+    future.whenComplete((result, e) -> metrics.operationCompleted(Operation.MULTIPART_UPLOAD, bucketName,
+            System.nanoTime() - start, e == null ? file.length() : 0, e));
+    Upload upload;
     try {
-      InitiateMultipartUploadRequest initRequest = new InitiateMultipartUploadRequest(bucketName, objectKey);
-      InitiateMultipartUploadResult initResponse = amazonS3.initiateMultipartUpload(initRequest);
-
-      // Upload the file parts.
-      long filePosition = 0;
-      for (int i = 1; filePosition < contentLength; i++) {
-        // Because the last part could be less than 5 MB, adjust the part size as needed.
-        partSize = Math.min(partSize, (contentLength - filePosition));
-
-        // Create the request to upload a part.
-        UploadPartRequest uploadRequest = new UploadPartRequest()
-                .withBucketName(bucketName)
-                .withKey(objectKey)
-                .withUploadId(initResponse.getUploadId())
-                .withPartNumber(i)
-                .withFileOffset(filePosition)
-                .withFile(file)
-                .withPartSize(partSize);
-
-        // Upload the part and add the response's ETag to our list.
-        UploadPartResult uploadResult = amazonS3.uploadPart(uploadRequest);
-        partETags.add(uploadResult.getPartETag());
-        filePosition += partSize;
+      upload = transferEngine.transferManager().upload(new PutObjectRequest(bucketName, objectKey, file));
+    } catch (AmazonClientException e) {
+      future.completeExceptionally(new CephException(e.getMessage(), e));
+      return future;
+    }
+    // the transfer manager reports the end of the upload as a progress event
+    upload.addProgressListener((ProgressListener) event -> {
+      if (isTransferDone(event.getEventType())) {
+        completeUpload(upload, future);
       }
-      CompleteMultipartUploadRequest completeMultipartUploadRequest = new CompleteMultipartUploadRequest(bucketName, objectKey, initResponse.getUploadId(), partETags);
-      amazonS3.completeMultipartUpload(completeMultipartUploadRequest);
-    } catch (SdkClientException e) {
-      e.printStackTrace();
+    });
+    if (upload.isDone()) {
+      completeUpload(upload, future);
     }
+    return future;
+  }
+
+  private static boolean isTransferDone(ProgressEventType eventType) {
+    return eventType == ProgressEventType.TRANSFER_COMPLETED_EVENT
+            || eventType == ProgressEventType.TRANSFER_FAILED_EVENT
+            || eventType == ProgressEventType.TRANSFER_CANCELED_EVENT;
+  }
+
+  /**
+   * Collect the outcome of a finished upload on the async executor, the progress callback thread must not wait.
+   */
+  private void completeUpload(Upload upload, CompletableFuture<UploadResult> future) {
+    if (future.isDone()) {
+      return;
+    }
+    asyncExecutor.execute(() -> {
+      try {
+        future.complete(upload.waitForUploadResult());
+      } catch (AmazonClientException e) {
+        future.completeExceptionally(new CephException(e.getMessage(), e));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        future.completeExceptionally(new CephException(e.getMessage(), e));
+      }
+    });
   }
 
-  private ExecutorService initExcutor() {
-    // 创建一个线程池，大小为5
-    ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().setNameFormat("s3-part-upload-thread-%d").build();
-    int size = TransferManagerConf.FIXED_THREAD_POOL;
-    ExecutorService pool = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), namedThreadFactory);
+  private static ExecutorService newAsyncExecutor() {
+    ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+            .setNameFormat(TransferManagerConf.ASYNC_THREAD_NAME_FORMAT)
+            .setDaemon(true)
+            .build();
+    int size = TransferManagerConf.ASYNC_THREAD_POOL;
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, TransferManagerConf.TRANSFER_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<>(), namedThreadFactory);
+    pool.allowCoreThreadTimeOut(true);
     return pool;
   }
 
-  private TransferManager initTransferManager(ExecutorService pool) {
-    /**
-     * Constructs a new <code>TransferManager</code>,
-     * specifying the client to use when making
-     * requests to Amazon S3.
-     * <p>
-     * <code>TransferManager</code> and client objects
-     * may pool connections and threads.
-     * Reuse <code>TransferManager</code> and client objects
-     * and share them throughout applications.
-     * <p>
-     * TransferManager and all AWS client objects are thread safe.
-     * </p>
-     */
-    TransferManager transferManager = new TransferManager(amazonS3, pool);
-    // 分块上传配置
-    TransferManagerConfiguration configuration = new TransferManagerConfiguration();
-    // 设置最小分片大小，默认是5MB。如果设置过小，会导致切片过多，影响上传速度。
-    configuration.setMinimumUploadPartSize(TransferManagerConf.MINIMUM_UPLOAD_PART_SIZE);
-    // 设置采用分片上传的阀值，只有当文件大于该值时，才会采用分片上传，否则采用普通上传。默认值是16MB
-    configuration.setMultipartUploadThreshold(TransferManagerConf.MULTIPART_UPLOAD_THRESHOLD);
-    transferManager.setConfiguration(configuration);
-    return transferManager;
-  }
-
-
-  private void shutdown(TransferManager tm, ExecutorService pool) {
-    tm.shutdownNow();
-    pool.shutdown();
+  @Override
+  public void close() {
+    try {
+      if (ownsAsyncExecutor) {
+        asyncExecutor.shutdown();
+        asyncExecutor.awaitTermination(TransferManagerConf.SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (objectPacker != null) {
+        objectPacker.close();
+      }
+      transferEngine.close();
+      if (hedgedReader != null) {
+        hedgedReader.close();
+      }
+      amazonS3.shutdown();
+    }
   }
 
 }
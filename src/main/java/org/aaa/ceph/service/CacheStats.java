@@ -0,0 +1,105 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: CacheStats
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+/**
+ * counters and occupancy of the in-memory object cache at one point in time, the counters are cumulative
+ *
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class CacheStats {
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long evictions;
+
+    private final long rejections;
+
+    private final int entryCount;
+
+    private final long usedBytes;
+
+    private final long capacityBytes;
+
+    CacheStats(long hits, long misses, long evictions, long rejections, int entryCount, long usedBytes, long capacityBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.rejections = rejections;
+        this.entryCount = entryCount;
+        this.usedBytes = usedBytes;
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * @return number of reads served from the cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of reads that went to the next tier.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return share of the reads served from the cache, 0 before the first read.
+     */
+    public double getHitRatio() {
+        long reads = hits + misses;
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+
+    /**
+     * @return number of objects dropped to make room for more frequently read ones.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of objects not admitted because the cached objects were read more often.
+     */
+    public long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * @return number of cached objects.
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return off-heap bytes holding cached objects, in whole blocks.
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return off-heap memory limit of the cache.
+     */
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+                + ", rejections=" + rejections + ", entryCount=" + entryCount + ", usedBytes=" + usedBytes
+                + ", capacityBytes=" + capacityBytes + '}';
+    }
+}
@@ -0,0 +1,77 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: DirectoryManifest
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * result of a directory upload
+ * <p>
+ * Returned by {@link CS3Service#uploadDirectory(String, Path, UploadDirectoryOptions)} once every file was
+ * handled. Paths are relative to the uploaded root and sorted.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class DirectoryManifest {
+
+    private final Map<Path, String> objects;
+
+    private final Map<Path, String> failures;
+
+    private final long bytes;
+
+    DirectoryManifest(Map<Path, String> objects, Map<Path, String> failures, long bytes) {
+        this.objects = Collections.unmodifiableMap(new TreeMap<>(objects));
+        this.failures = Collections.unmodifiableMap(new TreeMap<>(failures));
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return relative path -> object key of every uploaded file.
+     */
+    public Map<Path, String> getObjects() {
+        return objects;
+    }
+
+    /**
+     * @return relative path -> error message of every file or directory that could not be uploaded.
+     */
+    public Map<Path, String> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return number of bytes uploaded.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Replace the object keys, e.g., with client object identifiers.
+     *
+     * @param mapper object key -> new value.
+     * @return manifest with the mapped values.
+     */
+    public DirectoryManifest mapObjects(Function<String, String> mapper) {
+        Map<Path, String> mapped = new TreeMap<>();
+        objects.forEach((path, objectKey) -> mapped.put(path, mapper.apply(objectKey)));
+        return new DirectoryManifest(mapped, failures, bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "DirectoryManifest{objects=" + objects.size() + ", failures=" + failures.size()
+                + ", bytes=" + bytes + '}';
+    }
+}
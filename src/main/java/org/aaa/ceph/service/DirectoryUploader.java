@@ -0,0 +1,204 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: DirectoryUploader
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.exception.CephException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uploads a directory tree through the shared transfer pool.
+ * <p>
+ * The tree is walked lazily, one directory at a time, so the walk never lists more than it uploads. Files
+ * below the multipart threshold are single PUT requests on the transfer pool, at most {@code concurrency} at
+ * a time; the walker blocks once the window is full. Larger files are uploaded in parts, at most
+ * {@link TransferManagerConf#DIRECTORY_UPLOAD_MULTIPART_FILES} at a time, driven from the async pool: a task of
+ * the transfer pool must not wait for parts queued on the same pool. A file that fails is recorded in the
+ * manifest and the walk goes on, so one bad file does not stop a bulk ingest.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class DirectoryUploader {
+
+    /**
+     * upload of one file to one key
+     */
+    interface FileUpload {
+        void upload(String bucketName, String objectKey, File file);
+    }
+
+    private final ExecutorService executor;
+
+    private final ExecutorService multipartExecutor;
+
+    private final int defaultConcurrency;
+
+    private final FileUpload singleUpload;
+
+    private final FileUpload multipartUpload;
+
+    /**
+     * @param executor shared transfer pool
+     * @param multipartExecutor pool outside the transfer pool waiting for the multipart uploads
+     * @param defaultConcurrency single uploads in flight when the options do not set it
+     * @param singleUpload upload of a small file in one request
+     * @param multipartUpload upload of a large file in parts
+     */
+    DirectoryUploader(ExecutorService executor, ExecutorService multipartExecutor, int defaultConcurrency,
+                      FileUpload singleUpload, FileUpload multipartUpload) {
+        this.executor = executor;
+        this.multipartExecutor = multipartExecutor;
+        this.defaultConcurrency = defaultConcurrency;
+        this.singleUpload = singleUpload;
+        this.multipartUpload = multipartUpload;
+    }
+
+    /**
+     * Upload every regular file below the root.
+     *
+     * @param bucketName The target bucket.
+     * @param root directory to upload
+     * @param options key prefix, concurrency and multipart threshold
+     * @return the uploaded and the failed files
+     */
+    DirectoryManifest upload(String bucketName, Path root, UploadDirectoryOptions options) {
+        if (!Files.isDirectory(root)) {
+            throw new CephException("Upload directory " + root + " is not a directory");
+        }
+        int concurrency = options.getConcurrency() > 0 ? options.getConcurrency() : defaultConcurrency;
+        Walk walk = new Walk(bucketName, root, options, new Semaphore(concurrency));
+        try {
+            Files.walkFileTree(root, walk);
+        } catch (IOException e) {
+            walk.failures.put(root.relativize(root), e.toString());
+        } finally {
+            // wait for the uploads still running
+            walk.permits.acquireUninterruptibly(concurrency);
+            walk.multipartPermits.acquireUninterruptibly(TransferManagerConf.DIRECTORY_UPLOAD_MULTIPART_FILES);
+        }
+        if (walk.interrupted) {
+            Thread.currentThread().interrupt();
+            throw new CephException("Upload of " + root + " interrupted after " + walk.objects.size() + " files");
+        }
+        return new DirectoryManifest(walk.objects, walk.failures, walk.bytes.get());
+    }
+
+    private final class Walk extends SimpleFileVisitor<Path> {
+
+        private final String bucketName;
+
+        private final Path root;
+
+        private final String prefix;
+
+        private final long multipartThreshold;
+
+        private final Semaphore permits;
+
+        private final Semaphore multipartPermits = new Semaphore(TransferManagerConf.DIRECTORY_UPLOAD_MULTIPART_FILES);
+
+        private final Map<Path, String> objects = new ConcurrentHashMap<>();
+
+        private final Map<Path, String> failures = new ConcurrentHashMap<>();
+
+        private final AtomicLong bytes = new AtomicLong();
+
+        private boolean interrupted;
+
+        private Walk(String bucketName, Path root, UploadDirectoryOptions options, Semaphore permits) {
+            this.bucketName = bucketName;
+            this.root = root;
+            this.prefix = options.getPrefix() == null ? "" : options.getPrefix();
+            this.multipartThreshold = options.getMultipartThreshold();
+            this.permits = permits;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            if (!attributes.isRegularFile()) {
+                return FileVisitResult.CONTINUE;
+            }
+            Path path = root.relativize(file);
+            String objectKey = objectKey(path);
+            long size = attributes.size();
+            boolean multipart = size >= multipartThreshold;
+            Semaphore window = multipart ? multipartPermits : permits;
+            FileUpload upload = multipart ? multipartUpload : singleUpload;
+            try {
+                window.acquire();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                return FileVisitResult.TERMINATE;
+            }
+            try {
+                (multipart ? multipartExecutor : executor).execute(() -> {
+                    try {
+                        upload(upload, path, objectKey, file.toFile(), size);
+                    } finally {
+                        window.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                window.release();
+                failures.put(path, e.toString());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            failures.put(root.relativize(file), e.toString());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path directory, IOException e) {
+            if (e != null) {
+                failures.put(root.relativize(directory), e.toString());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void upload(FileUpload upload, Path path, String objectKey, File file, long size) {
+            try {
+                upload.upload(bucketName, objectKey, file);
+                objects.put(path, objectKey);
+                bytes.addAndGet(size);
+            } catch (RuntimeException e) {
+                failures.put(path, e.getMessage() == null ? e.toString() : e.getMessage());
+            }
+        }
+
+        /**
+         * the relative path with "/" separators behind the prefix
+         */
+        private String objectKey(Path path) {
+            StringBuilder key = new StringBuilder(prefix);
+            for (int i = 0; i < path.getNameCount(); i++) {
+                if (i > 0) {
+                    key.append('/');
+                }
+                key.append(path.getName(i));
+            }
+            return key.toString();
+        }
+    }
+}
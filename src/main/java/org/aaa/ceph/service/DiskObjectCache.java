@@ -0,0 +1,380 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: DiskObjectCache
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.exception.CephException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * size-bounded local disk cache of objects that are never overwritten
+ * <p>
+ * Every object is one file {@code <sha256(bucket)>/<sha256(bucket/key)>.<size>.<etag>}, so the file name is
+ * the whole index entry. A download goes to a temporary file first, its length and, for single part
+ * uploads, its MD5 are checked against the response, and it is published with an atomic rename: a crash
+ * leaves either no entry or a complete one. On startup the index is rebuilt from the file names, files whose
+ * length does not match their name are dropped, and the recency order is restored from the modification
+ * times, which are bumped on every hit. The least recently used objects are evicted once the cache holds more
+ * than its byte limit; objects larger than 1/{@link TransferManagerConf#DISK_CACHE_MAX_OBJECT_FRACTION} of
+ * the limit are not cached.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class DiskObjectCache {
+
+    private static final Log LOG = LogFactory.getLog(DiskObjectCache.class);
+
+    private static final String TEMP_DIRECTORY = "tmp";
+
+    private static final Pattern ENTRY_NAME = Pattern.compile("([0-9a-f]{64})\\.(\\d+)\\.([0-9A-Za-z-]+)");
+
+    private static final Pattern SAFE_ETAG = Pattern.compile("[0-9A-Za-z-]+");
+
+    private static final Pattern MD5_ETAG = Pattern.compile("[0-9a-f]{32}");
+
+    private final Path root;
+
+    private final Path temp;
+
+    private final long maxBytes;
+
+    private final long maxObjectBytes;
+
+    /**
+     * key hash -> entry, least recently used first
+     */
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * bytes of the indexed files, guarded by this
+     */
+    private long totalBytes;
+
+    /**
+     * @param directory cache directory, created if needed
+     * @param maxBytes size limit of the cached files
+     */
+    DiskObjectCache(File directory, long maxBytes) {
+        this.root = directory.toPath();
+        this.temp = root.resolve(TEMP_DIRECTORY);
+        this.maxBytes = maxBytes;
+        this.maxObjectBytes = maxBytes / TransferManagerConf.DISK_CACHE_MAX_OBJECT_FRACTION;
+        try {
+            Files.createDirectories(temp);
+            // downloads interrupted by a crash
+            try (Stream<Path> files = Files.list(temp)) {
+                files.forEach(DiskObjectCache::deleteQuietly);
+            }
+            rebuild();
+        } catch (IOException e) {
+            throw new CephException("Can not open disk cache " + directory, e);
+        }
+    }
+
+    /**
+     * Open the cached copy of an object.
+     *
+     * @return stream of the cached content, or null if the object is not cached
+     */
+    InputStream open(String bucketName, String objectKey) {
+        String keyHash = keyHash(bucketName, objectKey);
+        synchronized (this) {
+            Entry entry = index.get(keyHash);
+            if (entry == null) {
+                return null;
+            }
+            try {
+                // opened under the lock, a concurrent eviction can not delete the file first
+                InputStream in = new FileInputStream(entry.file);
+                entry.file.setLastModified(System.currentTimeMillis());
+                return in;
+            } catch (FileNotFoundException e) {
+                // deleted behind our back
+                remove(keyHash);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Store a downloaded object and open the cached copy. The content of the object is consumed and closed,
+     * unless the object is too large to be cached.
+     *
+     * @return stream of the cached content, or null if the object is too large and was left untouched
+     */
+    InputStream put(String bucketName, String objectKey, S3Object object) throws IOException {
+        ObjectMetadata metadata = object.getObjectMetadata();
+        long size = metadata.getContentLength();
+        if (size > maxObjectBytes) {
+            return null;
+        }
+        String etag = UploadCheckpoint.normalize(metadata.getETag());
+        if (etag == null || !SAFE_ETAG.matcher(etag).matches()) {
+            etag = "-";
+        }
+        Path download;
+        try {
+            download = Files.createTempFile(temp, "download", ".tmp");
+        } catch (IOException e) {
+            // the content is not read, release its connection
+            object.getObjectContent().abort();
+            throw e;
+        }
+        try {
+            MessageDigest md5 = md5();
+            long written;
+            try (InputStream in = new DigestInputStream(object.getObjectContent(), md5);
+                 FileChannel channel = FileChannel.open(download, StandardOpenOption.WRITE)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                written = copy(in, out);
+                channel.force(true);
+            }
+            if (written != size) {
+                throw new CephException("Object " + objectKey + " is " + written + " bytes, expected " + size);
+            }
+            if (MD5_ETAG.matcher(etag).matches() && !etag.equals(BaseEncoding.base16().lowerCase().encode(md5.digest()))) {
+                throw new CephException("Object " + objectKey + " does not match its ETag " + etag);
+            }
+            String bucketHash = bucketHash(bucketName);
+            String keyHash = keyHash(bucketName, objectKey);
+            Path directory = root.resolve(bucketHash);
+            Files.createDirectories(directory);
+            File file = directory.resolve(keyHash + "." + size + "." + etag).toFile();
+            synchronized (this) {
+                Files.move(download, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                Entry previous = index.put(keyHash, new Entry(bucketHash, file, size));
+                if (previous != null) {
+                    totalBytes -= previous.size;
+                    if (!previous.file.equals(file)) {
+                        deleteQuietly(previous.file.toPath());
+                    }
+                }
+                totalBytes += size;
+                evict(keyHash);
+                return new FileInputStream(file);
+            }
+        } finally {
+            deleteQuietly(download);
+        }
+    }
+
+    /**
+     * Forget a removed object.
+     */
+    synchronized void invalidate(String bucketName, String objectKey) {
+        remove(keyHash(bucketName, objectKey));
+    }
+
+    /**
+     * Forget every object of a purged bucket.
+     */
+    synchronized void invalidateBucket(String bucketName) {
+        String bucketHash = bucketHash(bucketName);
+        Iterator<Entry> entries = index.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.bucketHash.equals(bucketHash)) {
+                entries.remove();
+                totalBytes -= entry.size;
+                deleteQuietly(entry.file.toPath());
+            }
+        }
+    }
+
+    /**
+     * @return size of the largest object put caches
+     */
+    long getMaxObjectBytes() {
+        return maxObjectBytes;
+    }
+
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    synchronized int getObjectCount() {
+        return index.size();
+    }
+
+    /**
+     * Drop least recently used entries until the cache fits its limit, the entry just added stays.
+     */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Entry>> entries = index.entrySet().iterator();
+        while (totalBytes > maxBytes && entries.hasNext()) {
+            Map.Entry<String, Entry> eldest = entries.next();
+            if (!eldest.getKey().equals(keep)) {
+                entries.remove();
+                totalBytes -= eldest.getValue().size;
+                deleteQuietly(eldest.getValue().file.toPath());
+            }
+        }
+    }
+
+    private void remove(String keyHash) {
+        Entry entry = index.remove(keyHash);
+        if (entry != null) {
+            totalBytes -= entry.size;
+            deleteQuietly(entry.file.toPath());
+        }
+    }
+
+    /**
+     * Index the published files, oldest first.
+     */
+    private void rebuild() throws IOException {
+        Map<String, Entry> found = new HashMap<>();
+        try (Stream<Path> directories = Files.list(root)) {
+            for (Path directory : (Iterable<Path>) directories::iterator) {
+                if (directory.equals(temp) || !Files.isDirectory(directory)) {
+                    continue;
+                }
+                try (Stream<Path> files = Files.list(directory)) {
+                    for (Path path : (Iterable<Path>) files::iterator) {
+                        Entry entry = validEntry(directory, path);
+                        if (entry == null) {
+                            deleteQuietly(path);
+                            continue;
+                        }
+                        // two copies of the same key, keep the newest
+                        Entry other = found.get(entry.keyHash());
+                        if (other == null || other.lastModified < entry.lastModified) {
+                            found.put(entry.keyHash(), entry);
+                            if (other != null) {
+                                deleteQuietly(other.file.toPath());
+                            }
+                        } else {
+                            deleteQuietly(path);
+                        }
+                    }
+                }
+            }
+        }
+        List<Entry> entries = new ArrayList<>(found.values());
+        entries.sort(Comparator.comparingLong(entry -> entry.lastModified));
+        synchronized (this) {
+            for (Entry entry : entries) {
+                index.put(entry.keyHash(), entry);
+                totalBytes += entry.size;
+            }
+            evict(null);
+        }
+        LOG.info("Disk cache " + root + " holds " + index.size() + " objects, " + totalBytes + " bytes");
+    }
+
+    /**
+     * @return the entry of a complete cache file, or null if the file is foreign or damaged
+     */
+    private static Entry validEntry(Path directory, Path path) {
+        Matcher matcher = ENTRY_NAME.matcher(path.getFileName().toString());
+        if (!matcher.matches()) {
+            return null;
+        }
+        File file = path.toFile();
+        long size = Long.parseLong(matcher.group(2));
+        if (file.length() != size) {
+            return null;
+        }
+        Entry entry = new Entry(directory.getFileName().toString(), file, size);
+        entry.lastModified = file.lastModified();
+        return entry;
+    }
+
+    private static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+            total += n;
+        }
+        return total;
+    }
+
+    private static String bucketHash(String bucketName) {
+        return Hashing.sha256().hashString(bucketName, StandardCharsets.UTF_8).toString();
+    }
+
+    private static String keyHash(String bucketName, String objectKey) {
+        return Hashing.sha256().hashString(bucketName + "/" + objectKey, StandardCharsets.UTF_8).toString();
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Can not delete " + path, e);
+        }
+    }
+
+    private static final class Entry {
+
+        private final String bucketHash;
+
+        private final File file;
+
+        private final long size;
+
+        /**
+         * modification time when the index was rebuilt
+         */
+        private long lastModified;
+
+        private Entry(String bucketHash, File file, long size) {
+            this.bucketHash = bucketHash;
+            this.file = file;
+            this.size = size;
+        }
+
+        private String keyHash() {
+            String name = file.getName();
+            return name.substring(0, name.indexOf('.'));
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: EndpointBalancer
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.aaa.ceph.constant.TransferManagerConf;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * client side load balancing of one logical {@link AmazonS3} over several radosgw gateways
+ * <p>
+ * Every gateway gets its own client and connection pool; {@link #proxy()} returns an {@link AmazonS3} that
+ * routes each call to one of them. A gateway is chosen by power of two choices: two random healthy gateways
+ * are compared and the one with fewer requests in flight wins, which spreads load almost as well as least
+ * outstanding requests without a global scan.
+ * </p>
+ * <p>
+ * After {@link TransferManagerConf#EJECTION_FAILURE_THRESHOLD} consecutive connection errors or 5xx
+ * responses a gateway is ejected for {@link TransferManagerConf#EJECTION_SECONDS}. A background probe
+ * requests the root of every gateway periodically, reinstates gateways that answer and ejects those that
+ * do not. When every gateway is ejected they are used anyway. Idempotent calls (reads, lists, deletes and
+ * aborts) that fail on a gateway are retried on the next one; other calls fail and are retried by the
+ * caller's {@link RetryPolicy}, which picks a gateway again. All gateways must belong to the same cluster.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class EndpointBalancer implements InvocationHandler {
+
+    /**
+     * setters of the client configuration, every other set* method is an S3 request like any other call
+     */
+    private static final Set<String> CLIENT_SETTINGS = ImmutableSet.of(
+            "setEndpoint", "setRegion", "setS3ClientOptions", "setSignerRegionOverride");
+
+    private final Gateway[] gateways;
+
+    private final ScheduledExecutorService healthChecker;
+
+    private final OkHttpClient probeClient;
+
+    /**
+     * @param endpoints gateway endpoints, e.g., http://127.0.0.1:80
+     * @param clientFactory creates the client of one endpoint
+     * @param healthCheckIntervalMillis interval of the background probes, 0 disables them
+     */
+    EndpointBalancer(List<String> endpoints, Function<String, AmazonS3> clientFactory, long healthCheckIntervalMillis) {
+        this.gateways = new Gateway[endpoints.size()];
+        for (int i = 0; i < gateways.length; i++) {
+            gateways[i] = new Gateway(endpoints.get(i), clientFactory.apply(endpoints.get(i)));
+        }
+        this.probeClient = new OkHttpClient.Builder()
+                .connectTimeout(TransferManagerConf.HEALTH_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TransferManagerConf.HEALTH_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(false)
+                .build();
+        if (healthCheckIntervalMillis > 0) {
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("s3-health-check-%d")
+                    .setDaemon(true)
+                    .build());
+            healthChecker.scheduleWithFixedDelay(this::probeAll, healthCheckIntervalMillis,
+                    healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.healthChecker = null;
+        }
+    }
+
+    /**
+     * @return the balanced client, {@link AmazonS3#shutdown()} stops the probes and every gateway client.
+     */
+    AmazonS3 proxy() {
+        return (AmazonS3) Proxy.newProxyInstance(AmazonS3.class.getClassLoader(), new Class<?>[]{AmazonS3.class}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "EndpointBalancer" + endpoints();
+            }
+        }
+        if ("shutdown".equals(method.getName())) {
+            shutdown();
+            return null;
+        }
+        if (CLIENT_SETTINGS.contains(method.getName())) {
+            // client settings apply to every gateway
+            for (Gateway gateway : gateways) {
+                invoke(gateway, method, args);
+            }
+            return null;
+        }
+        boolean idempotent = isIdempotent(method);
+        List<Gateway> tried = new ArrayList<>(gateways.length);
+        while (true) {
+            Gateway gateway = choose(tried);
+            tried.add(gateway);
+            gateway.outstanding.incrementAndGet();
+            try {
+                Object result = invoke(gateway, method, args);
+                gateway.succeeded();
+                return result;
+            } catch (Throwable e) {
+                if (!isGatewayFailure(e)) {
+                    // the gateway answered, the request itself was wrong
+                    gateway.succeeded();
+                    throw e;
+                }
+                gateway.failed();
+                if (!idempotent || tried.size() >= gateways.length) {
+                    throw e;
+                }
+            } finally {
+                gateway.outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    private static Object invoke(Gateway gateway, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(gateway.amazonS3, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Power of two choices among the healthy gateways not tried yet.
+     */
+    private Gateway choose(List<Gateway> tried) {
+        long now = System.nanoTime();
+        List<Gateway> candidates = new ArrayList<>(gateways.length);
+        for (Gateway gateway : gateways) {
+            if (!tried.contains(gateway) && gateway.isHealthy(now)) {
+                candidates.add(gateway);
+            }
+        }
+        if (candidates.isEmpty()) {
+            // fail open, an ejected gateway is better than no gateway
+            for (Gateway gateway : gateways) {
+                if (!tried.contains(gateway)) {
+                    candidates.add(gateway);
+                }
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Gateway a = candidates.get(first);
+        Gateway b = candidates.get(second);
+        return a.outstanding.get() <= b.outstanding.get() ? a : b;
+    }
+
+    /**
+     * Reads, lists, deletes and aborts give the same result when sent twice.
+     */
+    private static boolean isIdempotent(Method method) {
+        String name = method.getName();
+        return name.startsWith("get") || name.startsWith("list") || name.startsWith("does")
+                || name.startsWith("delete") || name.startsWith("abort");
+    }
+
+    /**
+     * Connection errors and server errors count against the gateway, client errors do not.
+     */
+    private static boolean isGatewayFailure(Throwable e) {
+        if (e instanceof AmazonServiceException) {
+            return ((AmazonServiceException) e).getStatusCode() >= 500;
+        }
+        return e instanceof SdkClientException && ((SdkClientException) e).isRetryable();
+    }
+
+    private void probeAll() {
+        for (Gateway gateway : gateways) {
+            Request request = new Request.Builder().url(gateway.endpoint).get().build();
+            try (Response response = probeClient.newCall(request).execute()) {
+                if (response.code() < 500) {
+                    gateway.reinstate();
+                } else {
+                    gateway.eject();
+                }
+            } catch (IOException | RuntimeException e) {
+                gateway.eject();
+            }
+        }
+    }
+
+    private List<String> endpoints() {
+        List<String> endpoints = new ArrayList<>(gateways.length);
+        for (Gateway gateway : gateways) {
+            endpoints.add(gateway.endpoint);
+        }
+        return endpoints;
+    }
+
+    private void shutdown() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        probeClient.connectionPool().evictAll();
+        for (Gateway gateway : gateways) {
+            gateway.amazonS3.shutdown();
+        }
+    }
+
+    /**
+     * one gateway and its health
+     */
+    private static final class Gateway {
+
+        private final String endpoint;
+
+        private final AmazonS3 amazonS3;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+        /**
+         * nano time until which the gateway is ejected
+         */
+        private volatile long ejectedUntil = System.nanoTime();
+
+        private Gateway(String endpoint, AmazonS3 amazonS3) {
+            this.endpoint = endpoint;
+            this.amazonS3 = amazonS3;
+        }
+
+        private boolean isHealthy(long now) {
+            return now - ejectedUntil >= 0;
+        }
+
+        private void succeeded() {
+            consecutiveFailures.set(0);
+        }
+
+        private void failed() {
+            if (consecutiveFailures.incrementAndGet() >= TransferManagerConf.EJECTION_FAILURE_THRESHOLD) {
+                eject();
+            }
+        }
+
+        private void eject() {
+            ejectedUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(TransferManagerConf.EJECTION_SECONDS);
+        }
+
+        private void reinstate() {
+            consecutiveFailures.set(0);
+            ejectedUntil = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: FrequencySketch
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * approximate access frequency of keys, the admission filter of {@link MemoryObjectCache}
+ * <p>
+ * A count-min sketch of 4-bit counters, sixteen to a long, four counters per key. After ten accesses per
+ * counter slot every counter is halved, so the sketch follows the recent popularity instead of the all time
+ * one (the TinyLFU reset). Counters are updated with compare-and-set, no lock is taken on the read path.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final int MAX_COUNT = 15;
+
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    private final AtomicLongArray table;
+
+    private final int mask;
+
+    /**
+     * number of increments between two resets
+     */
+    private final int sampleSize;
+
+    private final AtomicInteger samples = new AtomicInteger();
+
+    /**
+     * @param expectedEntries number of keys the cache can hold
+     */
+    FrequencySketch(long expectedEntries) {
+        int size = (int) Math.min(MAX_TABLE_SIZE, Math.max(16, Long.highestOneBit(expectedEntries - 1) << 1));
+        this.table = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    /**
+     * Count one access of a key.
+     */
+    void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            added |= increment(index(hash, i), offset(hash, i));
+        }
+        if (added && samples.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * @return estimated number of recent accesses of a key, at most 15
+     */
+    int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, (int) (table.get(index(hash, i)) >>> offset(hash, i)) & MAX_COUNT);
+        }
+        return frequency;
+    }
+
+    /**
+     * Spread the bits of a hash code, String hash codes of similar keys differ in the low bits only.
+     */
+    static int spread(int hashCode) {
+        int h = hashCode * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    private boolean increment(int index, int offset) {
+        while (true) {
+            long value = table.get(index);
+            if (((value >>> offset) & MAX_COUNT) == MAX_COUNT) {
+                return false;
+            }
+            if (table.compareAndSet(index, value, value + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Halve every counter, increments racing with the reset may be lost, the counts are estimates anyway.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            table.getAndUpdate(i, value -> (value >>> 1) & RESET_MASK);
+        }
+        samples.addAndGet(-sampleSize / 2);
+    }
+
+    private int index(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & mask;
+    }
+
+    private static int offset(int hash, int i) {
+        return ((hash >>> (i << 3)) & MAX_COUNT) << 2;
+    }
+}
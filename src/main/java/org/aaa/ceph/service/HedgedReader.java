@@ -0,0 +1,279 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: HedgedReader
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.http.timers.client.ClientExecutionTimeoutException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.exception.CephException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * object reads with a hedge request against slow gateways and OSDs
+ * <p>
+ * The GET is sent and, if its response headers have not arrived after the configured percentile of the
+ * recent response times, an identical second GET is sent. Whichever answers first is returned, the other
+ * one is aborted as soon as it answers. With several endpoints the hedge usually lands on another gateway,
+ * because the balancer prefers the gateway with fewer requests in flight. No hedge is sent until
+ * {@link TransferManagerConf#HEDGE_MIN_SAMPLES} response times have been recorded.
+ * </p>
+ * <p>
+ * Hedges are paid from a token bucket that earns {@link TransferManagerConf#HEDGE_BUDGET_RATIO} of a token per
+ * read, so a slow gateway never gets much more than its normal load; without a token the read is sent
+ * once from the calling thread, without hedge and without timeout.
+ * The SDK cannot abort a request that is waiting for its response headers, so every hedged request carries a
+ * client execution timeout of {@link TransferManagerConf#HEDGE_ABORT_FACTOR} times the hedge delay: a hung
+ * loser gives back its connection and thread then, not after the socket timeout. A read whose requests all
+ * ran into that timeout is sent once more without it from the calling thread.
+ * </p>
+ * <p>
+ * The requests run on an own bounded pool without queue, not on the transfer pool: a caller-runs fallback
+ * would make the first request synchronous and a saturated pool would delay the hedge it is meant to replace.
+ * When the pool is exhausted the read runs on the calling thread without hedge.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class HedgedReader {
+
+    private final AmazonS3 amazonS3;
+
+    private final ThreadPoolExecutor executor;
+
+    private final LatencyWindow latencies;
+
+    private final HedgeBudget budget = new HedgeBudget();
+
+    /**
+     * @param amazonS3 client
+     * @param percentile response time percentile after which the hedge is sent, e.g., 95
+     */
+    HedgedReader(AmazonS3 amazonS3, double percentile) {
+        this.amazonS3 = amazonS3;
+        this.latencies = new LatencyWindow(percentile);
+        this.executor = new ThreadPoolExecutor(0, TransferManagerConf.HEDGE_THREAD_POOL,
+                TransferManagerConf.TRANSFER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("s3-hedge-thread-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Get the object, hedging a slow response.
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @return the object of the first response.
+     */
+    S3Object getObject(String bucketName, String objectKey) {
+        budget.deposit();
+        long delayNanos = latencies.delayNanos();
+        if (delayNanos < 0 || !budget.available()) {
+            return fetchNow(bucketName, objectKey);
+        }
+        int abortMillis = (int) Math.min(Integer.MAX_VALUE, Math.max(TransferManagerConf.HEDGE_ABORT_MIN_MILLIS,
+                TransferManagerConf.HEDGE_ABORT_FACTOR * TimeUnit.NANOSECONDS.toMillis(delayNanos)));
+        CompletableFuture<S3Object> primary;
+        try {
+            primary = fetch(bucketName, objectKey, abortMillis);
+        } catch (RejectedExecutionException e) {
+            return fetchNow(bucketName, objectKey);
+        }
+        try {
+            return primary.get(delayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            CompletableFuture<S3Object> hedge = null;
+            if (budget.withdraw()) {
+                try {
+                    hedge = fetch(bucketName, objectKey, abortMillis);
+                } catch (RejectedExecutionException rejected) {
+                    budget.refund();
+                }
+            }
+            return firstOf(bucketName, objectKey, hedge == null ? Collections.singletonList(primary)
+                    : Arrays.asList(primary, hedge));
+        } catch (InterruptedException e) {
+            primary.thenAccept(HedgedReader::abort);
+            Thread.currentThread().interrupt();
+            throw new CephException("Read of " + objectKey + " interrupted", e);
+        } catch (ExecutionException e) {
+            return fallback(bucketName, objectKey, e.getCause());
+        }
+    }
+
+    private CompletableFuture<S3Object> fetch(String bucketName, String objectKey, int abortMillis) {
+        GetObjectRequest request = new GetObjectRequest(bucketName, objectKey).withSdkClientExecutionTimeout(abortMillis);
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            S3Object object = amazonS3.getObject(request);
+            latencies.record(System.nanoTime() - start);
+            return object;
+        }, executor);
+    }
+
+    private S3Object fetchNow(String bucketName, String objectKey) {
+        long start = System.nanoTime();
+        S3Object object = amazonS3.getObject(bucketName, objectKey);
+        latencies.record(System.nanoTime() - start);
+        return object;
+    }
+
+    /**
+     * Wait for the first successful response and abort the others. Fails only if all fail.
+     */
+    private S3Object firstOf(String bucketName, String objectKey, List<CompletableFuture<S3Object>> requests) {
+        CompletableFuture<S3Object> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<S3Object> request : requests) {
+            request.whenComplete((object, e) -> {
+                if (e == null) {
+                    if (!first.complete(object)) {
+                        abort(object);
+                    }
+                } else if (failures.incrementAndGet() == requests.size()) {
+                    first.completeExceptionally(e);
+                }
+            });
+        }
+        try {
+            return first.get();
+        } catch (InterruptedException e) {
+            first.thenAccept(HedgedReader::abort);
+            Thread.currentThread().interrupt();
+            throw new CephException("Read interrupted", e);
+        } catch (ExecutionException e) {
+            return fallback(bucketName, objectKey, e.getCause());
+        }
+    }
+
+    /**
+     * Send a read once more without timeout if it only failed on the abort timeout of the hedged requests.
+     */
+    private S3Object fallback(String bucketName, String objectKey, Throwable cause) {
+        RuntimeException failure = unwrap(cause);
+        if (failure instanceof ClientExecutionTimeoutException) {
+            return fetchNow(bucketName, objectKey);
+        }
+        throw failure;
+    }
+
+    private static void abort(S3Object object) {
+        if (object != null) {
+            object.getObjectContent().abort();
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new CephException(cause.getMessage(), cause);
+    }
+
+    void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * token bucket of hedge requests, in thousandths of a token
+     */
+    static final class HedgeBudget {
+
+        private static final long TOKEN = 1000;
+
+        private static final long EARNED = (long) (TransferManagerConf.HEDGE_BUDGET_RATIO * TOKEN);
+
+        private static final long CAPACITY = TransferManagerConf.HEDGE_BUDGET_BURST * TOKEN;
+
+        private final AtomicLong tokens = new AtomicLong(CAPACITY);
+
+        void deposit() {
+            tokens.accumulateAndGet(EARNED, (current, earned) -> Math.min(current + earned, CAPACITY));
+        }
+
+        boolean available() {
+            return tokens.get() >= TOKEN;
+        }
+
+        boolean withdraw() {
+            long current;
+            do {
+                current = tokens.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+            } while (!tokens.compareAndSet(current, current - TOKEN));
+            return true;
+        }
+
+        void refund() {
+            tokens.accumulateAndGet(TOKEN, (current, refunded) -> Math.min(current + refunded, CAPACITY));
+        }
+    }
+
+    /**
+     * sliding window of the last {@link TransferManagerConf#HEDGE_LATENCY_SAMPLES} response times
+     * <p>
+     * Samples are written without locking; a torn read only shifts the percentile by one sample. The
+     * percentile is recomputed every {@link #RECOMPUTE_INTERVAL} samples by the recording thread.
+     * </p>
+     */
+    static final class LatencyWindow {
+
+        private static final int RECOMPUTE_INTERVAL = 64;
+
+        private final long[] samples = new long[TransferManagerConf.HEDGE_LATENCY_SAMPLES];
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final double percentile;
+
+        /**
+         * current hedge delay, -1 until enough samples were recorded
+         */
+        private volatile long delayNanos = -1;
+
+        LatencyWindow(double percentile) {
+            this.percentile = percentile;
+        }
+
+        void record(long nanos) {
+            long n = count.getAndIncrement();
+            samples[(int) (n % samples.length)] = nanos;
+            long recorded = n + 1;
+            if (recorded >= TransferManagerConf.HEDGE_MIN_SAMPLES && recorded % RECOMPUTE_INTERVAL == 0) {
+                long[] sorted = Arrays.copyOf(samples, (int) Math.min(recorded, samples.length));
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+                delayNanos = Math.max(sorted[Math.max(index, 0)],
+                        TimeUnit.MILLISECONDS.toNanos(TransferManagerConf.HEDGE_MIN_DELAY_MILLIS));
+            }
+        }
+
+        long delayNanos() {
+            return delayNanos;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: ListObjectsOptions
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+/**
+ * options of a streaming object listing
+ * <p>
+ * Fluent options for {@link CS3Service#streamObjects(String, ListObjectsOptions)}. Without any option
+ * every object of the bucket is listed in key order.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public class ListObjectsOptions {
+
+    /**
+     * default number of keys per page, the maximum of a S3 list request
+     */
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    /**
+     * only keys beginning with the prefix
+     */
+    private String prefix;
+    /**
+     * keys containing the delimiter after the prefix are grouped and not listed
+     */
+    private String delimiter;
+    /**
+     * only keys after this key
+     */
+    private String startAfter;
+    /**
+     * number of keys per request
+     */
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    /**
+     * Sets the key prefix to list.
+     *
+     * @param prefix Key prefix.
+     * @return This object for method chaining.
+     */
+    public ListObjectsOptions prefix(String prefix) {
+        this.prefix = prefix;
+        return this;
+    }
+
+    /**
+     * Sets the delimiter. Keys that contain the delimiter after the prefix are skipped,
+     * e.g., "/" lists one directory level only.
+     *
+     * @param delimiter Delimiter.
+     * @return This object for method chaining.
+     */
+    public ListObjectsOptions delimiter(String delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * Sets the key after which the listing starts.
+     *
+     * @param startAfter Exclusive start key.
+     * @return This object for method chaining.
+     */
+    public ListObjectsOptions startAfter(String startAfter) {
+        this.startAfter = startAfter;
+        return this;
+    }
+
+    /**
+     * Sets the number of keys requested per page, at most {@link #DEFAULT_PAGE_SIZE}.
+     *
+     * @param pageSize Keys per page.
+     * @return This object for method chaining.
+     */
+    public ListObjectsOptions pageSize(int pageSize) {
+        if (pageSize <= 0 || pageSize > DEFAULT_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + DEFAULT_PAGE_SIZE);
+        }
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    String getPrefix() {
+        return prefix;
+    }
+
+    String getDelimiter() {
+        return delimiter;
+    }
+
+    String getStartAfter() {
+        return startAfter;
+    }
+
+    int getPageSize() {
+        return pageSize;
+    }
+}
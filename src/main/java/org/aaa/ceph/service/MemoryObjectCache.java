@@ -0,0 +1,388 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: MemoryObjectCache
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.google.common.io.ByteStreams;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.exception.CephException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * off-heap cache of small objects that are never overwritten
+ * <p>
+ * The content is kept in fixed size blocks carved from direct ByteBuffer slabs, which are allocated on
+ * demand up to the byte limit and never returned, so the cached bytes neither churn nor inflate the heap.
+ * A hit copies the blocks of the object into a heap array without taking a lock; the copy is validated
+ * against the write lock held while blocks are freed and reused, and retried under the read lock if an
+ * eviction raced with it.
+ * </p>
+ * <p>
+ * Every lookup is counted in a {@link FrequencySketch}. When a new object needs room, the victim is picked
+ * by a CLOCK sweep that spares the recently read entries, and the new object is only admitted if it was
+ * requested more often than every victim it would displace (TinyLFU), so a one-off scan does not flush the
+ * hot objects. All victims are picked before the first one is evicted, a rejected object evicts nothing.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class MemoryObjectCache {
+
+    private final int blockSize;
+
+    private final int blocksPerSlab;
+
+    private final int totalBlocks;
+
+    private final int maxObjectSize;
+
+    private final ByteBuffer[] slabs;
+
+    private final FrequencySketch sketch;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+
+    /**
+     * guards the blocks, the clock and the entry removal
+     */
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * entries in CLOCK order, removed entries are dropped lazily, guarded by the write lock
+     */
+    private final ArrayDeque<Entry> clock = new ArrayDeque<>();
+
+    /**
+     * removed entries still in the clock, guarded by the write lock
+     */
+    private int removedInClock;
+
+    /**
+     * freed blocks, guarded by the write lock
+     */
+    private final int[] freeBlocks;
+
+    private int freeCount;
+
+    /**
+     * blocks handed out of the slabs so far, guarded by the write lock
+     */
+    private int carvedBlocks;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param maxBytes off-heap memory limit, rounded down to whole blocks
+     * @param maxObjectSize largest object that is cached
+     */
+    MemoryObjectCache(long maxBytes, int maxObjectSize) {
+        this.blockSize = TransferManagerConf.MEMORY_CACHE_BLOCK_SIZE;
+        this.blocksPerSlab = TransferManagerConf.MEMORY_CACHE_SLAB_SIZE / blockSize;
+        this.totalBlocks = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / blockSize));
+        this.maxObjectSize = (int) Math.min(maxObjectSize, (long) totalBlocks * blockSize);
+        this.slabs = new ByteBuffer[(totalBlocks + blocksPerSlab - 1) / blocksPerSlab];
+        this.freeBlocks = new int[totalBlocks];
+        this.sketch = new FrequencySketch(totalBlocks);
+    }
+
+    /**
+     * Copy a cached object to the heap.
+     *
+     * @return content of the object, or null if the object is not cached
+     */
+    byte[] get(String bucketName, String objectKey) {
+        String key = key(bucketName, objectKey);
+        Entry entry = index.get(key);
+        sketch.increment(entry == null ? FrequencySketch.spread(key.hashCode()) : entry.hash);
+        byte[] content = entry == null ? null : read(entry);
+        if (content == null) {
+            misses.increment();
+            return null;
+        }
+        entry.referenced = true;
+        hits.increment();
+        return content;
+    }
+
+    /**
+     * Read the object from an uncached stream and offer it to the cache if it is small enough. The stream is
+     * consumed and closed unless the object is too large, then it is returned behind the bytes read so far.
+     *
+     * @return stream of the whole object
+     */
+    InputStream load(String bucketName, String objectKey, InputStream content) {
+        byte[] head;
+        try {
+            head = ByteStreams.toByteArray(ByteStreams.limit(content, maxObjectSize + 1L));
+        } catch (IOException e) {
+            closeQuietly(content);
+            throw new CephException(e.getMessage(), e);
+        }
+        if (head.length > maxObjectSize) {
+            return new SequenceInputStream(new ByteArrayInputStream(head), content);
+        }
+        closeQuietly(content);
+        put(bucketName, objectKey, head);
+        return new ByteArrayInputStream(head);
+    }
+
+    /**
+     * Cache an object if it is admitted.
+     */
+    void put(String bucketName, String objectKey, byte[] content) {
+        String key = key(bucketName, objectKey);
+        if (content.length > maxObjectSize || index.containsKey(key)) {
+            return;
+        }
+        int hash = FrequencySketch.spread(key.hashCode());
+        int needed = (content.length + blockSize - 1) / blockSize;
+        long stamp = lock.writeLock();
+        try {
+            if (index.containsKey(key)) {
+                return;
+            }
+            int frequency = sketch.frequency(hash);
+            // set the victims aside first, nothing is evicted for an object that is not admitted
+            List<Entry> victims = new ArrayList<>();
+            int available = availableBlocks();
+            while (available < needed) {
+                Entry victim = nextVictim();
+                if (victim == null || sketch.frequency(victim.hash) >= frequency) {
+                    for (int i = victims.size() - 1; i >= 0; i--) {
+                        clock.addFirst(victims.get(i));
+                    }
+                    rejections.increment();
+                    return;
+                }
+                clock.poll();
+                victims.add(victim);
+                available += victim.blocks.length;
+            }
+            for (Entry victim : victims) {
+                release(victim);
+                evictions.increment();
+            }
+            int[] blocks = new int[needed];
+            for (int i = 0; i < needed; i++) {
+                blocks[i] = takeBlock();
+                int offset = i * blockSize;
+                block(blocks[i]).put(content, offset, Math.min(blockSize, content.length - offset));
+            }
+            Entry entry = new Entry(key, hash, blocks, content.length);
+            index.put(key, entry);
+            clock.add(entry);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Forget a removed object.
+     */
+    void invalidate(String bucketName, String objectKey) {
+        String key = key(bucketName, objectKey);
+        if (!index.containsKey(key)) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            Entry entry = index.get(key);
+            if (entry != null) {
+                remove(entry);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Forget every object of a purged bucket.
+     */
+    void invalidateBucket(String bucketName) {
+        String prefix = key(bucketName, "");
+        long stamp = lock.writeLock();
+        try {
+            for (Entry entry : index.values()) {
+                if (entry.key.startsWith(prefix)) {
+                    remove(entry);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    CacheStats stats() {
+        long stamp = lock.readLock();
+        try {
+            long usedBytes = (long) (carvedBlocks - freeCount) * blockSize;
+            return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), rejections.sum(),
+                    index.size(), usedBytes, (long) totalBlocks * blockSize);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return content of the entry, or null if it was removed
+     */
+    private byte[] read(Entry entry) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            // the blocks may be reused while they are copied, the copy only counts if no writer ran meanwhile
+            byte[] content = copy(entry);
+            if (lock.validate(stamp)) {
+                return entry.removed ? null : content;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return entry.removed ? null : copy(entry);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private byte[] copy(Entry entry) {
+        byte[] content = new byte[entry.length];
+        for (int i = 0; i < entry.blocks.length; i++) {
+            int offset = i * blockSize;
+            block(entry.blocks[i]).get(content, offset, Math.min(blockSize, entry.length - offset));
+        }
+        return content;
+    }
+
+    /**
+     * @return an independent view positioned at the start of a block
+     */
+    private ByteBuffer block(int block) {
+        ByteBuffer slab = slabs[block / blocksPerSlab].duplicate();
+        slab.position((block % blocksPerSlab) * blockSize);
+        return slab;
+    }
+
+    /**
+     * Next entry of the CLOCK sweep, entries read since the last pass get a second chance.
+     *
+     * @return the victim at the head of the clock, still in the cache, or null if the clock is empty
+     */
+    private Entry nextVictim() {
+        int limit = 2 * clock.size();
+        for (int i = 0; i < limit; i++) {
+            Entry entry = clock.peek();
+            if (entry.removed) {
+                clock.poll();
+                removedInClock--;
+            } else if (entry.referenced) {
+                entry.referenced = false;
+                clock.add(clock.poll());
+            } else {
+                return entry;
+            }
+        }
+        // every entry was read again during the sweep
+        while (!clock.isEmpty() && clock.peek().removed) {
+            clock.poll();
+            removedInClock--;
+        }
+        return clock.peek();
+    }
+
+    private void remove(Entry entry) {
+        release(entry);
+        if (++removedInClock > clock.size() / 2) {
+            clock.removeIf(e -> e.removed);
+            removedInClock = 0;
+        }
+    }
+
+    /**
+     * Drop an entry and free its blocks, the entry stays in the clock unless it was taken out of it.
+     */
+    private void release(Entry entry) {
+        index.remove(entry.key);
+        entry.removed = true;
+        for (int block : entry.blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    private int availableBlocks() {
+        return freeCount + totalBlocks - carvedBlocks;
+    }
+
+    private int takeBlock() {
+        if (freeCount > 0) {
+            return freeBlocks[--freeCount];
+        }
+        int block = carvedBlocks++;
+        int slab = block / blocksPerSlab;
+        if (slabs[slab] == null) {
+            int blocks = Math.min(blocksPerSlab, totalBlocks - slab * blocksPerSlab);
+            slabs[slab] = ByteBuffer.allocateDirect(blocks * blockSize);
+        }
+        return block;
+    }
+
+    private static String key(String bucketName, String objectKey) {
+        return bucketName + "/" + objectKey;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // nothing left to read
+        }
+    }
+
+    private static final class Entry {
+
+        private final String key;
+
+        private final int hash;
+
+        private final int[] blocks;
+
+        private final int length;
+
+        /**
+         * read since the clock hand last passed
+         */
+        private volatile boolean referenced;
+
+        /**
+         * set under the write lock before the blocks are freed
+         */
+        private volatile boolean removed;
+
+        private Entry(String key, int hash, int[] blocks, int length) {
+            this.key = key;
+            this.hash = hash;
+            this.blocks = blocks;
+            this.length = length;
+        }
+    }
+}
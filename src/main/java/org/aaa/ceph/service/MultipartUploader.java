@@ -0,0 +1,446 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: MultipartUploader
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.exception.CephException;
+import org.aaa.ceph.metrics.MetricsListener;
+import org.aaa.ceph.metrics.Operation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * low level multipart upload engine
+ * <p>
+ * Uploads the parts of one object concurrently on the shared transfer pool. At most {@code maxPartsInFlight}
+ * parts are uploading at any time, every part is retried on its own, and the part ETags are handed to
+ * {@link CompleteMultipartUploadRequest} in part number order. When a part can not be uploaded the
+ * remaining parts are cancelled, and once the parts still uploading have finished the multipart upload is
+ * aborted, so that no orphaned parts are left in the bucket. A resumable upload is not aborted, it is left
+ * for the next attempt to finish.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class MultipartUploader {
+
+    private final AmazonS3 amazonS3;
+
+    private final ExecutorService executor;
+
+    private final int maxPartsInFlight;
+
+    private final RetryPolicy retryPolicy;
+
+    private final PartBufferPool bufferPool;
+
+    /**
+     * pool buffers one stream part may hold, so that every upload in flight can hold a full window of parts
+     */
+    private final int maxBuffersPerPart;
+
+    private final long maxStreamLength;
+
+    /**
+     * @param amazonS3 client
+     * @param executor shared transfer pool
+     * @param bufferPool part buffers of stream uploads
+     * @param maxPartsInFlight number of parts uploading concurrently for one object
+     * @param maxRetries number of retries of a single part
+     * @param metrics listener of the part requests
+     */
+    MultipartUploader(AmazonS3 amazonS3, ExecutorService executor, PartBufferPool bufferPool,
+                      int maxPartsInFlight, int maxRetries, MetricsListener metrics) {
+        this.amazonS3 = amazonS3;
+        this.executor = executor;
+        this.bufferPool = bufferPool;
+        this.maxPartsInFlight = maxPartsInFlight;
+        this.maxBuffersPerPart = Math.max(1, bufferPool.getCapacity() / (maxPartsInFlight + 1));
+        long maxStreamLength = 0;
+        for (int partNumber = 1; partNumber <= TransferManagerConf.MAXIMUM_UPLOAD_PARTS; partNumber++) {
+            maxStreamLength += (long) buffersPerPart(partNumber) * bufferPool.getBufferSize();
+        }
+        this.maxStreamLength = maxStreamLength;
+        this.retryPolicy = new RetryPolicy(maxRetries, metrics, Operation.UPLOAD_PART);
+    }
+
+    /**
+     * Upload a local file in parts.
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param file local file
+     * @return result of the completed multipart upload.
+     */
+    CompleteMultipartUploadResult upload(String bucketName, String objectKey, File file) {
+        if (!file.isFile()) {
+            throw new CephException("Upload file is wrong");
+        }
+        long partSize = partSize(file.length());
+        String uploadId = initiate(bucketName, objectKey);
+        TaskWindow<PartETag> window = new TaskWindow<>(executor, maxPartsInFlight);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            submitFileParts(window, bucketName, objectKey, uploadId, channel, partSize, Collections.emptyMap(), partETag -> { });
+            return complete(bucketName, objectKey, uploadId, window.await());
+        } catch (IOException | RuntimeException e) {
+            window.cancelAndDrain();
+            throw abort(bucketName, objectKey, uploadId, e);
+        }
+    }
+
+    /**
+     * Upload a local file in parts, resuming the multipart upload recorded in the journal.
+     * <p>
+     * The parts already stored in the bucket are taken from {@code listParts}, only the missing parts are
+     * uploaded. If the upload fails the journal is kept and the multipart upload is not aborted, so the
+     * next call with the same arguments continues where this one stopped.
+     * </p>
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param file local file
+     * @param journal local checkpoint journal of this upload
+     * @return result of the completed multipart upload.
+     */
+    CompleteMultipartUploadResult resumableUpload(String bucketName, String objectKey, File file, File journal) {
+        if (!file.isFile()) {
+            throw new CephException("Upload file is wrong");
+        }
+        UploadCheckpoint checkpoint = UploadCheckpoint.load(journal);
+        Map<Integer, PartETag> uploaded = null;
+        if (checkpoint != null && checkpoint.matches(bucketName, objectKey, file)) {
+            uploaded = reconcile(bucketName, objectKey, file, checkpoint);
+        }
+        if (uploaded == null) {
+            long partSize = partSize(file.length());
+            checkpoint = UploadCheckpoint.create(journal, bucketName, objectKey,
+                    initiate(bucketName, objectKey), partSize, file);
+            uploaded = new TreeMap<>();
+        }
+        String uploadId = checkpoint.getUploadId();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            TaskWindow<PartETag> window = new TaskWindow<>(executor, maxPartsInFlight);
+            submitFileParts(window, bucketName, objectKey, uploadId, channel, checkpoint.getPartSize(), uploaded,
+                    checkpoint::partCompleted);
+            for (PartETag partETag : window.await()) {
+                uploaded.put(partETag.getPartNumber(), partETag);
+            }
+        } catch (IOException e) {
+            throw new CephException("Read upload file failed: " + e.getMessage(), e);
+        }
+        CompleteMultipartUploadResult result = complete(bucketName, objectKey, uploadId, new ArrayList<>(uploaded.values()));
+        checkpoint.delete();
+        return result;
+    }
+
+    /**
+     * Upload a stream of unknown length in parts.
+     * <p>
+     * The first {@link TransferManagerConf#STREAM_HEAD_SIZE} bytes are read on the heap, a stream that ends
+     * there is sent with a single put request without touching the buffer pool. Longer streams are read into
+     * pooled off-heap part buffers and every full part is uploaded while the next one is being read. Reading
+     * blocks while {@code maxPartsInFlight} parts are uploading or while the buffer pool is exhausted, so
+     * memory stays bounded however long the stream is. A stream shorter than one part is sent with a single
+     * put request.
+     * </p>
+     * <p>
+     * The length of the stream is not known up front, so parts start at one buffer and double every
+     * {@link TransferManagerConf#STREAM_PART_GROWTH_INTERVAL} parts, up to the share of the pool one upload
+     * may hold. A stream longer than {@link TransferManagerConf#MAXIMUM_UPLOAD_PARTS} such parts, see
+     * {@link #getMaxStreamLength()}, fails and its multipart upload is aborted.
+     * </p>
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param input stream, read to its end but not closed
+     * @return the new object.
+     */
+    S3ObjectSummary upload(String bucketName, String objectKey, InputStream input) {
+        ReadableByteChannel channel = Channels.newChannel(input);
+        ByteBuffer head = ByteBuffer.allocate(Math.min(TransferManagerConf.STREAM_HEAD_SIZE, bufferPool.getBufferSize()));
+        long length = readFully(channel, Collections.singletonList(head));
+        if (head.hasRemaining()) {
+            return putObject(bucketName, objectKey, Collections.singletonList(head), length);
+        }
+        List<ByteBuffer> buffers = acquireBuffers(1);
+        TaskWindow<PartETag> window = new TaskWindow<>(executor, maxPartsInFlight);
+        String uploadId = null;
+        try {
+            head.flip();
+            buffers.get(0).put(head);
+            length += readFully(channel, buffers);
+            if (length < bufferPool.getBufferSize()) {
+                return putObject(bucketName, objectKey, buffers, length);
+            }
+            uploadId = initiate(bucketName, objectKey);
+            long contentLength = 0;
+            int partNumber = 1;
+            while (length > 0) {
+                if (partNumber > TransferManagerConf.MAXIMUM_UPLOAD_PARTS) {
+                    throw new CephException("Upload stream is longer than " + maxStreamLength + " bytes, the limit of "
+                            + TransferManagerConf.MAXIMUM_UPLOAD_PARTS + " parts");
+                }
+                // from here on the part task returns the buffers to the pool
+                List<ByteBuffer> part = buffers;
+                buffers = null;
+                submitPart(window, part, length, bucketName, objectKey, uploadId, partNumber);
+                contentLength += length;
+                partNumber++;
+                buffers = acquireBuffers(buffersPerPart(partNumber));
+                length = readFully(channel, buffers);
+            }
+            CompleteMultipartUploadResult result = complete(bucketName, objectKey, uploadId, window.await());
+            return summary(bucketName, objectKey, result.getETag(), contentLength);
+        } catch (RuntimeException e) {
+            if (uploadId == null) {
+                throw e;
+            }
+            window.cancelAndDrain();
+            throw abort(bucketName, objectKey, uploadId, e);
+        } finally {
+            if (buffers != null) {
+                bufferPool.release(buffers);
+            }
+        }
+    }
+
+    /**
+     * @return the longest stream {@link #upload(String, String, InputStream)} can upload
+     */
+    long getMaxStreamLength() {
+        return maxStreamLength;
+    }
+
+    /**
+     * Send filled buffers with a single put request.
+     */
+    private S3ObjectSummary putObject(String bucketName, String objectKey, List<ByteBuffer> buffers, long length) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(length);
+        buffers.forEach(ByteBuffer::flip);
+        PutObjectResult result = amazonS3.putObject(bucketName, objectKey, new ByteBufferInputStream(buffers), metadata);
+        return summary(bucketName, objectKey, result.getETag(), length);
+    }
+
+    /**
+     * Start uploading the pooled buffers of a part, the buffers are released once the part is done.
+     */
+    private void submitPart(TaskWindow<PartETag> window, List<ByteBuffer> part, long size, String bucketName,
+                            String objectKey, String uploadId, int partNumber) {
+        part.forEach(ByteBuffer::flip);
+        try {
+            window.submit(() -> {
+                try {
+                    return retryPolicy.call(bucketName, size, () -> amazonS3.uploadPart(new UploadPartRequest()
+                            .withBucketName(bucketName)
+                            .withKey(objectKey)
+                            .withUploadId(uploadId)
+                            .withPartNumber(partNumber)
+                            .withInputStream(new ByteBufferInputStream(part))
+                            .withPartSize(size)).getPartETag());
+                } finally {
+                    bufferPool.release(part);
+                }
+            });
+        } catch (RuntimeException e) {
+            // not submitted, the buffers are still ours
+            bufferPool.release(part);
+            throw e;
+        }
+    }
+
+    /**
+     * number of pool buffers of a stream part, doubled every growth interval
+     */
+    private int buffersPerPart(int partNumber) {
+        int doublings = Math.min(30, (partNumber - 1) / TransferManagerConf.STREAM_PART_GROWTH_INTERVAL);
+        return Math.min(maxBuffersPerPart, 1 << doublings);
+    }
+
+    private List<ByteBuffer> acquireBuffers(int count) {
+        try {
+            return bufferPool.acquire(count);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CephException("Upload interrupted", e);
+        }
+    }
+
+    /**
+     * Read until the buffers are full or the stream ends.
+     *
+     * @return number of bytes read
+     */
+    private static long readFully(ReadableByteChannel channel, List<ByteBuffer> buffers) {
+        long length = 0;
+        try {
+            for (ByteBuffer buffer : buffers) {
+                int n = 0;
+                while (buffer.hasRemaining() && (n = channel.read(buffer)) >= 0) {
+                    length += n;
+                }
+                if (n < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new CephException("Read upload stream failed: " + e.getMessage(), e);
+        }
+        return length;
+    }
+
+    private static S3ObjectSummary summary(String bucketName, String objectKey, String etag, long size) {
+        S3ObjectSummary summary = new S3ObjectSummary();
+        summary.setBucketName(bucketName);
+        summary.setKey(objectKey);
+        summary.setETag(etag);
+        summary.setSize(size);
+        summary.setLastModified(new Date());
+        return summary;
+    }
+
+    /**
+     * Find the parts of the journal upload that are stored in the bucket with the expected size and,
+     * when the journal has one, the expected ETag.
+     *
+     * @return part number -> ETag, or null if the multipart upload no longer exists
+     */
+    private Map<Integer, PartETag> reconcile(String bucketName, String objectKey, File file, UploadCheckpoint checkpoint) {
+        Map<Integer, PartETag> uploaded = new TreeMap<>();
+        long contentLength = file.length();
+        long partSize = checkpoint.getPartSize();
+        ListPartsRequest request = new ListPartsRequest(bucketName, objectKey, checkpoint.getUploadId());
+        PartListing listing;
+        do {
+            try {
+                listing = amazonS3.listParts(request);
+            } catch (AmazonServiceException e) {
+                if (e.getStatusCode() == 404) {
+                    return null;
+                }
+                throw e;
+            }
+            for (PartSummary part : listing.getParts()) {
+                int partNumber = part.getPartNumber();
+                long offset = (partNumber - 1) * partSize;
+                long expectedSize = Math.min(partSize, contentLength - offset);
+                String etag = UploadCheckpoint.normalize(part.getETag());
+                String recorded = checkpoint.partETag(partNumber);
+                if (offset < Math.max(contentLength, 1) && part.getSize() == expectedSize
+                        && (recorded == null || recorded.equals(etag))) {
+                    uploaded.put(partNumber, new PartETag(partNumber, etag));
+                }
+            }
+            request.setPartNumberMarker(listing.getNextPartNumberMarker());
+        } while (listing.isTruncated());
+        return uploaded;
+    }
+
+    /**
+     * Submit every part of the file that is not in {@code skip}.
+     * <p>
+     * Every part is mapped read-only from the shared channel when its task starts and streamed from the
+     * mapping, instead of the SDK reopening the file per part and copying it through its own buffers. The
+     * SDK computes the part MD5 while it sends the mapped bytes, so each byte is read from the page cache
+     * once per attempt. The file must not be truncated during the upload.
+     * </p>
+     */
+    private void submitFileParts(TaskWindow<PartETag> window, String bucketName, String objectKey, String uploadId,
+                                 FileChannel channel, long partSize, Map<Integer, PartETag> skip,
+                                 Consumer<PartETag> listener) throws IOException {
+        long contentLength = channel.size();
+        long filePosition = 0;
+        int partNumber = 1;
+        do {
+            // the last part could be less than the part size
+            long size = Math.min(partSize, contentLength - filePosition);
+            long offset = filePosition;
+            int number = partNumber;
+            if (!skip.containsKey(number)) {
+                window.submit(() -> {
+                    ByteBuffer part = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                    PartETag partETag = retryPolicy.call(bucketName, size, () -> amazonS3.uploadPart(new UploadPartRequest()
+                            .withBucketName(bucketName)
+                            .withKey(objectKey)
+                            .withUploadId(uploadId)
+                            .withPartNumber(number)
+                            .withInputStream(new ByteBufferInputStream(part))
+                            .withPartSize(size)).getPartETag());
+                    listener.accept(partETag);
+                    return partETag;
+                });
+            }
+            filePosition += size;
+            partNumber++;
+        } while (filePosition < contentLength);
+    }
+
+    /**
+     * part size for a object, grown beyond {@link TransferManagerConf#MINIMUM_UPLOAD_PART_SIZE}
+     * when the object would need more than {@link TransferManagerConf#MAXIMUM_UPLOAD_PARTS} parts.
+     */
+    static long partSize(long contentLength) {
+        long minimum = TransferManagerConf.MINIMUM_UPLOAD_PART_SIZE;
+        long required = (contentLength + TransferManagerConf.MAXIMUM_UPLOAD_PARTS - 1) / TransferManagerConf.MAXIMUM_UPLOAD_PARTS;
+        return Math.max(minimum, required);
+    }
+
+    private String initiate(String bucketName, String objectKey) {
+        return amazonS3.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, objectKey)).getUploadId();
+    }
+
+    private CompleteMultipartUploadResult complete(String bucketName, String objectKey, String uploadId, List<PartETag> partETags) {
+        return amazonS3.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, objectKey, uploadId, partETags));
+    }
+
+    /**
+     * Abort the multipart upload, its part uploads must have finished so that no part is stored after it.
+     */
+    private CephException abort(String bucketName, String objectKey, String uploadId, Exception cause) {
+        try {
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectKey, uploadId));
+        } catch (SdkClientException e) {
+            cause.addSuppressed(e);
+        }
+        if (cause instanceof CephException) {
+            return (CephException) cause;
+        }
+        return new CephException(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,231 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: ObjectChannel
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.google.common.io.ByteStreams;
+import org.aaa.ceph.constant.TransferManagerConf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * read-only seekable channel over a remote object
+ * <p>
+ * The object is read in blocks of {@link TransferManagerConf#CHANNEL_BLOCK_SIZE} with ranged GETs, and the
+ * last {@link TransferManagerConf#CHANNEL_CACHED_BLOCKS} blocks are kept, so the header and footer lookups
+ * of file format readers cost one request each. A read continuing where the last one ended doubles the
+ * number of blocks fetched by the next request, up to {@link TransferManagerConf#CHANNEL_MAX_READ_AHEAD_BLOCKS};
+ * a seek elsewhere drops back to one block. Every range is requested with the ETag seen when the channel was
+ * opened, a concurrent overwrite fails the read instead of mixing two versions.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class ObjectChannel implements SeekableByteChannel {
+
+    private final AmazonS3 amazonS3;
+
+    private final RetryPolicy retryPolicy;
+
+    private final String bucketName;
+
+    private final String objectKey;
+
+    private final String etag;
+
+    private final long size;
+
+    private final int blockSize = TransferManagerConf.CHANNEL_BLOCK_SIZE;
+
+    /**
+     * block index -> content, least recently used first
+     */
+    private final Map<Long, byte[]> blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+            return size() > TransferManagerConf.CHANNEL_CACHED_BLOCKS;
+        }
+    };
+
+    private long position;
+
+    /**
+     * end of the last read, a read starting there is sequential
+     */
+    private long readEnd;
+
+    /**
+     * number of blocks the next fetch asks for
+     */
+    private int readAhead = 1;
+
+    private boolean open = true;
+
+    /**
+     * @param amazonS3 client
+     * @param retryPolicy retries of the range requests
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param metadata metadata of the object when it was opened
+     */
+    ObjectChannel(AmazonS3 amazonS3, RetryPolicy retryPolicy, String bucketName, String objectKey, ObjectMetadata metadata) {
+        this.amazonS3 = amazonS3;
+        this.retryPolicy = retryPolicy;
+        this.bucketName = bucketName;
+        this.objectKey = objectKey;
+        this.etag = metadata.getETag();
+        this.size = metadata.getContentLength();
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+        if (position != readEnd) {
+            readAhead = 1;
+        }
+        int total = 0;
+        while (dst.hasRemaining() && position < size) {
+            long index = position / blockSize;
+            byte[] block = blocks.get(index);
+            if (block == null) {
+                // at least the blocks covering the request, unless that exceeds the read-ahead limit
+                long covering = (position + dst.remaining() - 1) / blockSize - index + 1;
+                int count = (int) Math.max(readAhead, Math.min(covering, TransferManagerConf.CHANNEL_MAX_READ_AHEAD_BLOCKS));
+                block = fetch(index, count);
+                readAhead = Math.min(readAhead * 2, TransferManagerConf.CHANNEL_MAX_READ_AHEAD_BLOCKS);
+            }
+            int offset = (int) (position - index * blockSize);
+            int n = Math.min(block.length - offset, dst.remaining());
+            dst.put(block, offset, n);
+            position += n;
+            total += n;
+        }
+        readEnd = position;
+        return total;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Position must not be negative.");
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+        blocks.clear();
+    }
+
+    /**
+     * Fetch up to count blocks from the given one in one request, stopping before the first cached block.
+     *
+     * @return the first block fetched
+     */
+    private byte[] fetch(long first, int count) throws IOException {
+        long last = Math.min(first + count, (size + blockSize - 1) / blockSize) - 1;
+        for (long index = first + 1; index <= last; index++) {
+            if (blocks.containsKey(index)) {
+                last = index - 1;
+                break;
+            }
+        }
+        long start = first * blockSize;
+        byte[] data = fetchRange(start, Math.min((last + 1) * blockSize, size) - 1);
+        byte[] firstBlock = null;
+        for (long index = first; index <= last; index++) {
+            int from = (int) ((index - first) * blockSize);
+            byte[] block = new byte[Math.min(blockSize, data.length - from)];
+            System.arraycopy(data, from, block, 0, block.length);
+            blocks.put(index, block);
+            if (firstBlock == null) {
+                firstBlock = block;
+            }
+        }
+        return firstBlock;
+    }
+
+    private byte[] fetchRange(long start, long end) throws IOException {
+        try {
+            return retryPolicy.call(bucketName, end - start + 1, () -> {
+                GetObjectRequest request = new GetObjectRequest(bucketName, objectKey).withRange(start, end);
+                if (etag != null) {
+                    request.withMatchingETagConstraint(etag);
+                }
+                S3Object object = amazonS3.getObject(request);
+                if (object == null) {
+                    throw new IOException("Object " + objectKey + " changed while it was read");
+                }
+                byte[] data = new byte[(int) (end - start + 1)];
+                try (S3ObjectInputStream in = object.getObjectContent()) {
+                    if (ByteStreams.read(in, data, 0, data.length) < data.length) {
+                        in.abort();
+                        throw new SdkClientException("Range " + start + "-" + end + " of " + objectKey + " ended early");
+                    }
+                } catch (IOException e) {
+                    throw new SdkClientException("Range " + start + "-" + end + " of " + objectKey + " failed", e);
+                }
+                return data;
+            });
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+}
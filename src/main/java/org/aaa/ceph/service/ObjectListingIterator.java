@@ -0,0 +1,149 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: ObjectListingIterator
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import org.aaa.ceph.exception.CephException;
+import org.aaa.ceph.metrics.MetricsListener;
+import org.aaa.ceph.metrics.Operation;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * lazy iterator over all objects of a bucket
+ * <p>
+ * Pages are requested with ListObjectsV2 continuation tokens. As soon as a page arrives the next one is
+ * requested on the transfer pool, so the caller consumes one page while the following one is in flight.
+ * At most two pages are held in memory.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class ObjectListingIterator implements Iterator<S3ObjectSummary>, AutoCloseable {
+
+    private final AmazonS3 amazonS3;
+
+    private final ExecutorService executor;
+
+    private final String bucketName;
+
+    private final ListObjectsOptions options;
+
+    private final MetricsListener metrics;
+
+    private Iterator<S3ObjectSummary> page = Collections.emptyIterator();
+
+    /**
+     * true once the first page has been requested
+     */
+    private boolean started;
+
+    /**
+     * the page being fetched, null once the last page has been requested
+     */
+    private CompletableFuture<ListObjectsV2Result> nextPage;
+
+    ObjectListingIterator(AmazonS3 amazonS3, ExecutorService executor, String bucketName, ListObjectsOptions options,
+                          MetricsListener metrics) {
+        this.amazonS3 = amazonS3;
+        this.executor = executor;
+        this.bucketName = bucketName;
+        this.options = options;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            ListObjectsV2Result result;
+            if (!started) {
+                // the first page is requested lazily by the caller
+                started = true;
+                result = list(null);
+            } else if (nextPage == null) {
+                return false;
+            } else {
+                result = await(nextPage);
+            }
+            nextPage = result.isTruncated() ? prefetch(result.getNextContinuationToken()) : null;
+            page = result.getObjectSummaries().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public S3ObjectSummary next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    /**
+     * Stop the listing, a page being prefetched is discarded.
+     */
+    @Override
+    public void close() {
+        started = true;
+        if (nextPage != null) {
+            nextPage.cancel(false);
+            nextPage = null;
+        }
+        page = Collections.emptyIterator();
+    }
+
+    private CompletableFuture<ListObjectsV2Result> prefetch(String continuationToken) {
+        return CompletableFuture.supplyAsync(() -> list(continuationToken), executor);
+    }
+
+    private ListObjectsV2Result list(String continuationToken) {
+        ListObjectsV2Request request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(options.getPrefix())
+                .withDelimiter(options.getDelimiter())
+                .withMaxKeys(options.getPageSize());
+        if (continuationToken == null) {
+            request.setStartAfter(options.getStartAfter());
+        } else {
+            request.setContinuationToken(continuationToken);
+        }
+        // every page is reported as one list operation
+        metrics.operationStarted(Operation.LIST_OBJECTS, bucketName);
+        long start = System.nanoTime();
+        SdkClientException error = null;
+        try {
+            return amazonS3.listObjectsV2(request);
+        } catch (SdkClientException e) {
+            error = e;
+            throw new CephException(e.getMessage(), e);
+        } finally {
+            metrics.operationCompleted(Operation.LIST_OBJECTS, bucketName, System.nanoTime() - start, 0, error);
+        }
+    }
+
+    private static ListObjectsV2Result await(CompletableFuture<ListObjectsV2Result> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CephException) {
+                throw (CephException) cause;
+            }
+            throw new CephException(cause.getMessage(), cause);
+        }
+    }
+}
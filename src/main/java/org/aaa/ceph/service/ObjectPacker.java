@@ -0,0 +1,470 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: ObjectPacker
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.exception.CephException;
+import org.aaa.ceph.metrics.MetricsListener;
+import org.aaa.ceph.metrics.Operation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * packs small objects into large pack objects
+ * <p>
+ * Objects appended for a bucket are copied into the open pack of that bucket, a pooled part buffer. The pack
+ * is uploaded as one object once it is full or {@code linger} after its first object, and every caller
+ * waiting on it is completed with its location (group commit). A pack is
+ * {@code <objects><index><trailer>}: the index holds offset, length and CRC32 of every object, the
+ * 16 byte trailer holds the index offset, the object count and a magic number, so a pack can be enumerated
+ * from its last bytes. Reading an object is a ranged GET of its location.
+ * </p>
+ * <p>
+ * Removing a packed object writes an empty tombstone {@code <packKey>.deleted.<offset>.<length>} next to
+ * the pack. Compaction lists the packs with their tombstones, rewrites the live objects of the packs whose
+ * removed share reached the threshold into new packs and removes the old packs with their tombstones.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class ObjectPacker {
+
+    private static final Log LOG = LogFactory.getLog(ObjectPacker.class);
+
+    private static final int INDEX_ENTRY_SIZE = 16;
+
+    private static final int TRAILER_SIZE = 16;
+
+    /**
+     * "CPK1"
+     */
+    private static final int MAGIC = 0x43504b31;
+
+    private static final String DELETED = ".deleted.";
+
+    private final AmazonS3 amazonS3;
+
+    private final ExecutorService executor;
+
+    private final PartBufferPool bufferPool;
+
+    private final BatchDeleter batchDeleter;
+
+    private final RetryPolicy retryPolicy;
+
+    private final int maxObjectSize;
+
+    private final long lingerNanos;
+
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * bucket -> pack taking new objects, guarded by this
+     */
+    private final Map<String, Pack> open = new HashMap<>();
+
+    private final Set<Pack> uploading = ConcurrentHashMap.newKeySet();
+
+    private boolean closed;
+
+    /**
+     * @param amazonS3 client
+     * @param executor shared transfer pool, uploads the packs
+     * @param bufferPool part buffers, one per open or uploading pack
+     * @param batchDeleter removes compacted packs
+     * @param maxRetries number of retries of a pack upload
+     * @param metrics listener of the pack uploads
+     * @param maxObjectSize largest object accepted
+     * @param lingerNanos time a pack waits for more objects
+     */
+    ObjectPacker(AmazonS3 amazonS3, ExecutorService executor, PartBufferPool bufferPool, BatchDeleter batchDeleter,
+                 int maxRetries, MetricsListener metrics, int maxObjectSize, long lingerNanos) {
+        this.amazonS3 = amazonS3;
+        this.executor = executor;
+        this.bufferPool = bufferPool;
+        this.batchDeleter = batchDeleter;
+        this.retryPolicy = new RetryPolicy(maxRetries, metrics, Operation.PUT_OBJECT);
+        this.maxObjectSize = maxObjectSize;
+        this.lingerNanos = lingerNanos;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat(TransferManagerConf.PACK_FLUSH_THREAD_NAME).setDaemon(true).build());
+    }
+
+    int getMaxObjectSize() {
+        return maxObjectSize;
+    }
+
+    /**
+     * Append an object to the open pack of the bucket.
+     *
+     * @return completed with the location once the pack is stored
+     */
+    CompletableFuture<PackedObject> append(String bucketName, byte[] content) {
+        if (content.length > maxObjectSize) {
+            throw new IllegalArgumentException("Object of " + content.length + " bytes exceeds the pack limit of "
+                    + maxObjectSize + " bytes.");
+        }
+        while (true) {
+            Pack full = null;
+            synchronized (this) {
+                ensureOpen();
+                Pack pack = open.get(bucketName);
+                if (pack != null && pack.fits(content.length)) {
+                    return pack.add(content);
+                }
+                if (pack != null) {
+                    open.remove(bucketName);
+                    full = pack;
+                }
+            }
+            if (full != null) {
+                upload(full);
+            }
+            // waiting for a buffer must not hold the lock, the flusher needs it to release buffers
+            ByteBuffer buffer = acquireBuffer();
+            synchronized (this) {
+                if (!closed && !open.containsKey(bucketName)) {
+                    Pack pack = new Pack(bucketName, buffer);
+                    open.put(bucketName, pack);
+                    flusher.schedule(() -> flush(pack), lingerNanos, TimeUnit.NANOSECONDS);
+                    return pack.add(content);
+                }
+            }
+            // another thread opened a pack meanwhile
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Write the tombstone of a packed object.
+     */
+    void remove(String bucketName, PackedObject object) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(0);
+        amazonS3.putObject(bucketName, tombstoneKey(object), new ByteArrayInputStream(new byte[0]), metadata);
+    }
+
+    /**
+     * Rewrite the packs whose removed objects take at least {@code minDeadRatio} of their size.
+     *
+     * @param bucketName The bucket of the packs.
+     * @param listing every key under {@link TransferManagerConf#PACK_KEY_PREFIX}
+     * @param minDeadRatio share of removed bytes that makes a pack worth compacting
+     * @return the compacted packs and the new locations of their live objects
+     */
+    PackCompaction compact(String bucketName, Stream<S3ObjectSummary> listing, double minDeadRatio) {
+        Map<String, Long> packSizes = new LinkedHashMap<>();
+        Map<String, Set<String>> tombstones = new HashMap<>();
+        listing.forEach(summary -> {
+            String key = summary.getKey();
+            int deleted = key.indexOf(DELETED);
+            if (deleted < 0) {
+                packSizes.put(key, summary.getSize());
+            } else {
+                tombstones.computeIfAbsent(key.substring(0, deleted), k -> new HashSet<>()).add(key);
+            }
+        });
+        int compactedPacks = 0;
+        long reclaimedBytes = 0;
+        Map<PackedObject, PackedObject> relocated = new LinkedHashMap<>();
+        List<String> garbage = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : tombstones.entrySet()) {
+            String packKey = entry.getKey();
+            Long packSize = packSizes.get(packKey);
+            if (packSize == null) {
+                // left over from a compaction that could not remove every tombstone
+                garbage.addAll(entry.getValue());
+                continue;
+            }
+            long deadBytes = entry.getValue().stream().mapToLong(ObjectPacker::tombstoneLength).sum();
+            if (deadBytes < minDeadRatio * packSize) {
+                continue;
+            }
+            reclaimedBytes += packSize - compact(bucketName, packKey, entry.getValue(), relocated);
+            compactedPacks++;
+        }
+        batchDeleter.delete(bucketName, garbage);
+        return new PackCompaction(compactedPacks, reclaimedBytes, relocated);
+    }
+
+    /**
+     * Copy the live objects of one pack into new packs and remove it.
+     *
+     * @return bytes copied
+     */
+    private long compact(String bucketName, String packKey, Set<String> tombstones, Map<PackedObject, PackedObject> relocated) {
+        ByteBuffer pack = ByteBuffer.wrap(read(bucketName, packKey));
+        if (pack.remaining() < TRAILER_SIZE || pack.getInt(pack.limit() - 4) != MAGIC) {
+            throw new CephException("Pack " + packKey + " has no index");
+        }
+        long indexOffset = pack.getLong(pack.limit() - TRAILER_SIZE);
+        int count = pack.getInt(pack.limit() - 8);
+        Map<PackedObject, CompletableFuture<PackedObject>> copies = new LinkedHashMap<>();
+        long copied = 0;
+        for (int i = 0; i < count; i++) {
+            int position = (int) indexOffset + i * INDEX_ENTRY_SIZE;
+            PackedObject object = new PackedObject(packKey, pack.getLong(position), pack.getInt(position + 8));
+            if (tombstones.contains(tombstoneKey(object))) {
+                continue;
+            }
+            byte[] content = new byte[object.getLength()];
+            ((ByteBuffer) pack.duplicate().position((int) object.getOffset())).get(content);
+            if (crc32(content) != pack.getInt(position + 12)) {
+                throw new CephException("Object at " + object.getOffset() + " of pack " + packKey + " is damaged");
+            }
+            copies.put(object, append(bucketName, content));
+            copied += content.length;
+        }
+        Map<PackedObject, PackedObject> moved = new LinkedHashMap<>();
+        for (Map.Entry<PackedObject, CompletableFuture<PackedObject>> copy : copies.entrySet()) {
+            moved.put(copy.getKey(), join(copy.getValue()));
+        }
+        // objects removed while the pack was copied are removed from the copy as well
+        Set<String> keys = new HashSet<>(tombstones);
+        for (String key : listTombstones(amazonS3, bucketName, packKey)) {
+            if (keys.add(key)) {
+                PackedObject copy = moved.remove(objectOf(packKey, key));
+                if (copy != null) {
+                    remove(bucketName, copy);
+                }
+            }
+        }
+        relocated.putAll(moved);
+        keys.add(packKey);
+        if (!batchDeleter.delete(bucketName, keys).isEmpty()) {
+            LOG.warn("Pack " + packKey + " was compacted but not fully removed, the next compaction retries");
+        }
+        return copied;
+    }
+
+    /**
+     * Upload the open packs and wait for every pack upload, later appends fail.
+     */
+    void close() {
+        List<Pack> last;
+        synchronized (this) {
+            closed = true;
+            last = new ArrayList<>(open.values());
+            open.clear();
+        }
+        flusher.shutdownNow();
+        last.forEach(this::upload);
+        for (Pack pack : new ArrayList<>(uploading)) {
+            try {
+                pack.stored.get(TransferManagerConf.SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException e) {
+                LOG.warn("Pack upload did not complete on close", e);
+            }
+        }
+    }
+
+    /**
+     * Upload a pack that is still open after the linger time.
+     */
+    private void flush(Pack pack) {
+        synchronized (this) {
+            if (open.get(pack.bucketName) != pack) {
+                return;
+            }
+            open.remove(pack.bucketName);
+        }
+        upload(pack);
+    }
+
+    private void upload(Pack pack) {
+        uploading.add(pack);
+        try {
+            executor.execute(pack::upload);
+        } catch (RuntimeException e) {
+            pack.fail(e);
+        }
+    }
+
+    private ByteBuffer acquireBuffer() {
+        try {
+            return bufferPool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CephException("Pack interrupted", e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new CephException("Packer is closed");
+        }
+    }
+
+    private byte[] read(String bucketName, String packKey) {
+        S3Object object = amazonS3.getObject(bucketName, packKey);
+        try (S3ObjectInputStream in = object.getObjectContent()) {
+            return ByteStreams.toByteArray(in);
+        } catch (IOException e) {
+            throw new CephException("Read pack " + packKey + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * keys of the tombstones of a pack, listed with one LIST request per 1000 tombstones
+     */
+    static List<String> listTombstones(AmazonS3 amazonS3, String bucketName, String packKey) {
+        List<String> keys = new ArrayList<>();
+        ObjectListing listing = amazonS3.listObjects(new ListObjectsRequest()
+                .withBucketName(bucketName)
+                .withPrefix(packKey + DELETED));
+        while (true) {
+            listing.getObjectSummaries().forEach(summary -> keys.add(summary.getKey()));
+            if (!listing.isTruncated()) {
+                return keys;
+            }
+            listing = amazonS3.listNextBatchOfObjects(listing);
+        }
+    }
+
+    private static PackedObject join(CompletableFuture<PackedObject> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CephException("Pack interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof CephException ? (CephException) e.getCause()
+                    : new CephException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * key of the empty object marking a packed object as removed
+     */
+    static String tombstoneKey(PackedObject object) {
+        return object.getPackKey() + DELETED + object.getOffset() + "." + object.getLength();
+    }
+
+    private static PackedObject objectOf(String packKey, String tombstoneKey) {
+        String[] location = tombstoneKey.substring(packKey.length() + DELETED.length()).split("\\.");
+        return new PackedObject(packKey, Long.parseLong(location[0]), Integer.parseInt(location[1]));
+    }
+
+    private static long tombstoneLength(String tombstoneKey) {
+        return Long.parseLong(tombstoneKey.substring(tombstoneKey.lastIndexOf('.') + 1));
+    }
+
+    private static int crc32(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * objects collected for one upload, guarded by the packer until it is handed to {@link #upload(Pack)}
+     */
+    private final class Pack {
+
+        private final String bucketName;
+
+        private final ByteBuffer buffer;
+
+        private final List<long[]> index = new ArrayList<>();
+
+        private final List<CompletableFuture<PackedObject>> waiting = new ArrayList<>();
+
+        /**
+         * completed once the upload succeeded or failed
+         */
+        private final CompletableFuture<Void> stored = new CompletableFuture<>();
+
+        private Pack(String bucketName, ByteBuffer buffer) {
+            this.bucketName = bucketName;
+            this.buffer = buffer;
+        }
+
+        private boolean fits(int length) {
+            return buffer.position() + length + (long) (index.size() + 1) * INDEX_ENTRY_SIZE + TRAILER_SIZE
+                    <= buffer.capacity();
+        }
+
+        private CompletableFuture<PackedObject> add(byte[] content) {
+            index.add(new long[]{buffer.position(), content.length, crc32(content)});
+            buffer.put(content);
+            CompletableFuture<PackedObject> location = new CompletableFuture<>();
+            waiting.add(location);
+            return location;
+        }
+
+        private void upload() {
+            String packKey = TransferManagerConf.PACK_KEY_PREFIX + UUID.randomUUID();
+            try {
+                long indexOffset = buffer.position();
+                for (long[] entry : index) {
+                    buffer.putLong(entry[0]).putInt((int) entry[1]).putInt((int) entry[2]);
+                }
+                buffer.putLong(indexOffset).putInt(index.size()).putInt(MAGIC);
+                buffer.flip();
+                retryPolicy.call(bucketName, buffer.remaining(), () -> {
+                    ObjectMetadata metadata = new ObjectMetadata();
+                    metadata.setContentLength(buffer.remaining());
+                    return amazonS3.putObject(bucketName, packKey, new ByteBufferInputStream(buffer), metadata);
+                });
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            for (int i = 0; i < index.size(); i++) {
+                waiting.get(i).complete(new PackedObject(packKey, index.get(i)[0], (int) index.get(i)[1]));
+            }
+            done();
+        }
+
+        private void fail(Exception e) {
+            CephException failure = e instanceof CephException ? (CephException) e
+                    : new CephException("Pack upload failed: " + e.getMessage(), e);
+            waiting.forEach(location -> location.completeExceptionally(failure));
+            done();
+        }
+
+        private void done() {
+            bufferPool.release(buffer);
+            uploading.remove(this);
+            stored.complete(null);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: PackCompaction
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * outcome of {@link CS3Service#compactPacks(String, double)}
+ *
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class PackCompaction {
+
+    private final int compactedPacks;
+
+    private final long reclaimedBytes;
+
+    private final Map<PackedObject, PackedObject> relocated;
+
+    PackCompaction(int compactedPacks, long reclaimedBytes, Map<PackedObject, PackedObject> relocated) {
+        this.compactedPacks = compactedPacks;
+        this.reclaimedBytes = reclaimedBytes;
+        this.relocated = Collections.unmodifiableMap(relocated);
+    }
+
+    /**
+     * @return number of pack objects rewritten or removed.
+     */
+    public int getCompactedPacks() {
+        return compactedPacks;
+    }
+
+    /**
+     * @return bytes of removed objects freed in the bucket.
+     */
+    public long getReclaimedBytes() {
+        return reclaimedBytes;
+    }
+
+    /**
+     * The compacted packs are removed, the old locations of their live objects stop working.
+     *
+     * @return old location -> new location of every live object of the compacted packs.
+     */
+    public Map<PackedObject, PackedObject> getRelocated() {
+        return relocated;
+    }
+
+    @Override
+    public String toString() {
+        return "PackCompaction{compactedPacks=" + compactedPacks + ", reclaimedBytes=" + reclaimedBytes
+                + ", relocated=" + relocated.size() + '}';
+    }
+}
@@ -0,0 +1,77 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: PackedObject
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import java.util.Objects;
+
+/**
+ * location of a small object stored inside a pack object, see {@link CS3Service#packObject(String, byte[])}
+ *
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class PackedObject {
+
+    private final String packKey;
+
+    private final long offset;
+
+    private final int length;
+
+    public PackedObject(String packKey, long offset, int length) {
+        if (packKey == null || offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid packed object location.");
+        }
+        this.packKey = packKey;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return key of the pack object in the bucket.
+     */
+    public String getPackKey() {
+        return packKey;
+    }
+
+    /**
+     * @return position of the first byte in the pack.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return size of the object in bytes.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PackedObject)) {
+            return false;
+        }
+        PackedObject that = (PackedObject) o;
+        return offset == that.offset && length == that.length && packKey.equals(that.packKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(packKey, offset, length);
+    }
+
+    @Override
+    public String toString() {
+        return "PackedObject{packKey=" + packKey + ", offset=" + offset + ", length=" + length + '}';
+    }
+}
@@ -0,0 +1,108 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: PartBufferPool
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * bounded pool of reusable off-heap part buffers
+ * <p>
+ * Buffers are direct ByteBuffers of one part size, allocated on first use and kept for reuse, so staging
+ * parts does not churn the heap. At most {@code capacity} buffers exist; {@link #acquire()} blocks while
+ * all of them are borrowed, which throttles readers to the speed of the uploads. The buffers of one part are
+ * borrowed together, so readers waiting for a part never hold half of one.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class PartBufferPool {
+
+    private final int bufferSize;
+
+    private final int capacity;
+
+    private final Semaphore permits;
+
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    /**
+     * @param bufferSize size of one buffer
+     * @param maxBytes off-heap memory limit of the pool, at least one buffer is always allowed
+     */
+    PartBufferPool(int bufferSize, long maxBytes) {
+        this.bufferSize = bufferSize;
+        this.capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / bufferSize));
+        this.permits = new Semaphore(capacity, true);
+    }
+
+    /**
+     * Borrow a cleared buffer, waiting until one is returned if the pool is exhausted.
+     */
+    ByteBuffer acquire() throws InterruptedException {
+        return acquire(1).get(0);
+    }
+
+    /**
+     * Borrow {@code count} cleared buffers at once, waiting until enough are returned.
+     *
+     * @param count number of buffers, at most the capacity of the pool
+     */
+    List<ByteBuffer> acquire(int count) throws InterruptedException {
+        permits.acquire(count);
+        List<ByteBuffer> buffers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ByteBuffer buffer = free.poll();
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(bufferSize);
+                allocated.incrementAndGet();
+            }
+            buffer.clear();
+            buffers.add(buffer);
+        }
+        return buffers;
+    }
+
+    /**
+     * Return a borrowed buffer.
+     */
+    void release(ByteBuffer buffer) {
+        free.offer(buffer);
+        permits.release();
+    }
+
+    /**
+     * Return borrowed buffers.
+     */
+    void release(List<ByteBuffer> buffers) {
+        for (ByteBuffer buffer : buffers) {
+            free.offer(buffer);
+        }
+        permits.release(buffers.size());
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    BufferPoolStats stats() {
+        return new BufferPoolStats(bufferSize, capacity, allocated.get(),
+                capacity - permits.availablePermits(), permits.getQueueLength());
+    }
+}
@@ -0,0 +1,37 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: PurgeListener
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+
+/**
+ * progress callback of a bucket purge
+ * <p>
+ * Called from the transfer threads while the purge runs, implementations must be thread-safe and fast.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+@FunctionalInterface
+public interface PurgeListener {
+
+    /**
+     * Called after every delete request and every aborted multipart upload.
+     *
+     * @param progress counters of the purge so far.
+     */
+    void progressChanged(PurgeProgress progress);
+
+    /**
+     * Called for every key that could not be deleted.
+     *
+     * @param error the key and the error of the gateway.
+     */
+    default void deleteFailed(DeleteError error) {
+    }
+}
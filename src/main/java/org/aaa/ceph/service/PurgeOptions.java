@@ -0,0 +1,100 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: PurgeOptions
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+/**
+ * options of a bucket purge
+ * <p>
+ * Fluent options for {@link CS3Service#purge(String, PurgeOptions)}. Without any option every object and
+ * every in-progress multipart upload of the bucket is deleted and the bucket itself is kept.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public class PurgeOptions {
+
+    /**
+     * only keys beginning with the prefix
+     */
+    private String prefix;
+    /**
+     * remove the bucket once it is empty
+     */
+    private boolean removeBucket;
+    /**
+     * number of delete requests running concurrently, 0 uses the part concurrency of the service
+     */
+    private int concurrency;
+    /**
+     * progress callback
+     */
+    private PurgeListener listener;
+
+    /**
+     * Sets the key prefix to delete.
+     *
+     * @param prefix Key prefix.
+     * @return This object for method chaining.
+     */
+    public PurgeOptions prefix(String prefix) {
+        this.prefix = prefix;
+        return this;
+    }
+
+    /**
+     * Sets whether the bucket is removed after the purge. Not allowed together with a prefix.
+     *
+     * @param removeBucket true to remove the bucket.
+     * @return This object for method chaining.
+     */
+    public PurgeOptions removeBucket(boolean removeBucket) {
+        this.removeBucket = removeBucket;
+        return this;
+    }
+
+    /**
+     * Sets the number of delete requests of up to 1000 keys running concurrently.
+     *
+     * @param concurrency Delete requests in flight.
+     * @return This object for method chaining.
+     */
+    public PurgeOptions concurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Sets the listener notified after every delete request.
+     *
+     * @param listener Progress listener.
+     * @return This object for method chaining.
+     */
+    public PurgeOptions listener(PurgeListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    String getPrefix() {
+        return prefix;
+    }
+
+    boolean isRemoveBucket() {
+        return removeBucket;
+    }
+
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    PurgeListener getListener() {
+        return listener;
+    }
+}
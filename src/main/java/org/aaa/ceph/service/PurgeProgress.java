@@ -0,0 +1,79 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: PurgeProgress
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+/**
+ * counters of a bucket purge
+ * <p>
+ * Immutable snapshot passed to {@link PurgeListener} and returned by
+ * {@link CS3Service#purge(String, PurgeOptions)} once the purge is finished.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public final class PurgeProgress {
+
+    private final long listed;
+
+    private final long deleted;
+
+    private final long failed;
+
+    private final long abortedUploads;
+
+    private final boolean bucketRemoved;
+
+    PurgeProgress(long listed, long deleted, long failed, long abortedUploads, boolean bucketRemoved) {
+        this.listed = listed;
+        this.deleted = deleted;
+        this.failed = failed;
+        this.abortedUploads = abortedUploads;
+        this.bucketRemoved = bucketRemoved;
+    }
+
+    /**
+     * @return number of keys listed so far.
+     */
+    public long getListed() {
+        return listed;
+    }
+
+    /**
+     * @return number of keys deleted so far.
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return number of keys that could not be deleted.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return number of in-progress multipart uploads aborted.
+     */
+    public long getAbortedUploads() {
+        return abortedUploads;
+    }
+
+    /**
+     * @return true if the bucket was removed at the end of the purge.
+     */
+    public boolean isBucketRemoved() {
+        return bucketRemoved;
+    }
+
+    @Override
+    public String toString() {
+        return "PurgeProgress{listed=" + listed + ", deleted=" + deleted + ", failed=" + failed
+                + ", abortedUploads=" + abortedUploads + ", bucketRemoved=" + bucketRemoved + '}';
+    }
+}
@@ -0,0 +1,161 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: RangedDownloader
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.exception.CephException;
+import org.aaa.ceph.metrics.MetricsListener;
+import org.aaa.ceph.metrics.Operation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * parallel download of one object to a local file
+ * <p>
+ * The object is split into byte ranges of {@link TransferManagerConf#MINIMUM_UPLOAD_PART_SIZE}. The ranges
+ * are fetched concurrently on the shared transfer pool and every range is written straight to its offset
+ * in the file with positional {@link FileChannel} writes, so the object is never buffered as a whole.
+ * All ranges are requested with the ETag of the HEAD response, a concurrent overwrite fails the download
+ * instead of mixing two versions.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class RangedDownloader {
+
+    /**
+     * size of the copy buffer of one range
+     */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final AmazonS3 amazonS3;
+
+    private final ExecutorService executor;
+
+    private final int maxRangesInFlight;
+
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * @param amazonS3 client
+     * @param executor shared transfer pool
+     * @param maxRangesInFlight number of ranges downloading concurrently for one object
+     * @param maxRetries number of retries of a single range
+     * @param metrics listener of the range requests
+     */
+    RangedDownloader(AmazonS3 amazonS3, ExecutorService executor, int maxRangesInFlight, int maxRetries,
+                     MetricsListener metrics) {
+        this.amazonS3 = amazonS3;
+        this.executor = executor;
+        this.maxRangesInFlight = maxRangesInFlight;
+        this.retryPolicy = new RetryPolicy(maxRetries, metrics, Operation.GET_RANGE);
+    }
+
+    /**
+     * Download the object to the file, replacing its content.
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param file local file
+     */
+    void download(String bucketName, String objectKey, File file) {
+        download(bucketName, objectKey, file, amazonS3.getObjectMetadata(bucketName, objectKey));
+    }
+
+    /**
+     * Download the object to the file, replacing its content.
+     *
+     * @param bucketName The specified bucket.
+     * @param objectKey The specified unique identifier.
+     * @param file local file
+     * @param metadata metadata of the object from a HEAD request, the download fails if its ETag changed since
+     */
+    void download(String bucketName, String objectKey, File file, ObjectMetadata metadata) {
+        long contentLength = metadata.getContentLength();
+        long rangeSize = TransferManagerConf.MINIMUM_UPLOAD_PART_SIZE;
+        if (contentLength <= TransferManagerConf.MULTIPART_UPLOAD_THRESHOLD) {
+            ObjectMetadata downloaded = amazonS3.getObject(new GetObjectRequest(bucketName, objectKey)
+                    .withMatchingETagConstraint(metadata.getETag()), file);
+            // null when the ETag constraint failed, the object was overwritten after the HEAD
+            if (downloaded == null) {
+                throw new CephException("Object " + objectKey + " changed during download");
+            }
+            return;
+        }
+        TaskWindow<Void> window = new TaskWindow<>(executor, maxRangesInFlight);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            try {
+                for (long start = 0; start < contentLength; start += rangeSize) {
+                    long end = Math.min(start + rangeSize, contentLength) - 1;
+                    long first = start;
+                    window.submit(() -> {
+                        downloadRange(bucketName, objectKey, metadata.getETag(), first, end, channel);
+                        return null;
+                    });
+                }
+                window.await();
+            } catch (RuntimeException e) {
+                // ranges still in flight write to the channel, wait for them before it is closed and the file deleted
+                window.cancelAndDrain();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            if (e instanceof CephException) {
+                throw (CephException) e;
+            }
+            throw new CephException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copy the bytes [start, end] of the object to the same position of the channel.
+     * A retry continues from the last byte written.
+     */
+    private void downloadRange(String bucketName, String objectKey, String etag, long start, long end,
+                               FileChannel channel) throws Exception {
+        long[] position = {start};
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        retryPolicy.call(bucketName, end - start + 1, () -> {
+            S3Object object = amazonS3.getObject(new GetObjectRequest(bucketName, objectKey)
+                    .withRange(position[0], end)
+                    .withMatchingETagConstraint(etag));
+            if (object == null) {
+                throw new CephException("Object " + objectKey + " changed during download");
+            }
+            try (S3ObjectInputStream in = object.getObjectContent()) {
+                int n;
+                while (position[0] <= end && (n = in.read(buffer.array())) > 0) {
+                    buffer.clear().limit(n);
+                    while (buffer.hasRemaining()) {
+                        position[0] += channel.write(buffer, position[0]);
+                    }
+                }
+                if (position[0] <= end) {
+                    in.abort();
+                    throw new SdkClientException("Range " + start + "-" + end + " of " + objectKey + " ended early");
+                }
+            } catch (IOException e) {
+                throw new SdkClientException("Range " + start + "-" + end + " of " + objectKey + " failed", e);
+            }
+            return null;
+        });
+    }
+}
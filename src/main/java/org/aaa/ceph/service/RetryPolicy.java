@@ -0,0 +1,86 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: RetryPolicy
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.metrics.MetricsListener;
+import org.aaa.ceph.metrics.Operation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry of a single part or range, on top of the retries of the SDK itself.
+ * <p>
+ * Server errors, throttling, request timeouts and retryable client errors are retried with exponential
+ * backoff starting at {@link TransferManagerConf#RETRY_BASE_DELAY_MILLIS}. Every call is reported to the
+ * {@link MetricsListener} as one operation, including its retries.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class RetryPolicy {
+
+    private final int maxRetries;
+
+    private final MetricsListener metrics;
+
+    private final Operation operation;
+
+    /**
+     * @param maxRetries number of retries after the first attempt
+     * @param metrics listener notified of every call and retry
+     * @param operation operation the calls are reported under
+     */
+    RetryPolicy(int maxRetries, MetricsListener metrics, Operation operation) {
+        this.maxRetries = maxRetries;
+        this.metrics = metrics;
+        this.operation = operation;
+    }
+
+    /**
+     * Run the call, retrying retryable failures.
+     *
+     * @param bucketName bucket of the request, for the metrics
+     * @param bytes payload of the request, for the metrics
+     * @param call the call, invoked once per attempt
+     */
+    <T> T call(String bucketName, long bytes, Callable<T> call) throws Exception {
+        metrics.operationStarted(operation, bucketName);
+        long start = System.nanoTime();
+        Exception error = null;
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return call.call();
+                } catch (SdkClientException e) {
+                    if (attempt >= maxRetries || !isRetryable(e)) {
+                        throw e;
+                    }
+                    metrics.retried(operation, bucketName, e);
+                    TimeUnit.MILLISECONDS.sleep(TransferManagerConf.RETRY_BASE_DELAY_MILLIS << attempt);
+                }
+            }
+        } catch (Exception e) {
+            error = e;
+            throw e;
+        } finally {
+            metrics.operationCompleted(operation, bucketName, System.nanoTime() - start, error == null ? bytes : 0, error);
+        }
+    }
+
+    static boolean isRetryable(SdkClientException e) {
+        if (e instanceof AmazonServiceException) {
+            int status = ((AmazonServiceException) e).getStatusCode();
+            return status >= 500 || status == 408 || status == 429;
+        }
+        return e.isRetryable();
+    }
+}
@@ -0,0 +1,144 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: TaskWindow
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import org.aaa.ceph.exception.CephException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bounded window of tasks running on the shared transfer pool.
+ * <p>
+ * {@link #submit(Callable)} blocks while {@code permits} tasks are running, so a producer can never get
+ * further ahead than the window. The first failure stops further submissions and {@link #await()}
+ * cancels the remaining tasks. A cancelled task still runs, but fails at once, so that the cleanup in its
+ * {@code finally} blocks (e.g. returning a pooled buffer) always happens. Results are returned in
+ * submission order.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class TaskWindow<T> {
+
+    private final ExecutorService executor;
+
+    private final Semaphore permits;
+
+    private final List<Future<T>> tasks = new ArrayList<>();
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private volatile boolean cancelled;
+
+    /**
+     * @param executor shared transfer pool
+     * @param permits number of tasks running at the same time
+     */
+    TaskWindow(ExecutorService executor, int permits) {
+        this.executor = executor;
+        this.permits = new Semaphore(permits);
+    }
+
+    /**
+     * Wait for a free slot and start the task. Fails fast once any task has failed.
+     */
+    void submit(Callable<T> task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new CephException("Transfer interrupted", e);
+        }
+        if (failure.get() != null) {
+            permits.release();
+            cancel();
+            throw toCephException(failure.get());
+        }
+        tasks.add(executor.submit(() -> {
+            try {
+                if (cancelled) {
+                    throw new CancellationException("Transfer cancelled");
+                }
+                return task.call();
+            } catch (Exception | Error e) {
+                failure.compareAndSet(null, e);
+                throw e;
+            } finally {
+                permits.release();
+            }
+        }));
+    }
+
+    /**
+     * @return the task results in submission order
+     */
+    List<T> await() {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> task : tasks) {
+                results.add(task.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new CephException("Transfer interrupted", e);
+        } catch (ExecutionException | CancellationException e) {
+            cancel();
+            throw toCephException(e instanceof ExecutionException ? e.getCause() : e);
+        }
+        return results;
+    }
+
+    /**
+     * Tasks not started yet fail as soon as they start, running tasks finish their current request.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Cancel the window and wait until every submitted task has finished, whatever its outcome, so that no
+     * request of the window is still running when the caller cleans up behind it. An interrupt does not stop
+     * the wait, it is restored afterwards.
+     */
+    void cancelAndDrain() {
+        cancel();
+        boolean interrupted = false;
+        for (Future<T> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CephException toCephException(Throwable cause) {
+        if (cause instanceof CephException) {
+            return (CephException) cause;
+        }
+        return new CephException("Transfer failed: " + cause.getMessage(), cause);
+    }
+}
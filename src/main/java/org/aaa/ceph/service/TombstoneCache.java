@@ -0,0 +1,81 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: TombstoneCache
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * tombstones of the packs recently read
+ * <p>
+ * The tombstones of a pack are listed once and remembered for {@code ttlNanos}, so reading a packed object
+ * costs a single ranged GET of its pack. Objects removed through the service invalidate their pack at once;
+ * an object removed by another client stays readable until the TTL expires or the pack is compacted.
+ * A listing that raced with a removal is used once but not remembered.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class TombstoneCache {
+
+    /**
+     * bucket + "/" + pack key -> tombstone keys of the pack
+     */
+    private final Cache<String, Set<String>> packs;
+
+    /**
+     * removals so far, a listing is only remembered if no removal happened while it ran
+     */
+    private final AtomicLong removals = new AtomicLong();
+
+    /**
+     * @param ttlNanos time the tombstones of a pack are remembered
+     * @param maxPacks number of packs remembered
+     */
+    TombstoneCache(long ttlNanos, int maxPacks) {
+        this.packs = CacheBuilder.newBuilder()
+                .expireAfterWrite(ttlNanos, TimeUnit.NANOSECONDS)
+                .maximumSize(maxPacks)
+                .build();
+    }
+
+    /**
+     * @param list lists the tombstone keys of the pack when they are not remembered
+     * @return tombstone keys of the pack
+     */
+    Set<String> get(String bucketName, String packKey, Supplier<Set<String>> list) {
+        String key = key(bucketName, packKey);
+        Set<String> tombstones = packs.getIfPresent(key);
+        if (tombstones != null) {
+            return tombstones;
+        }
+        long before = removals.get();
+        tombstones = list.get();
+        if (removals.get() == before) {
+            packs.put(key, tombstones);
+        }
+        return tombstones;
+    }
+
+    /**
+     * Forget the tombstones of a pack, called once a new tombstone was written.
+     */
+    void invalidate(String bucketName, String packKey) {
+        removals.incrementAndGet();
+        packs.invalidate(key(bucketName, packKey));
+    }
+
+    private static String key(String bucketName, String packKey) {
+        return bucketName + "/" + packKey;
+    }
+}
@@ -0,0 +1,97 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: TransferEngine
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.aaa.ceph.constant.TransferManagerConf;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived transfer engine shared by every upload and download path of one {@link CS3Service}.
+ * <p>
+ * Owns one bounded thread pool and one {@link TransferManager} built on top of it. When the task queue is
+ * full the submitting thread runs the task itself, which throttles producers instead of growing the queue.
+ * Idle threads time out, so an unused engine holds no threads.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class TransferEngine {
+
+    private final ThreadPoolExecutor executor;
+
+    private final TransferManager transferManager;
+
+    /**
+     * Create the engine
+     *
+     * @param amazonS3 client used by the transfer manager.
+     * @param poolSize number of transfer threads.
+     * @param queueCapacity number of tasks waiting for a transfer thread.
+     * @param threadNameFormat thread name format, e.g., s3-transfer-thread-%d
+     */
+    TransferEngine(AmazonS3 amazonS3, int poolSize, int queueCapacity, String threadNameFormat) {
+        ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
+                .setNameFormat(threadNameFormat)
+                .setDaemon(true)
+                .build();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize,
+                TransferManagerConf.TRANSFER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), namedThreadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        // the pool is owned here, the transfer manager must not shut it down
+        this.transferManager = TransferManagerBuilder.standard()
+                .withS3Client(amazonS3)
+                .withExecutorFactory(() -> executor)
+                .withShutDownThreadPools(false)
+                .withMinimumUploadPartSize(TransferManagerConf.MINIMUM_UPLOAD_PART_SIZE)
+                .withMultipartUploadThreshold(TransferManagerConf.MULTIPART_UPLOAD_THRESHOLD)
+                .build();
+    }
+
+    /**
+     * @return the shared transfer thread pool.
+     */
+    ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * @return the shared transfer manager.
+     */
+    TransferManager transferManager() {
+        return transferManager;
+    }
+
+    /**
+     * Stop accepting new transfers and wait for the running ones to finish.
+     * Transfers still running after {@link TransferManagerConf#SHUTDOWN_TIMEOUT_SECONDS} are interrupted.
+     */
+    void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(TransferManagerConf.SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            transferManager.shutdownNow(false);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: UploadCheckpoint
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.services.s3.model.PartETag;
+import org.aaa.ceph.exception.CephException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * local journal of a resumable multipart upload
+ * <p>
+ * The journal is a properties file. The header records the bucket, object key, upload id, part size and
+ * the size and modification time of the source file; every completed part is appended as one
+ * {@code part.N=etag} line, so a crash loses at most the part being written. The journal is deleted once
+ * the multipart upload is completed.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class UploadCheckpoint {
+
+    private static final String PART_PREFIX = "part.";
+
+    private final File journal;
+
+    private final String bucketName;
+
+    private final String objectKey;
+
+    private final String uploadId;
+
+    private final long partSize;
+
+    private final long fileLength;
+
+    private final long fileLastModified;
+
+    /**
+     * part number -> ETag of the parts completed so far
+     */
+    private final Map<Integer, String> parts = new TreeMap<>();
+
+    private UploadCheckpoint(File journal, String bucketName, String objectKey, String uploadId,
+                             long partSize, long fileLength, long fileLastModified) {
+        this.journal = journal;
+        this.bucketName = bucketName;
+        this.objectKey = objectKey;
+        this.uploadId = uploadId;
+        this.partSize = partSize;
+        this.fileLength = fileLength;
+        this.fileLastModified = fileLastModified;
+    }
+
+    /**
+     * Start a new journal, replacing any previous one.
+     */
+    static UploadCheckpoint create(File journal, String bucketName, String objectKey, String uploadId,
+                                   long partSize, File file) {
+        UploadCheckpoint checkpoint = new UploadCheckpoint(journal, bucketName, objectKey, uploadId,
+                partSize, file.length(), file.lastModified());
+        Properties header = new Properties();
+        header.setProperty("bucket", bucketName);
+        header.setProperty("key", objectKey);
+        header.setProperty("uploadId", uploadId);
+        header.setProperty("partSize", String.valueOf(partSize));
+        header.setProperty("fileLength", String.valueOf(checkpoint.fileLength));
+        header.setProperty("fileLastModified", String.valueOf(checkpoint.fileLastModified));
+        File parent = journal.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new CephException("Can not create checkpoint directory " + parent);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(journal), StandardCharsets.ISO_8859_1)) {
+            header.store(writer, "cs3 multipart upload checkpoint");
+        } catch (IOException e) {
+            throw new CephException("Can not write checkpoint " + journal, e);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Read an existing journal.
+     *
+     * @return the checkpoint, or null if there is no readable journal
+     */
+    static UploadCheckpoint load(File journal) {
+        if (!journal.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(journal)) {
+            properties.load(in);
+            UploadCheckpoint checkpoint = new UploadCheckpoint(journal,
+                    properties.getProperty("bucket"),
+                    properties.getProperty("key"),
+                    properties.getProperty("uploadId"),
+                    Long.parseLong(properties.getProperty("partSize")),
+                    Long.parseLong(properties.getProperty("fileLength")),
+                    Long.parseLong(properties.getProperty("fileLastModified")));
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith(PART_PREFIX)) {
+                    checkpoint.parts.put(Integer.valueOf(name.substring(PART_PREFIX.length())), properties.getProperty(name));
+                }
+            }
+            return checkpoint.uploadId == null ? null : checkpoint;
+        } catch (IOException | RuntimeException e) {
+            // a torn or foreign journal is ignored, the upload starts over
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the journal belongs to this object and the file did not change since
+     */
+    boolean matches(String bucketName, String objectKey, File file) {
+        return this.bucketName.equals(bucketName) && this.objectKey.equals(objectKey)
+                && fileLength == file.length() && fileLastModified == file.lastModified();
+    }
+
+    /**
+     * Append a completed part to the journal.
+     */
+    synchronized void partCompleted(PartETag partETag) {
+        String etag = normalize(partETag.getETag());
+        parts.put(partETag.getPartNumber(), etag);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(journal, true), StandardCharsets.ISO_8859_1)) {
+            writer.write(PART_PREFIX + partETag.getPartNumber() + "=" + etag + "\n");
+        } catch (IOException e) {
+            throw new CephException("Can not write checkpoint " + journal, e);
+        }
+    }
+
+    /**
+     * @return the ETag recorded for the part, or null
+     */
+    synchronized String partETag(int partNumber) {
+        return parts.get(partNumber);
+    }
+
+    void delete() {
+        if (journal.exists() && !journal.delete()) {
+            journal.deleteOnExit();
+        }
+    }
+
+    String getUploadId() {
+        return uploadId;
+    }
+
+    long getPartSize() {
+        return partSize;
+    }
+
+    static String normalize(String etag) {
+        return etag == null ? null : etag.replace("\"", "");
+    }
+}
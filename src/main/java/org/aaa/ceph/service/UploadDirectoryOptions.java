@@ -0,0 +1,88 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: UploadDirectoryOptions
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import org.aaa.ceph.constant.TransferManagerConf;
+
+/**
+ * options of a directory upload
+ * <p>
+ * Fluent options for {@link CS3Service#uploadDirectory(String, java.nio.file.Path, UploadDirectoryOptions)}.
+ * Without any option every file is stored under its path relative to the root, files of at least
+ * {@link TransferManagerConf#MULTIPART_UPLOAD_THRESHOLD} bytes in parts, and as many single requests run
+ * concurrently as parts of one multipart upload.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public class UploadDirectoryOptions {
+
+    /**
+     * prepended to the relative path of every file
+     */
+    private String prefix;
+    /**
+     * number of single object uploads running concurrently, 0 uses the part concurrency of the service
+     */
+    private int concurrency;
+    /**
+     * files of at least this size are uploaded in parts
+     */
+    private long multipartThreshold = TransferManagerConf.MULTIPART_UPLOAD_THRESHOLD;
+
+    /**
+     * Sets the key prefix of the uploaded objects, e.g., "study-42/".
+     *
+     * @param prefix Key prefix.
+     * @return This object for method chaining.
+     */
+    public UploadDirectoryOptions prefix(String prefix) {
+        this.prefix = prefix;
+        return this;
+    }
+
+    /**
+     * Sets the number of single object uploads running concurrently.
+     *
+     * @param concurrency Uploads in flight.
+     * @return This object for method chaining.
+     */
+    public UploadDirectoryOptions concurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Sets the size from which a file is uploaded in parts.
+     *
+     * @param multipartThreshold Size in bytes.
+     * @return This object for method chaining.
+     */
+    public UploadDirectoryOptions multipartThreshold(long multipartThreshold) {
+        if (multipartThreshold < 1) {
+            throw new IllegalArgumentException("multipartThreshold must be positive");
+        }
+        this.multipartThreshold = multipartThreshold;
+        return this;
+    }
+
+    String getPrefix() {
+        return prefix;
+    }
+
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    long getMultipartThreshold() {
+        return multipartThreshold;
+    }
+}
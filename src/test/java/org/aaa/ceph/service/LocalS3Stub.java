@@ -0,0 +1,371 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: LocalS3Stub
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process S3 stand-in for the tests
+ * <p>Keeps the objects in heap and implements the requests the service sends for small objects: bucket
+ * create/exists, object put/get/head/delete (with ranges), ListObjects V1 and multi-object delete. Request
+ * signatures are not verified. The benchmarks module has a complete server with multipart uploads and
+ * fault injection.
+ * </p>
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+final class LocalS3Stub implements Closeable {
+
+    private static final Pattern DELETE_KEY = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+
+    private final Map<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    LocalS3Stub() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "local-s3-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    LocalS3Stub createBucket(String bucketName) {
+        buckets.putIfAbsent(bucketName, new ConcurrentSkipListMap<>());
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            dispatch(exchange);
+        } catch (RuntimeException e) {
+            error(exchange, 500, "InternalError", String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void dispatch(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath().substring(1);
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        int slash = path.indexOf('/');
+        String bucket = decode(slash < 0 ? path : path.substring(0, slash));
+        String key = slash < 0 || slash == path.length() - 1 ? null : decode(path.substring(slash + 1));
+        if ("PUT".equals(method) && key == null) {
+            readBody(exchange);
+            createBucket(bucket);
+            empty(exchange, 200);
+            return;
+        }
+        NavigableMap<String, StoredObject> objects = buckets.get(bucket);
+        if (objects == null) {
+            readBody(exchange);
+            error(exchange, 404, "NoSuchBucket", bucket);
+        } else if (key == null) {
+            bucketRequest(exchange, method, bucket, objects, query);
+        } else {
+            objectRequest(exchange, method, key, objects);
+        }
+    }
+
+    private void bucketRequest(HttpExchange exchange, String method, String bucket,
+                               NavigableMap<String, StoredObject> objects, Map<String, String> query) throws IOException {
+        if ("HEAD".equals(method)) {
+            empty(exchange, 200);
+        } else if ("POST".equals(method) && query.containsKey("delete")) {
+            deleteObjects(exchange, objects);
+        } else if ("GET".equals(method)) {
+            listObjects(exchange, bucket, objects, query);
+        } else {
+            error(exchange, 405, "MethodNotAllowed", method);
+        }
+    }
+
+    private void listObjects(HttpExchange exchange, String bucket, NavigableMap<String, StoredObject> objects,
+                             Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        String marker = query.get("marker");
+        NavigableMap<String, StoredObject> view = marker == null || marker.isEmpty() ? objects : objects.tailMap(marker, false);
+        StringBuilder contents = new StringBuilder();
+        int count = 0;
+        String last = null;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : view.tailMap(prefix, true).entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (count++ == maxKeys) {
+                truncated = true;
+                break;
+            }
+            last = key;
+            StoredObject object = entry.getValue();
+            contents.append("<Contents><Key>").append(escape(key)).append("</Key><LastModified>")
+                    .append(iso(object.lastModified)).append("</LastModified><ETag>&quot;").append(object.etag)
+                    .append("&quot;</ETag><Size>").append(object.data.length)
+                    .append("</Size><StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        StringBuilder xml = new StringBuilder("<ListBucketResult><Name>").append(escape(bucket)).append("</Name><Prefix>")
+                .append(escape(prefix)).append("</Prefix><MaxKeys>").append(maxKeys).append("</MaxKeys><IsTruncated>")
+                .append(truncated).append("</IsTruncated>");
+        if (truncated) {
+            xml.append("<NextMarker>").append(escape(last)).append("</NextMarker>");
+        }
+        xml.append(contents).append("</ListBucketResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    private void deleteObjects(HttpExchange exchange, NavigableMap<String, StoredObject> objects) throws IOException {
+        String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+        boolean quiet = body.contains("<Quiet>true</Quiet>");
+        StringBuilder xml = new StringBuilder("<DeleteResult>");
+        Matcher matcher = DELETE_KEY.matcher(body);
+        while (matcher.find()) {
+            String key = unescape(matcher.group(1));
+            objects.remove(key);
+            if (!quiet) {
+                xml.append("<Deleted><Key>").append(escape(key)).append("</Key></Deleted>");
+            }
+        }
+        xml.append("</DeleteResult>");
+        xml(exchange, 200, xml.toString());
+    }
+
+    private void objectRequest(HttpExchange exchange, String method, String key,
+                               NavigableMap<String, StoredObject> objects) throws IOException {
+        switch (method) {
+            case "PUT":
+                StoredObject object = new StoredObject(readBody(exchange));
+                objects.put(key, object);
+                exchange.getResponseHeaders().set("ETag", "\"" + object.etag + "\"");
+                empty(exchange, 200);
+                break;
+            case "DELETE":
+                objects.remove(key);
+                empty(exchange, 204);
+                break;
+            case "GET":
+                getObject(exchange, objects.get(key), true);
+                break;
+            case "HEAD":
+                getObject(exchange, objects.get(key), false);
+                break;
+            default:
+                error(exchange, 405, "MethodNotAllowed", method);
+        }
+    }
+
+    private void getObject(HttpExchange exchange, StoredObject object, boolean withBody) throws IOException {
+        if (object == null) {
+            error(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+            return;
+        }
+        long start = 0;
+        long end = object.data.length - 1L;
+        int status = 200;
+        Headers headers = exchange.getResponseHeaders();
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            start = Long.parseLong(bounds[0]);
+            if (!bounds[1].isEmpty()) {
+                end = Math.min(end, Long.parseLong(bounds[1]));
+            }
+            if (start >= object.data.length) {
+                error(exchange, 416, "InvalidRange", "The requested range is not satisfiable");
+                return;
+            }
+            status = 206;
+            headers.set("Content-Range", "bytes " + start + "-" + end + "/" + object.data.length);
+        }
+        headers.set("ETag", "\"" + object.etag + "\"");
+        headers.set("Last-Modified", rfc822(object.lastModified));
+        headers.set("Content-Type", "application/octet-stream");
+        int length = (int) (end - start + 1);
+        if (!withBody) {
+            headers.set("Content-Length", String.valueOf(object.data.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(object.data, (int) start, length);
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        byte[] body = out.toByteArray();
+        String contentSha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (contentSha != null && contentSha.startsWith("STREAMING-")) {
+            return decodeAwsChunked(body);
+        }
+        return body;
+    }
+
+    /**
+     * strips the chunk signatures of a {@code aws-chunked} payload
+     */
+    private static byte[] decodeAwsChunked(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+        int pos = 0;
+        while (pos < body.length) {
+            int lineEnd = pos;
+            while (body[lineEnd] != '\r') {
+                lineEnd++;
+            }
+            String header = new String(body, pos, lineEnd - pos, StandardCharsets.US_ASCII);
+            int semicolon = header.indexOf(';');
+            int size = Integer.parseInt(semicolon < 0 ? header : header.substring(0, semicolon), 16);
+            pos = lineEnd + 2;
+            if (size == 0) {
+                break;
+            }
+            out.write(body, pos, size);
+            pos += size + 2;
+        }
+        return out.toByteArray();
+    }
+
+    private static void empty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static void xml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String code, String message) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        xml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + escape(message) + "</Message><RequestId>local</RequestId></Error>");
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) {
+                query.put(decode(pair), "");
+            } else {
+                query.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+            }
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&amp;", "&");
+    }
+
+    private static String iso(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    private static String rfc822(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(date);
+    }
+
+    private static final class StoredObject {
+        private final byte[] data;
+        private final String etag;
+        private final Date lastModified = new Date();
+
+        private StoredObject(byte[] data) {
+            this.data = data;
+            try {
+                StringBuilder hex = new StringBuilder();
+                for (byte b : MessageDigest.getInstance("MD5").digest(data)) {
+                    hex.append(String.format("%02x", b));
+                }
+                this.etag = hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*********************************************************************************
+ * Copyright (c)2020 CEC Health
+ * FILE: ObjectPackerTest
+ * 版本      DATE             BY               REMARKS
+ * ----  -----------  ---------------  ------------------------------------------
+ * 1.0   2026-10-17        xiwu
+ ********************************************************************************/
+package org.aaa.ceph.service;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.io.ByteStreams;
+import org.aaa.ceph.constant.TransferManagerConf;
+import org.aaa.ceph.metrics.MetricsListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * round trip of {@link ObjectPacker} against the in-process {@link LocalS3Stub}
+ * @Author: wuxi
+ * @Date: 2026/10/17
+ */
+public class ObjectPackerTest {
+
+    private static final String BUCKET = "packer";
+
+    private static final int OBJECTS = 6;
+
+    private LocalS3Stub server;
+
+    private AmazonS3 amazonS3;
+
+    private ExecutorService executor;
+
+    private ObjectPacker packer;
+
+    @Before
+    public void start() throws IOException {
+        server = new LocalS3Stub().createBucket(BUCKET);
+        amazonS3 = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(server.getEndpoint(), "us-east-1"))
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("packer", "packer")))
+                .withPathStyleAccessEnabled(true)
+                .build();
+        executor = Executors.newFixedThreadPool(4);
+        PartBufferPool bufferPool = new PartBufferPool(256 * 1024, 4 * 256 * 1024);
+        BatchDeleter batchDeleter = new BatchDeleter(amazonS3, executor, 2, 0, MetricsListener.NONE);
+        packer = new ObjectPacker(amazonS3, executor, bufferPool, batchDeleter, 0, MetricsListener.NONE,
+                64 * 1024, TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @After
+    public void stop() {
+        packer.close();
+        executor.shutdown();
+        amazonS3.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void appendReadRemoveCompact() throws Exception {
+        Random random = new Random(24);
+        List<byte[]> contents = new ArrayList<>();
+        List<CompletableFuture<PackedObject>> appended = new ArrayList<>();
+        for (int i = 0; i < OBJECTS; i++) {
+            byte[] content = new byte[1000 + random.nextInt(9000)];
+            random.nextBytes(content);
+            contents.add(content);
+            appended.add(packer.append(BUCKET, content));
+        }
+        List<PackedObject> locations = new ArrayList<>();
+        for (CompletableFuture<PackedObject> location : appended) {
+            locations.add(location.get(10, TimeUnit.SECONDS));
+        }
+        // appended within the linger time, stored together
+        String packKey = locations.get(0).getPackKey();
+        assertTrue(packKey.startsWith(TransferManagerConf.PACK_KEY_PREFIX));
+        for (int i = 0; i < OBJECTS; i++) {
+            assertEquals(packKey, locations.get(i).getPackKey());
+            assertEquals(contents.get(i).length, locations.get(i).getLength());
+            assertArrayEquals(contents.get(i), read(locations.get(i)));
+        }
+
+        // remove all but the last two objects
+        List<PackedObject> removed = locations.subList(0, OBJECTS - 2);
+        for (PackedObject object : removed) {
+            packer.remove(BUCKET, object);
+            assertTrue(amazonS3.doesObjectExist(BUCKET, ObjectPacker.tombstoneKey(object)));
+        }
+
+        long packSize = amazonS3.getObjectMetadata(BUCKET, packKey).getContentLength();
+        PackCompaction compaction = packer.compact(BUCKET, listPacks(), 0.5);
+        assertEquals(1, compaction.getCompactedPacks());
+        Map<PackedObject, PackedObject> relocated = compaction.getRelocated();
+        assertEquals(2, relocated.size());
+        for (int i = OBJECTS - 2; i < OBJECTS; i++) {
+            PackedObject moved = relocated.get(locations.get(i));
+            assertNotEquals(packKey, moved.getPackKey());
+            assertEquals(contents.get(i).length, moved.getLength());
+            assertArrayEquals(contents.get(i), read(moved));
+        }
+        long copied = contents.get(OBJECTS - 2).length + contents.get(OBJECTS - 1).length;
+        assertEquals(packSize - copied, compaction.getReclaimedBytes());
+
+        // the old pack and its tombstones are gone
+        assertFalse(amazonS3.doesObjectExist(BUCKET, packKey));
+        for (PackedObject object : removed) {
+            assertFalse(amazonS3.doesObjectExist(BUCKET, ObjectPacker.tombstoneKey(object)));
+        }
+        assertEquals(0, packer.compact(BUCKET, listPacks(), 0.5).getCompactedPacks());
+    }
+
+    private byte[] read(PackedObject object) throws IOException {
+        S3Object pack = amazonS3.getObject(new GetObjectRequest(BUCKET, object.getPackKey())
+                .withRange(object.getOffset(), object.getOffset() + object.getLength() - 1));
+        try (InputStream in = pack.getObjectContent()) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    private Stream<S3ObjectSummary> listPacks() {
+        return amazonS3.listObjects(BUCKET, TransferManagerConf.PACK_KEY_PREFIX).getObjectSummaries().stream();
+    }
+}